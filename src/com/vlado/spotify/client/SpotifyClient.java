@@ -9,6 +9,7 @@ import com.vlado.spotify.logger.log.LogLevel;
 import com.vlado.spotify.logger.options.LoggerOptions;
 import com.vlado.spotify.server.response.ServerResponse;
 import com.vlado.spotify.server.response.ResponseBuffer;
+import com.vlado.spotify.server.response.ServerResponseCodec;
 import com.vlado.spotify.validations.ParameterValidator;
 
 import javax.sound.sampled.AudioFormat;
@@ -35,6 +36,7 @@ public class SpotifyClient implements Client {
     private static final Path LOGS_PATH = Path.of("resources", "client", "logs");
     private static final int LOG_FILE_SIZE = 32768;
     private static final Object MUSIC_KEY_ATTACHMENT = new Object();
+    private static final String PROTOCOL_REQUEST = "protocol binary";
 
     private final AtomicBoolean isConnected;
     private Selector selector;
@@ -74,6 +76,7 @@ public class SpotifyClient implements Client {
             this.selector = selector;
 
             SelectionKey requestKey = setUp(clientRequestChannel);
+            sendRequest(PROTOCOL_REQUEST, clientRequestChannel);
             startRequestSender(requestKey);
 
             while (isConnected.get()) {
@@ -205,13 +208,15 @@ public class SpotifyClient implements Client {
         ParameterValidator.checkNull(responseBuffer, "responseBuffer");
         ParameterValidator.checkNull(key, "key");
 
-        byte[] responseBytes;
-        while ((responseBytes = responseBuffer.getNext()) != null) {
-            byte code = responseBytes[0];
+        ByteBuffer responseBytes;
+        while ((responseBytes = responseBuffer.getNextBuffer()) != null) {
+            byte code = responseBytes.get();
+            byte[] bytes = responseBytes.array();
+            int offset = responseBytes.arrayOffset() + responseBytes.position();
+            int length = responseBytes.remaining();
 
-            if (code == ResponseBuffer.MESSAGE) {
-                String responseJson = new String(responseBytes, 1, responseBytes.length - 1, StandardCharsets.UTF_8);
-                ServerResponse response = gson.fromJson(responseJson, ServerResponse.class);
+            if (code == ResponseBuffer.MESSAGE || code == ResponseBuffer.BINARY_MESSAGE) {
+                ServerResponse response = decodeResponse(code, bytes, offset, length);
                 String serverResponse = handleTextResponse(response, key);
 
                 if (print) {
@@ -220,13 +225,24 @@ public class SpotifyClient implements Client {
                     logResponse(response);
                 }
             } else if (code == ResponseBuffer.FRAGMENT) {
-                writeToDataLine(responseBytes, 1, responseBytes.length - 1);
+                writeToDataLine(bytes, offset, length);
             } else {
                 throw new IllegalStateException("Unrecognized response format received: " + code);
             }
         }
     }
 
+    private ServerResponse decodeResponse(byte code, byte[] bytes, int offset, int length) {
+        ParameterValidator.checkNull(bytes, "bytes");
+
+        if (code == ResponseBuffer.BINARY_MESSAGE) {
+            return ServerResponseCodec.decode(bytes, offset, length);
+        }
+
+        String responseJson = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        return gson.fromJson(responseJson, ServerResponse.class);
+    }
+
     private String handleTextResponse(ServerResponse response, SelectionKey clientKey)
             throws LineUnavailableException, IOException {
         ParameterValidator.checkNull(response, "response");
@@ -251,8 +267,6 @@ public class SpotifyClient implements Client {
             AudioFormat format = response.getSongFormat().toAudioFormat();
             setUpSourceDataLine(format);
             prepareForIncomingStream(clientKey);
-        } else if (response.isSongFragmentResponse()) {
-            throw new IllegalStateException("Cannot handle song fragment here");
         }
 
         return response.getMessage();
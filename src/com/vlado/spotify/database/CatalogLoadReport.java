@@ -0,0 +1,15 @@
+package com.vlado.spotify.database;
+
+// How many songs were loaded and how long each phase of the loading took
+public record CatalogLoadReport(int songs, long readMillis, long parseMillis, long validateMillis,
+                                long buildMillis) {
+    public long totalMillis() {
+        return readMillis + parseMillis + validateMillis + buildMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %d songs in %d ms (read: %d ms, parse: %d ms, validate: %d ms, build: %d ms)",
+                songs, totalMillis(), readMillis, parseMillis, validateMillis, buildMillis);
+    }
+}
@@ -0,0 +1,133 @@
+package com.vlado.spotify.database;
+
+import com.google.gson.Gson;
+import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.WavHeader;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Loads a catalog snapshot or a catalog of one JSON song per line. A JSON file is read at once and split
+// into chunks at line boundaries, which are parsed in parallel. Song files are then checked and probed in parallel.
+class CatalogLoader {
+    private static final String WAV_FORMAT = ".wav";
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Gson gson;
+    private final int chunks;
+
+    CatalogLoader(Gson gson) {
+        this(gson, CHUNKS_PER_THREAD * Runtime.getRuntime().availableProcessors());
+    }
+
+    CatalogLoader(Gson gson, int chunks) {
+        this.gson = ParameterValidator.checkNull(gson, "gson");
+        this.chunks = ParameterValidator.checkPositive(chunks, "chunks");
+    }
+
+    // Passes every song of the file to build at once, after all of them are parsed and checked
+    CatalogLoadReport load(Path file, Consumer<List<Song>> build) throws IOException {
+        ParameterValidator.checkNull(file, "file");
+        ParameterValidator.checkNull(build, "build");
+
+        long start = System.nanoTime();
+        byte[] bytes = Files.readAllBytes(file);
+        long read = System.nanoTime();
+
+        List<Song> parsed = CatalogSnapshot.isSnapshot(bytes)
+                ? CatalogSnapshot.decode(bytes)
+                : split(bytes).parallelStream()
+                        .flatMap(range -> parse(bytes, range[0], range[1]).stream())
+                        .toList();
+        long parse = System.nanoTime();
+
+        List<Song> songs = parsed.parallelStream()
+                .map(this::validate)
+                .toList();
+        long validate = System.nanoTime();
+
+        build.accept(songs);
+        long end = System.nanoTime();
+
+        return new CatalogLoadReport(songs.size(), millis(read - start), millis(parse - read),
+                millis(validate - parse), millis(end - validate));
+    }
+
+    // Start and end of each chunk, every chunk ending right after a line break or at the end of the file
+    private List<int[]> split(byte[] bytes) {
+        int chunkSize = Math.max(bytes.length / chunks, 1);
+        List<int[]> ranges = new ArrayList<>();
+
+        int start = 0;
+        while (start < bytes.length) {
+            int end = Math.min(start + chunkSize, bytes.length);
+            while (end < bytes.length && bytes[end - 1] != '\n') {
+                end++;
+            }
+
+            ranges.add(new int[] {start, end});
+            start = end;
+        }
+
+        return ranges;
+    }
+
+    private List<Song> parse(byte[] bytes, int start, int end) {
+        List<Song> songs = new ArrayList<>();
+
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+
+            String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+            if (!line.isBlank()) {
+                songs.add(gson.fromJson(line, Song.class));
+            }
+
+            lineStart = next;
+        }
+
+        return songs;
+    }
+
+    // Songs saved before their headers were kept have their files probed
+    private Song validate(Song song) {
+        if (!Files.exists(song.path()) || !song.path().getFileName().toString().endsWith(WAV_FORMAT)) {
+            throw new IllegalArgumentException(String.format(
+                    "Song: %s by %s, path error. Check the path %s.",
+                    song.name(), song.artist(), song.path().toString()));
+        }
+
+        if (song.header() != null) {
+            return song;
+        }
+
+        try {
+            return song.withHeader(WavHeader.read(song.path()));
+        } catch (IOException | UnsupportedAudioFileException e) {
+            throw new IllegalArgumentException(String.format(
+                    "Song: %s by %s, is not a supported WAV file. Check the path %s.",
+                    song.name(), song.artist(), song.path().toString()), e);
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
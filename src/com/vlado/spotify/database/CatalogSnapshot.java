@@ -0,0 +1,203 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.SongFormat;
+import com.vlado.spotify.song.WavHeader;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+// Binary snapshot of the song catalog:
+// magic (int), version (short), song count (int), string count (int), the string table, the song records
+// and a CRC32C of everything before it (int).
+// Names, artists, paths and encodings are stored once in the string table, each as its length (int) and UTF-8.
+// Every song record has the same size, so the records are decoded in parallel: name, artist and path string
+// indexes (int), streams (long), flags (1 byte), then the WAV header if HAS_HEADER is set and zeroes otherwise:
+// encoding string index (int), sample rate (float), sample size in bits (int), channels (int), frame size (int),
+// frame rate (float), big endian (1 byte), data offset (long) and data length (long).
+class CatalogSnapshot {
+    static final int MAGIC = 0x534F4E47;
+    static final short VERSION = 1;
+
+    private static final byte HAS_HEADER = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Short.BYTES + Integer.BYTES;
+    private static final int CHECKSUM_SIZE = Integer.BYTES;
+    private static final int RECORD_SIZE = 3 * Integer.BYTES + Long.BYTES + Byte.BYTES
+            + Integer.BYTES + 2 * Float.BYTES + 3 * Integer.BYTES + Byte.BYTES + 2 * Long.BYTES;
+
+    private CatalogSnapshot() {
+    }
+
+    static boolean isSnapshot(byte[] bytes) {
+        ParameterValidator.checkNull(bytes, "bytes");
+
+        return bytes.length >= Integer.BYTES && ByteBuffer.wrap(bytes).getInt() == MAGIC;
+    }
+
+    static byte[] encode(Collection<Song> songs) {
+        ParameterValidator.checkNull(songs, "songs");
+
+        // Sized for a few distinct strings per song, so the table is not rehashed while it is built
+        Map<String, Integer> strings = new HashMap<>(4 * songs.size());
+        int[][] indexes = new int[songs.size()][];
+        int i = 0;
+        for (Song song : songs) {
+            WavHeader header = song.header();
+            indexes[i++] = new int[] {
+                    intern(strings, song.name()),
+                    intern(strings, song.artist()),
+                    intern(strings, song.path().toString()),
+                    header == null ? 0 : intern(strings, header.getFormat().getEncoding())
+            };
+        }
+
+        byte[][] encoded = new byte[strings.size()][];
+        strings.forEach((string, index) -> encoded[index] = string.getBytes(StandardCharsets.UTF_8));
+        long size = HEADER_SIZE + (long) songs.size() * RECORD_SIZE + CHECKSUM_SIZE
+                + Arrays.stream(encoded).mapToLong(string -> Integer.BYTES + string.length).sum();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Song catalog is too large for a snapshot");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(songs.size());
+        buffer.putInt(encoded.length);
+        for (byte[] string : encoded) {
+            buffer.putInt(string.length);
+            buffer.put(string);
+        }
+
+        i = 0;
+        for (Song song : songs) {
+            int[] songStrings = indexes[i++];
+            buffer.putInt(songStrings[0]);
+            buffer.putInt(songStrings[1]);
+            buffer.putInt(songStrings[2]);
+            buffer.putLong(song.streams());
+            putHeader(buffer, song.header(), songStrings[3]);
+        }
+
+        buffer.putInt(checksum(buffer.array(), buffer.position()));
+        return buffer.array();
+    }
+
+    static List<Song> decode(byte[] bytes) {
+        ParameterValidator.checkNull(bytes, "bytes");
+
+        if (bytes.length < HEADER_SIZE + CHECKSUM_SIZE || !isSnapshot(bytes)) {
+            throw new IllegalArgumentException("Not a song catalog snapshot");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int checksumAt = bytes.length - CHECKSUM_SIZE;
+        if (buffer.getInt(checksumAt) != checksum(bytes, checksumAt)) {
+            throw new IllegalArgumentException("Song catalog snapshot checksum mismatch");
+        }
+
+        try {
+            buffer.getInt();
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported song catalog snapshot version: " + version);
+            }
+
+            int songCount = buffer.getInt();
+            String[] strings = readStrings(buffer, buffer.getInt());
+
+            int recordsAt = buffer.position();
+            if ((long) songCount * RECORD_SIZE != checksumAt - recordsAt) {
+                throw new IllegalArgumentException("Song catalog snapshot has a wrong number of songs");
+            }
+
+            // Slices keep the position of each record independent, so the records decode in parallel
+            return IntStream.range(0, songCount)
+                    .parallel()
+                    .mapToObj(song -> readSong(buffer.slice(recordsAt + song * RECORD_SIZE, RECORD_SIZE), strings))
+                    .toList();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated song catalog snapshot", e);
+        }
+    }
+
+    private static int intern(Map<String, Integer> strings, String string) {
+        return strings.computeIfAbsent(string, key -> strings.size());
+    }
+
+    private static void putHeader(ByteBuffer buffer, WavHeader header, int encoding) {
+        if (header == null) {
+            buffer.put((byte) 0);
+            buffer.position(buffer.position() + RECORD_SIZE - (3 * Integer.BYTES + Long.BYTES + Byte.BYTES));
+            return;
+        }
+
+        SongFormat format = header.getFormat();
+        buffer.put(HAS_HEADER);
+        buffer.putInt(encoding);
+        buffer.putFloat(format.getSampleRate());
+        buffer.putInt(format.getSampleSizeInBits());
+        buffer.putInt(format.getChannels());
+        buffer.putInt(format.getFrameSize());
+        buffer.putFloat(format.getFrameRate());
+        buffer.put((byte) (format.isBigEndian() ? 1 : 0));
+        buffer.putLong(header.getDataOffset());
+        buffer.putLong(header.getDataLength());
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Song catalog snapshot has a negative string count");
+        }
+
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Truncated song catalog snapshot");
+            }
+
+            strings[i] = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        }
+
+        return strings;
+    }
+
+    private static Song readSong(ByteBuffer record, String[] strings) {
+        String name = strings[record.getInt()];
+        String artist = strings[record.getInt()];
+        Path path = Path.of(strings[record.getInt()]);
+        long streams = record.getLong();
+
+        WavHeader header = null;
+        if ((record.get() & HAS_HEADER) != 0) {
+            SongFormat format = new SongFormat(strings[record.getInt()],
+                    record.getFloat(),
+                    record.getInt(),
+                    record.getInt(),
+                    record.getInt(),
+                    record.getFloat(),
+                    record.get() != 0);
+            header = new WavHeader(format, record.getLong(), record.getLong());
+        }
+
+        return new Song(name, artist, streams, path, header);
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,25 @@
+package com.vlado.spotify.database;
+
+import java.nio.file.Path;
+
+// Converts the song catalog between its snapshot and JSON forms. Either form is accepted as the source.
+// Usage: CatalogTool import <source> <snapshot> | CatalogTool export <source> <json>
+public class CatalogTool {
+    private static final String USAGE = "Usage: CatalogTool import <source> <snapshot> | export <source> <json>";
+
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        SongDatabase songDatabase = SongDatabase.instance();
+        System.out.println(songDatabase.loadSongs(Path.of(args[1])));
+
+        if (args[0].equals("import")) {
+            songDatabase.saveSongs(Path.of(args[2]));
+        } else {
+            songDatabase.exportSongs(Path.of(args[2]));
+        }
+    }
+}
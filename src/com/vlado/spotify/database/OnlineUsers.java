@@ -1,36 +1,60 @@
 package com.vlado.spotify.database;
 
+import com.vlado.spotify.metrics.Histogram;
+import com.vlado.spotify.metrics.MetricsRegistry;
 import com.vlado.spotify.server.response.ResponseSender;
-import com.vlado.spotify.song.SongFragment;
+import com.vlado.spotify.song.BlockCache;
+import com.vlado.spotify.song.MappedSongRegistry;
+import com.vlado.spotify.song.SongChannel;
 import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.StreamPacer;
+import com.vlado.spotify.song.StreamResult;
+import com.vlado.spotify.song.StreamSession;
+import com.vlado.spotify.song.StreamingMode;
 import com.vlado.spotify.user.User;
 import com.vlado.spotify.validations.ParameterValidator;
 
 import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.channels.SelectionKey;
-import java.util.HashMap;
+import java.nio.channels.Selector;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class OnlineUsers {
+    public static final long UNPACED = -1;
     private static final int BUFFER_SIZE = 8187;
+    private static final long DEFAULT_BLOCK_CACHE_SIZE = 64 * 1024 * 1024;
 
     private static final OnlineUsers INSTANCE = new OnlineUsers();
 
     private SongDatabase songDatabase = SongDatabase.instance();
-    private final SongFragment songFragment;
+    private StreamingMode streamingMode = StreamingMode.BUFFERED;
+    // Streams run at most this far ahead of real time, unpaced when negative
+    private long streamLeadMillis = UNPACED;
+    // Used by CACHED streaming
+    private BlockCache blockCache = new BlockCache(DEFAULT_BLOCK_CACHE_SIZE);
+    // Used by MAPPED streaming
+    private final MappedSongRegistry mappedSongs = new MappedSongRegistry();
     // Maps username to requestKey
     private final Map<String, SelectionKey> online;
-    // Maps musicKey to AudioStream
-    private final Map<SelectionKey, AudioInputStream> currentlyListening;
+    // Maps musicKey to its stream session
+    private final Map<SelectionKey, StreamSession> currentlyListening;
+    private final Histogram fragmentLatency;
+    // One instance, so it can be removed from a song database which is replaced
+    private final Consumer<Song> removalListener = this::forgetSong;
 
     private OnlineUsers() {
-        this.online = new HashMap<>();
-        this.currentlyListening = new HashMap<>();
-        this.songFragment = new SongFragment(BUFFER_SIZE);
+        this.online = new ConcurrentHashMap<>();
+        this.currentlyListening = new ConcurrentHashMap<>();
+        songDatabase.addRemovalListener(removalListener);
+
+        MetricsRegistry metrics = MetricsRegistry.instance();
+        this.fragmentLatency = metrics.histogram("streams.fragment.latency");
+        metrics.gauge("users.online", online::size);
+        metrics.gauge("streams.active", currentlyListening::size);
     }
 
     public static OnlineUsers instance() {
@@ -38,7 +62,39 @@ public class OnlineUsers {
     }
 
     public void setSongDatabase(SongDatabase songDatabase) {
+        ParameterValidator.checkNull(songDatabase, "songDatabase");
+
+        this.songDatabase.removeRemovalListener(removalListener);
         this.songDatabase = songDatabase;
+        songDatabase.addRemovalListener(removalListener);
+    }
+
+    public MappedSongRegistry getMappedSongs() {
+        return mappedSongs;
+    }
+
+    public StreamingMode getStreamingMode() {
+        return streamingMode;
+    }
+
+    public void setStreamingMode(StreamingMode streamingMode) {
+        this.streamingMode = ParameterValidator.checkNull(streamingMode, "streamingMode");
+    }
+
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    public void setBlockCache(BlockCache blockCache) {
+        this.blockCache = ParameterValidator.checkNull(blockCache, "blockCache");
+    }
+
+    public long getStreamLeadMillis() {
+        return streamLeadMillis;
+    }
+
+    public void setStreamLeadMillis(long streamLeadMillis) {
+        this.streamLeadMillis = streamLeadMillis;
     }
 
     public AudioFormat prepareStreaming(SelectionKey userKey, String songName) {
@@ -75,59 +131,105 @@ public class OnlineUsers {
             throw new IllegalStateException(String.format("User: %s, music channel is not connected", username));
         }
 
-        AudioInputStream audioInputStream = currentlyListening.get(userKey);
-        currentlyListening.remove(userKey);
+        StreamSession session = currentlyListening.remove(userKey);
 
-        currentlyListening.put(musicKey, audioInputStream);
+        currentlyListening.put(musicKey, session);
         musicKey.interestOps(SelectionKey.OP_WRITE);
+
+        // The music key may belong to a selector which is blocked on another thread
+        Selector selector = musicKey.selector();
+        if (selector != null) {
+            selector.wakeup();
+        }
     }
 
-    public SongFragment getSongFragment(SelectionKey musicKey) {
+    public StreamSession getStreamSession(SelectionKey musicKey) {
         ParameterValidator.checkNull(musicKey, "musicKey");
 
         if (musicKey.attachment() != null) { // Is not a music channel key
             throw new IllegalStateException("Cannot play music on this key");
         }
 
-        if (!currentlyListening.containsKey(musicKey)) {
+        StreamSession session = currentlyListening.get(musicKey);
+        if (session == null) {
             throw new IllegalStateException("Music key was not found");
         }
 
-        AudioInputStream audioInputStream = currentlyListening.get(musicKey);
-        if (audioInputStream == null) {
-            throw new IllegalStateException("Users audioStream is null");
+        return session;
+    }
+
+    public StreamResult streamSongFragment(SelectionKey musicKey) throws IOException {
+        ParameterValidator.checkNull(musicKey, "musicKey");
+
+        if (musicKey.attachment() != null) { // Is not a music channel key
+            throw new IllegalStateException("Cannot play music on this key");
         }
 
-        try {
-            songFragment.read(audioInputStream);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Song reading error occurred", e);
+        // The session may have already been stopped by a request handled on another thread
+        StreamSession session = currentlyListening.get(musicKey);
+        if (session == null) {
+            return StreamResult.STOPPED;
         }
 
-        if (songFragment.getRead() < 0) {
-            stopListening(musicKey);
-            return null;
+        long start = System.nanoTime();
+        boolean streaming = ResponseSender.instance().sendStream(musicKey, session);
+        fragmentLatency.recordSince(start);
+
+        if (streaming) {
+            return StreamResult.STREAMING;
+        }
+
+        // Only the call which removes the session reports the song as finished
+        if (!currentlyListening.remove(musicKey, session)) {
+            return StreamResult.STOPPED;
+        }
+
+        musicKey.interestOps(SelectionKey.OP_READ);
+        closeSession(session);
+        return StreamResult.FINISHED;
+    }
+
+    // How long the stream of musicKey has to wait before sending more, 0 if it is not streaming
+    public long getPacingDelayNanos(SelectionKey musicKey, long nowNanos) {
+        ParameterValidator.checkNull(musicKey, "musicKey");
+
+        StreamSession session = currentlyListening.get(musicKey);
+        return session == null ? 0 : session.getPacingDelayNanos(nowNanos);
+    }
+
+    public boolean isStreaming(SelectionKey musicKey) {
+        ParameterValidator.checkNull(musicKey, "musicKey");
+
+        return musicKey.attachment() == null && currentlyListening.containsKey(musicKey);
+    }
+
+    // True for a music key which is streaming and for the request key of a user who is listening
+    public boolean hasActiveStream(SelectionKey key) {
+        ParameterValidator.checkNull(key, "key");
+
+        if (currentlyListening.containsKey(key)) {
+            return true;
         }
 
-        return songFragment;
+        return key.attachment() instanceof User user
+                && user.getMusicKey() != null
+                && currentlyListening.containsKey(user.getMusicKey());
     }
 
     public void stopListening(SelectionKey musicKey) {
         ParameterValidator.checkNull(musicKey, "musicKey");
 
-        if (!currentlyListening.containsKey(musicKey)) {
+        StreamSession session = currentlyListening.remove(musicKey);
+        if (session == null) {
             throw new IllegalStateException("Not currently listening.");
         }
 
         musicKey.interestOps(SelectionKey.OP_READ);
-        AudioInputStream audioInputStream = currentlyListening.get(musicKey);
         try {
-            audioInputStream.close();
+            session.close();
         } catch (IOException e) {
-            throw new UncheckedIOException("Error occurred while trying to close the audio stream of musicKey", e);
+            throw new UncheckedIOException("Error occurred while trying to close the stream session of musicKey", e);
         }
-
-        currentlyListening.remove(musicKey);
     }
 
     public boolean isListening(String username) {
@@ -141,7 +243,7 @@ public class OnlineUsers {
         ParameterValidator.checkNull(user.attachment(), "user.attachment()");
         User attachment = (User) user.attachment();
 
-        return currentlyListening.get(attachment.getMusicKey()) != null;
+        return attachment.getMusicKey() != null && currentlyListening.containsKey(attachment.getMusicKey());
     }
 
     public boolean isOnline(String username) {
@@ -152,11 +254,9 @@ public class OnlineUsers {
         ParameterValidator.checkNull(userKey, "userKey");
 
         User user = (User) userKey.attachment();
-        if (isOnline(user.getUsername())) {
+        if (online.putIfAbsent(user.getUsername(), userKey) != null) {
             throw new IllegalArgumentException(String.format("User: %s, is already online", user.getUsername()));
         }
-
-        online.put(user.getUsername(), userKey);
     }
 
     public void removeUser(SelectionKey userKey) {
@@ -168,19 +268,12 @@ public class OnlineUsers {
         }
 
         SelectionKey musicKey = user.getMusicKey();
-        if (isListening(user.getUsername())) {
-            AudioInputStream audioInputStream = currentlyListening.get(musicKey);
-
-            if (audioInputStream != null) {
-                try {
-                    audioInputStream.close();
-                } catch (IOException e) {
-                    throw new UncheckedIOException("AudioStream closing error when adding new user", e);
-                }
-            }
+        closeSession(currentlyListening.remove(userKey));
+        if (musicKey != null) {
+            closeSession(currentlyListening.remove(musicKey));
+            ResponseSender.instance().removeClientsMessageQueue(musicKey);
         }
 
-        currentlyListening.remove(musicKey);
         online.remove(user.getUsername());
         ResponseSender.instance().removeClientsMessageQueue(userKey);
     }
@@ -190,9 +283,9 @@ public class OnlineUsers {
     }
 
     public void closeAllStreams() {
-        for (AudioInputStream audioInputStream : currentlyListening.values()) {
+        for (StreamSession session : currentlyListening.values()) {
             try {
-                audioInputStream.close();
+                session.close();
             } catch (IOException e) {
                 throw new UncheckedIOException("Stream closing error", e);
             }
@@ -215,11 +308,17 @@ public class OnlineUsers {
             throw new IllegalArgumentException(String.format("User: %s, is not online.", user.getUsername()));
         }
 
-        AudioInputStream audioInputStream;
+        SongChannel songChannel;
         try {
-            audioInputStream = AudioSystem.getAudioInputStream(song.path().toFile());
+            if (streamingMode == StreamingMode.MAPPED) {
+                songChannel = SongChannel.open(mappedSongs.get(song.path()));
+            } else if (song.header() != null) {
+                songChannel = SongChannel.open(song.path(), song.header());
+            } else {
+                songChannel = SongChannel.open(song.path());
+            }
         } catch (Throwable e) {
-            throw new RuntimeException("CurrentlyListening: audioInputStreamError", e);
+            throw new RuntimeException("CurrentlyListening: songChannelError", e);
         }
 
         if (isListening(user.getUsername())) {
@@ -227,10 +326,30 @@ public class OnlineUsers {
             stopListening(musicKey);
         }
 
-        currentlyListening.put(userKey, audioInputStream);
+        StreamPacer pacer = streamLeadMillis < 0
+                ? null
+                : new StreamPacer(songChannel.getHeader().getFormat(), streamLeadMillis);
+        StreamSession session = new StreamSession(song, songChannel, streamingMode, BUFFER_SIZE, pacer, blockCache);
+        closeSession(currentlyListening.put(userKey, session));
 
         songDatabase.updateSong(song.name(), song.artist());
-        return audioInputStream.getFormat();
+        return session.getFormat().toAudioFormat();
+    }
+
+    // Streams of the song which are already playing keep the data they hold
+    private void forgetSong(Song song) {
+        mappedSongs.remove(song.path());
+        blockCache.invalidate(song.path());
+    }
+
+    private void closeSession(StreamSession session) {
+        if (session != null) {
+            try {
+                session.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Stream session closing error", e);
+            }
+        }
     }
 
     private SelectionKey getMusicKey(SelectionKey userKey) {
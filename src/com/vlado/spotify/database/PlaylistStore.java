@@ -0,0 +1,269 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.exceptions.PlayLIstCreationException;
+import com.vlado.spotify.exceptions.SongNotFoundException;
+import com.vlado.spotify.exceptions.UserErrorException;
+import com.vlado.spotify.parsers.ParsingUtil;
+import com.vlado.spotify.song.Song;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+// Playlists in one file per playlist, with a line per song, and their names in an index file.
+// Only the names are read at startup. A playlist is read on its first use and kept in a bounded cache,
+// the least recently used playlists are dropped from memory when the cache is full.
+// Readers get the current songs of a playlist without locking, writers of the same playlist are serialized.
+class PlaylistStore {
+    static final String INDEX_FILE = "names.idx";
+
+    private static final String PLAYLIST_NOT_FOUND = "The playlist: %s, was not found.";
+    private static final String SONG_LINE_FORMAT = "\"%s\" \"%s\"%n";
+
+    private final Path folder;
+    private final String fileFormat;
+    private final PlaylistWriter writer;
+    // Finds a song by name and artist
+    private final BiFunction<String, String, Song> songs;
+
+    // Every playlist, read or not
+    private final Set<String> names;
+    // Read playlists, a playlist is read and dropped while its entry is locked
+    private final Map<String, Playlist> loaded;
+    // Names of the read playlists from the least to the most recently used, guarded by itself
+    private final Map<String, Boolean> recency;
+    private volatile int capacity;
+
+    PlaylistStore(Path folder, String fileFormat, PlaylistWriter writer, BiFunction<String, String, Song> songs,
+                  int capacity) {
+        this.folder = ParameterValidator.checkNull(folder, "folder");
+        this.fileFormat = ParameterValidator.checkNull(fileFormat, "fileFormat");
+        this.writer = ParameterValidator.checkNull(writer, "writer");
+        this.songs = ParameterValidator.checkNull(songs, "songs");
+        this.capacity = ParameterValidator.checkPositive(capacity, "capacity");
+
+        this.names = ConcurrentHashMap.newKeySet();
+        this.loaded = new ConcurrentHashMap<>();
+        this.recency = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Reads the names of the playlists, the index is rebuilt from the playlist files when it is missing
+    void loadNames() throws IOException {
+        Path index = folder.resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            try (Stream<String> lines = Files.lines(index, StandardCharsets.UTF_8)) {
+                lines.filter(line -> !line.isBlank()).forEach(names::add);
+            }
+            return;
+        }
+
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.list(folder)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(fileName -> fileName.endsWith(fileFormat))
+                    .map(fileName -> fileName.substring(0, fileName.length() - fileFormat.length()))
+                    .forEach(names::add);
+        }
+
+        Path temp = Files.createTempFile(folder, INDEX_FILE, ".tmp");
+        try {
+            Files.write(temp, names, StandardCharsets.UTF_8);
+            Files.move(temp, index, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    boolean exists(String name) {
+        ParameterValidator.checkNull(name, "name");
+
+        return names.contains(name);
+    }
+
+    void create(String name) {
+        ParameterValidator.checkNull(name, "name");
+        ParameterValidator.checkEmpty(name, "name");
+        ParameterValidator.checkBlank(name, "name");
+
+        if (!names.add(name)) {
+            throw new UserErrorException(String.format("The playlist: %s, already exists.", name));
+        }
+
+        // Indexed before the file is created, a missing file is read as an empty playlist.
+        // Both are written right away, so a new playlist is not lost when the server stops before the next flush.
+        try {
+            Files.createDirectories(folder);
+            Files.writeString(folder.resolve(INDEX_FILE), name + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+            Path path = folder.resolve(name + fileFormat);
+            if (!Files.exists(path)) {
+                Files.createFile(path);
+            }
+        } catch (IOException e) {
+            names.remove(name);
+            throw new PlayLIstCreationException(String.format(
+                    "Error while creating the playlist: %s. Please try again.", name), e);
+        }
+
+        loaded.put(name, new Playlist(List.of()));
+        touch(name);
+        evict();
+    }
+
+    void add(String name, Song song) {
+        ParameterValidator.checkNull(name, "name");
+        ParameterValidator.checkNull(song, "song");
+
+        while (true) {
+            Playlist playlist = find(name);
+            synchronized (playlist) {
+                // Dropped meanwhile, it is read again together with the songs added before
+                if (playlist.dropped) {
+                    continue;
+                }
+
+                if (playlist.members.contains(song)) {
+                    throw new UserErrorException(String.format("Song %s by %s is already in the playlist.",
+                            song.name(), song.artist()));
+                }
+
+                // Queued under the playlist lock, so the file has the songs in the same order
+                writer.append(name, String.format(SONG_LINE_FORMAT, song.name(), song.artist()));
+
+                List<Song> songs = new ArrayList<>(playlist.songs.size() + 1);
+                songs.addAll(playlist.songs);
+                songs.add(song);
+                playlist.members.add(song);
+                playlist.songs = Collections.unmodifiableList(songs);
+                return;
+            }
+        }
+    }
+
+    List<Song> get(String name) {
+        ParameterValidator.checkNull(name, "name");
+
+        return find(name).songs;
+    }
+
+    void setCapacity(int capacity) {
+        this.capacity = ParameterValidator.checkPositive(capacity, "capacity");
+
+        evict();
+    }
+
+    int getLoadedPlaylists() {
+        return loaded.size();
+    }
+
+    private Playlist find(String name) {
+        if (!names.contains(name)) {
+            throw new UserErrorException(String.format(PLAYLIST_NOT_FOUND, name));
+        }
+
+        Playlist playlist = loaded.get(name);
+        if (playlist != null) {
+            touch(name);
+            return playlist;
+        }
+
+        playlist = loaded.computeIfAbsent(name, this::read);
+        touch(name);
+        evict();
+
+        return playlist;
+    }
+
+    // Called while the playlist entry is locked, so it is not dropped or read twice at the same time
+    private Playlist read(String name) {
+        try {
+            // Songs added before the playlist was dropped may not be written yet
+            writer.flush(name);
+
+            Path path = folder.resolve(name + fileFormat);
+            if (!Files.exists(path)) {
+                return new Playlist(List.of());
+            }
+
+            try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                return new Playlist(lines.filter(line -> !line.isBlank())
+                        .map(this::findSong)
+                        .filter(Objects::nonNull)
+                        .toList());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Playlist reading error", e);
+        }
+    }
+
+    // Songs removed from the catalog are skipped
+    private Song findSong(String line) {
+        String[] songData = ParsingUtil.multipleWordArgsSplit(line);
+
+        try {
+            return songs.apply(songData[SongDatabase.SONG_NAME_INDEX], songData[SongDatabase.ARTIST_NAME_INDEX]);
+        } catch (SongNotFoundException e) {
+            return null;
+        }
+    }
+
+    private void touch(String name) {
+        synchronized (recency) {
+            recency.put(name, Boolean.TRUE);
+        }
+    }
+
+    private void evict() {
+        List<String> victims = new ArrayList<>();
+        synchronized (recency) {
+            Iterator<String> it = recency.keySet().iterator();
+            while (recency.size() > capacity && it.hasNext()) {
+                victims.add(it.next());
+                it.remove();
+            }
+        }
+
+        for (String victim : victims) {
+            loaded.computeIfPresent(victim, (name, playlist) -> {
+                synchronized (playlist) {
+                    playlist.dropped = true;
+                }
+                return null;
+            });
+        }
+    }
+
+    private static class Playlist {
+        // Replaced on every change, so readers need neither a lock nor a copy
+        private volatile List<Song> songs;
+        // Guarded by the playlist
+        private final Set<Song> members;
+        private boolean dropped;
+
+        Playlist(List<Song> songs) {
+            this.members = new LinkedHashSet<>(songs);
+            this.songs = List.copyOf(members);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Appends lines to playlist files from a background thread, so requests never open a file.
+// Lines appended within the flush delay are coalesced, each playlist file is opened once per flush.
+class PlaylistWriter implements Closeable {
+    private static final String WRITER_NAME = "Playlist Writer";
+    // Least time between a failed write and the next background flush, so a broken disk is not retried in a loop
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private final Path folder;
+    private final String fileFormat;
+    private final Consumer<Throwable> errorHandler;
+    private volatile long flushDelayMillis;
+
+    // Taken before this, so flushes of the same playlist are written in order
+    private final Object writeLock = new Object();
+
+    // Guarded by this
+    private Map<String, StringBuilder> pending;
+    private boolean closed;
+    private long retryAtMillis;
+
+    private final Thread writer;
+
+    PlaylistWriter(Path folder, String fileFormat, long flushDelayMillis, Consumer<Throwable> errorHandler) {
+        this.folder = ParameterValidator.checkNull(folder, "folder");
+        this.fileFormat = ParameterValidator.checkNull(fileFormat, "fileFormat");
+        this.flushDelayMillis = ParameterValidator.checkNonNegative(flushDelayMillis, "flushDelayMillis");
+        this.errorHandler = ParameterValidator.checkNull(errorHandler, "errorHandler");
+        this.pending = new LinkedHashMap<>();
+
+        this.writer = new Thread(this::writePeriodically, WRITER_NAME);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    synchronized void append(String playlist, String line) {
+        ParameterValidator.checkNull(playlist, "playlist");
+        ParameterValidator.checkNull(line, "line");
+
+        if (closed) {
+            throw new IllegalStateException("Playlist writer is closed");
+        }
+
+        boolean wasEmpty = pending.isEmpty();
+        pending.computeIfAbsent(playlist, name -> new StringBuilder()).append(line);
+        if (wasEmpty) {
+            notifyAll();
+        }
+    }
+
+    void setFlushDelayMillis(long flushDelayMillis) {
+        this.flushDelayMillis = ParameterValidator.checkNonNegative(flushDelayMillis, "flushDelayMillis");
+    }
+
+    synchronized int getPendingPlaylists() {
+        return pending.size();
+    }
+
+    // Writes everything appended so far before returning
+    void flush() {
+        synchronized (writeLock) {
+            Map<String, StringBuilder> taken = takePending();
+
+            for (var playlist : taken.entrySet()) {
+                write(playlist.getKey(), playlist.getValue());
+            }
+        }
+    }
+
+    // Writes the lines appended so far to one playlist, waiting for a flush of them already in progress
+    void flush(String playlist) {
+        ParameterValidator.checkNull(playlist, "playlist");
+
+        synchronized (writeLock) {
+            StringBuilder lines;
+            synchronized (this) {
+                lines = pending.remove(playlist);
+            }
+
+            if (lines != null) {
+                write(playlist, lines);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+    }
+
+    private void writePeriodically() {
+        while (waitForLines()) {
+            try {
+                flush();
+            } catch (Throwable e) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+
+    // Waits for the first pending line and then for the flush delay, so the lines after it are coalesced
+    private synchronized boolean waitForLines() {
+        try {
+            while (!closed && pending.isEmpty()) {
+                wait();
+            }
+
+            long deadline = Math.max(System.currentTimeMillis() + flushDelayMillis, retryAtMillis);
+            long remaining;
+            while (!closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return !closed;
+    }
+
+    private void write(String playlist, StringBuilder lines) {
+        try {
+            Files.writeString(folder.resolve(playlist + fileFormat), lines,
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // Kept for the next flush, ahead of the lines appended meanwhile
+            requeue(playlist, lines);
+            errorHandler.accept(e);
+        }
+    }
+
+    private synchronized Map<String, StringBuilder> takePending() {
+        Map<String, StringBuilder> taken = pending;
+        pending = new LinkedHashMap<>();
+        return taken;
+    }
+
+    private synchronized void requeue(String playlist, StringBuilder lines) {
+        pending.merge(playlist, lines, (newer, failed) -> failed.append(newer));
+        retryAtMillis = System.currentTimeMillis() + RETRY_INTERVAL_MILLIS;
+    }
+}
@@ -5,45 +5,46 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
-import com.vlado.spotify.exceptions.PlayLIstCreationException;
-import com.vlado.spotify.exceptions.SongNotAddedToPlaylistException;
 import com.vlado.spotify.exceptions.SongNotFoundException;
-import com.vlado.spotify.exceptions.UserErrorException;
-import com.vlado.spotify.parsers.ParsingUtil;
+import com.vlado.spotify.metrics.Histogram;
+import com.vlado.spotify.metrics.MetricsRegistry;
 import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.SongFormat;
+import com.vlado.spotify.song.WavHeader;
 import com.vlado.spotify.validations.ParameterValidator;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.SortedSet;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 public class SongDatabase {
     private static final Path SONGS_FILE = Path.of("resources", "songs", "songs.txt");
+    private static final Path SNAPSHOT_FILE = Path.of("resources", "songs", "songs.bin");
+    private static final Path JOURNAL_FOLDER = Path.of("resources", "songs", "journal");
     private static final Path PLAYLIST_FOLDER = Path.of("resources", "songs", "playlists");
     private static final String PLAYLIST_FORMAT = ".txt";
+    private static final long DEFAULT_PLAYLIST_FLUSH_DELAY_MILLIS = 100;
+    private static final int DEFAULT_PLAYLIST_CACHE_SIZE = 10_000;
 
     private static final String SONG_NOT_FOUND = "Song: %s, not found.";
-    private static final String PLAYLIST_NOT_FOUND = "The playlist: %s, was not found.";
     private static final String NAME_PARAM = "name";
     private static final String ARTIST_PARAM = "artist";
     private static final String SONG_PARAM = "song";
@@ -58,25 +59,39 @@ public class SongDatabase {
     // Map name of a song to a map of songs with the same name by different artists
     private final Map<String, Map<String, Song>> songs;
     // Orders songs by streams
-    private final SortedSet<Song> topSongs;
-    // PlayLists
-    private final Map<String, Set<Song>> playlists;
+    private final TopSongs topSongs;
+    // Writes playlist changes in the background
+    private final PlaylistWriter playlistWriter;
+    private final PlaylistStore playlists;
+    // Told about failures of background writes
+    private volatile Consumer<Throwable> errorHandler = Throwable::printStackTrace;
+    // Told about every removed song, so caches of its file can be dropped
+    private final List<Consumer<Song>> removalListeners;
+    // Answers searches by name and artist keywords
+    private final SongIndex songIndex;
+    // Records changes between snapshots while the server runs, null when they are only saved with snapshots
+    private volatile SongJournal journal;
+    private final Histogram searchLatency;
 
     private SongDatabase() {
         this.songs = new ConcurrentHashMap<>();
-        this.topSongs = new ConcurrentSkipListSet<>((a, b) -> {
-            int streamDiff;
-            int nameDiff;
-
-            return (streamDiff = b.streams() - a.streams()) != 0 ? streamDiff :
-                    (nameDiff = b.name().compareTo(a.name())) != 0 ? nameDiff :
-                            b.artist().compareTo(a.artist());
-        });
-
-        this.playlists = new HashMap<>();
+        this.topSongs = new TopSongs(this::allSongs);
+
+        this.playlistWriter = new PlaylistWriter(PLAYLIST_FOLDER, PLAYLIST_FORMAT, DEFAULT_PLAYLIST_FLUSH_DELAY_MILLIS,
+                e -> errorHandler.accept(e));
+        this.playlists = new PlaylistStore(PLAYLIST_FOLDER, PLAYLIST_FORMAT, playlistWriter, this::getSong,
+                DEFAULT_PLAYLIST_CACHE_SIZE);
+        this.songIndex = new SongIndex();
+        this.removalListeners = new CopyOnWriteArrayList<>();
         this.gson = new GsonBuilder()
                 .registerTypeHierarchyAdapter(Path.class, new PathConverter())
+                .registerTypeAdapter(Song.class, new SongConverter())
                 .create();
+
+        MetricsRegistry metrics = MetricsRegistry.instance();
+        this.searchLatency = metrics.histogram("songs.search.latency");
+        metrics.gauge("playlists.loaded", playlists::getLoadedPlaylists);
+        metrics.gauge("playlists.pending", playlistWriter::getPendingPlaylists);
     }
 
     public static SongDatabase instance() {
@@ -114,20 +129,25 @@ public class SongDatabase {
     public void addSong(Song song) {
         ParameterValidator.checkNull(song, NAME_PARAM);
 
-        Map<String, Song> newVal = new ConcurrentHashMap<>();
-        newVal.put(song.artist().toLowerCase(), song);
-
-        AtomicReference<Song> old = new AtomicReference<>();
-        songs.merge(song.name().toLowerCase(), newVal, (oldValue, newValue) -> {
-            old.set(oldValue.put(song.artist().toLowerCase(), song));
-            return oldValue;
-        });
-
-        if (old.get() != null) {
-            topSongs.remove(old.get());
+        Runnable add = () -> {
+            Map<String, Song> newVal = new ConcurrentHashMap<>();
+            newVal.put(song.artist().toLowerCase(), song);
+
+            songs.merge(song.name().toLowerCase(), newVal, (oldValue, newValue) -> {
+                oldValue.put(song.artist().toLowerCase(), song);
+                return oldValue;
+            });
+        };
+
+        SongJournal journal = this.journal;
+        if (journal == null) {
+            add.run();
+        } else {
+            journal.recordAdd(song, add);
         }
 
-        topSongs.add(song);
+        topSongs.invalidate();
+        songIndex.add(song);
     }
 
     public void removeSong(String name, String artist) {
@@ -140,8 +160,16 @@ public class SongDatabase {
             Song remove = sameNameSongs.get(artist.toLowerCase());
 
             if (remove != null) {
-                topSongs.remove(remove);
-                sameNameSongs.remove(artist.toLowerCase());
+                SongJournal journal = this.journal;
+                if (journal == null) {
+                    sameNameSongs.remove(artist.toLowerCase());
+                } else {
+                    journal.recordRemove(remove, () -> sameNameSongs.remove(artist.toLowerCase()));
+                }
+
+                topSongs.invalidate();
+                songIndex.remove(remove);
+                removalListeners.forEach(listener -> listener.accept(remove));
                 return;
             }
         }
@@ -149,6 +177,18 @@ public class SongDatabase {
         throw new SongNotFoundException(String.format(SONG_NOT_FOUND, name));
     }
 
+    public void addRemovalListener(Consumer<Song> listener) {
+        ParameterValidator.checkNull(listener, "listener");
+
+        removalListeners.add(listener);
+    }
+
+    public void removeRemovalListener(Consumer<Song> listener) {
+        ParameterValidator.checkNull(listener, "listener");
+
+        removalListeners.remove(listener);
+    }
+
     public void updateSong(String name, String artist) {
         ParameterValidator.checkNull(name, NAME_PARAM);
         ParameterValidator.checkNull(artist, ARTIST_PARAM);
@@ -159,9 +199,14 @@ public class SongDatabase {
             Song song = sameNameSongs.get(artist.toLowerCase());
 
             if (song != null) {
-                topSongs.remove(song);
-                song.incrementStreams();
-                topSongs.add(song);
+                SongJournal journal = this.journal;
+                if (journal == null) {
+                    song.incrementStreams();
+                } else {
+                    journal.recordStream(song);
+                }
+
+                topSongs.recordPlay();
                 return;
             }
         }
@@ -172,167 +217,212 @@ public class SongDatabase {
     public List<Song> getTopNStreamedSongs(int n) {
         ParameterValidator.checkPositive(n, "Top N songs");
 
-        return topSongs.stream()
-                .limit(n)
-                .toList();
+        return topSongs.top(n);
+    }
+
+    // Top songs are rebuilt in the background, this ranks the changes made so far on the calling thread
+    void refreshTopSongs() {
+        topSongs.refresh();
     }
 
     public List<Song> search(String... keyWords) {
         ParameterValidator.checkNull(keyWords, "keyWords");
 
-        Stream<Song> stream = songs.values().stream()
-                .flatMap(map -> map.values().stream());
-
-        for (String keyWord : keyWords) {
-            ParameterValidator.checkNull(keyWord, "one keyWord");
-            stream = stream
-                    .filter(song -> song.name().toLowerCase().contains(keyWord.toLowerCase()) ||
-                            song.artist().toLowerCase().contains(keyWord.toLowerCase()));
+        long start = System.nanoTime();
+        try {
+            return songIndex.search(keyWords);
+        } finally {
+            searchLatency.recordSince(start);
         }
-
-        return stream.toList();
     }
 
     public void createPlaylist(String playlistName) {
         ParameterValidator.checkNull(playlistName, PLAYLIST_NAME_PARAM);
 
-        if (playlists.containsKey(playlistName)) {
-            throw new UserErrorException(String.format("The playlist: %s, already exists.", playlistName));
-        }
-
-        createPlayListFile(playlistName);
-
-        playlists.put(playlistName, new LinkedHashSet<>());
+        playlists.create(playlistName);
     }
 
+    // The song is written to the playlist file within the playlist flush delay
     public void addSongToPlaylist(String playlistName, Song song) {
         ParameterValidator.checkNull(playlistName, PLAYLIST_NAME_PARAM);
         ParameterValidator.checkNull(song, SONG_PARAM);
 
-        if (!playlists.containsKey(playlistName)) {
-            throw new UserErrorException(String.format(PLAYLIST_NOT_FOUND, playlistName));
-        }
+        playlists.add(playlistName, song);
+    }
 
-        Set<Song> playlist = playlists.get(playlistName);
+    public List<Song> getPlaylist(String playlistName) {
+        ParameterValidator.checkNull(playlistName, PLAYLIST_NAME_PARAM);
 
-        if (playlist.contains(song)) {
-            throw new UserErrorException(String.format("Song %s by %s is already in the playlist.",
-                    song.name(), song.artist()));
-        }
+        return playlists.get(playlistName);
+    }
 
-        try (var bufferedWriter = Files.newBufferedWriter(
-                PLAYLIST_FOLDER.resolve(playlistName + PLAYLIST_FORMAT), StandardOpenOption.APPEND)) {
-            bufferedWriter.write(String.format("\"%s\" \"%s\"%n", song.name(), song.artist()));
-        } catch (IOException e) {
-            throw new SongNotAddedToPlaylistException(String.format(
-                    "Error while adding song to: %s. Please try again.", playlistName), e);
-        }
+    // How many playlists are kept in memory after they are read
+    public void setPlaylistCacheSize(int playlistCacheSize) {
+        playlists.setCapacity(playlistCacheSize);
+    }
 
-        playlists.get(playlistName).add(song);
+    public void setPlaylistFlushDelayMillis(long playlistFlushDelayMillis) {
+        playlistWriter.setFlushDelayMillis(playlistFlushDelayMillis);
     }
 
-    public List<Song> getPlaylist(String playlistName) {
-        ParameterValidator.checkNull(playlistName, PLAYLIST_NAME_PARAM);
+    // Writes the songs added to playlists and not written yet
+    public void flushPlaylists() {
+        playlistWriter.flush();
+    }
 
-        if (!playlists.containsKey(playlistName)) {
-            throw new UserErrorException(String.format(PLAYLIST_NOT_FOUND, playlistName));
-        }
+    public void setErrorHandler(Consumer<Throwable> errorHandler) {
+        this.errorHandler = ParameterValidator.checkNull(errorHandler, "errorHandler");
+    }
+
+    // The JSON catalog is only read until the first snapshot is saved.
+    // Changes journaled after the last snapshot are replayed over it.
+    public CatalogLoadReport loadSongs() {
+        return loadSongs(Files.exists(SNAPSHOT_FILE) ? SNAPSHOT_FILE : SONGS_FILE, songs -> {
+            try {
+                addSongs(SongJournal.replay(JOURNAL_FOLDER, songs));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 
-        return List.copyOf(playlists.get(playlistName));
+    // Reads both snapshots and JSON catalogs
+    CatalogLoadReport loadSongs(Path file) {
+        return loadSongs(file, this::addSongs);
     }
 
-    public void loadSongs() {
-        try (BufferedReader bufferedReader = Files.newBufferedReader(SONGS_FILE)) {
-            List<Song> list = readSongs(bufferedReader);
+    // Changes are journaled from here on and written every commit interval
+    public void openJournal(long commitIntervalMillis, Consumer<Throwable> errorHandler) {
+        ParameterValidator.checkPositive(commitIntervalMillis, "commitIntervalMillis");
+        ParameterValidator.checkNull(errorHandler, "errorHandler");
 
-            for (Song song : list) {
-                addSong(song);
-            }
+        if (journal != null) {
+            throw new IllegalStateException("Song journal is already open");
+        }
+
+        try {
+            journal = new SongJournal(JOURNAL_FOLDER, commitIntervalMillis, errorHandler);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-    public void loadPlaylists() {
-        if (!Files.exists(PLAYLIST_FOLDER)) {
+    public void closeJournal() {
+        SongJournal closing = journal;
+        if (closing == null) {
             return;
         }
 
+        journal = null;
         try {
-            Files.walk(PLAYLIST_FOLDER)
-                    .filter(path -> path.toString().endsWith(PLAYLIST_FORMAT))
-                    .forEach(path -> {
-                        try {
-                            Set<Song> playlist = Files.lines(path)
-                                    .map(line -> {
-                                        String[] songData = ParsingUtil.multipleWordArgsSplit(line);
-                                        return getSong(songData[SONG_NAME_INDEX], songData[ARTIST_NAME_INDEX]);
-                                    })
-                                    .collect(Collectors.toCollection(LinkedHashSet::new));
-
-                            playlists.put(path.getFileName().toString()
-                                    .replace(PLAYLIST_FORMAT, ""), playlist);
-                        } catch (IOException e) {
-                            throw new UncheckedIOException("Playlist reading error", e);
-                        }
-                    });
+            closing.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    // Only the playlist names are read, each playlist is read when it is first used
+    public void loadPlaylists() {
+        try {
+            playlists.loadNames();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Also compacts the journal, the segments written before the snapshot are deleted after it is saved
     public void saveSongs() {
+        SongJournal journal = this.journal;
+        if (journal == null) {
+            saveSongs(SNAPSHOT_FILE);
+            return;
+        }
+
         try {
-            Path path = Files.createTempFile(SONGS_FILE.getParent(), "songs-copy", ".txt");
-            Files.copy(SONGS_FILE, path, StandardCopyOption.REPLACE_EXISTING);
+            journal.checkpoint(() -> saveSongs(SNAPSHOT_FILE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            try (var bufferedWriter = Files.newBufferedWriter(
-                    SONGS_FILE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                for (Song song : topSongs) {
-                    bufferedWriter.write(gson.toJson(song) + System.lineSeparator());
-                }
-            }
+    void saveSongs(Path file) {
+        ParameterValidator.checkNull(file, "file");
+
+        replaceFile(file, CatalogSnapshot.encode(allSongs().toList()));
+    }
+
+    // One JSON song per line, ordered by streams, for reading and editing the catalog by hand
+    void exportSongs(Path file) {
+        ParameterValidator.checkNull(file, "file");
+
+        StringBuilder json = new StringBuilder();
+        for (Song song : topSongs.ranking()) {
+            json.append(gson.toJson(song)).append(System.lineSeparator());
+        }
 
-            Files.delete(path);
+        replaceFile(file, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private CatalogLoadReport loadSongs(Path file, Consumer<List<Song>> build) {
+        ParameterValidator.checkNull(file, "file");
+
+        try {
+            return new CatalogLoader(gson).load(file, build);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
-    private List<Song> readSongs(BufferedReader bufferedReader) {
-        ParameterValidator.checkNull(bufferedReader, "bufferedReader");
+    // Same as adding each song, with the name map filled in parallel and the ranking and index built once
+    private void addSongs(List<Song> newSongs) {
+        ParameterValidator.checkNull(newSongs, "newSongs");
 
-        return bufferedReader.lines()
-                .map(line -> {
-                    Song song = gson.fromJson(line, Song.class);
-                    if (!Files.exists(song.path()) || !song.path().getFileName().toString().endsWith(".wav")) {
-                        throw new IllegalArgumentException(String.format(
-                                "Song: %s by %s, path error. Check the path %s.",
-                                song.name(), song.artist(), song.path().toString()));
-                    }
+        newSongs.parallelStream().forEach(song -> songs
+                .computeIfAbsent(song.name().toLowerCase(), key -> new ConcurrentHashMap<>())
+                .put(song.artist().toLowerCase(), song));
 
-                    return song;
-                })
-                .toList();
+        topSongs.invalidate();
+        songIndex.addAll(newSongs);
     }
 
-    private void createPlayListFile(String playlistName) {
-        ParameterValidator.checkNull(playlistName, "playlistName");
-        ParameterValidator.checkEmpty(playlistName, "playlistName");
-        ParameterValidator.checkBlank(playlistName, "playlistName");
+    private Stream<Song> allSongs() {
+        return songs.values().stream()
+                .flatMap(map -> map.values().stream());
+    }
 
+    // Replaces the file at once, so a crash while saving leaves either the old or the new file
+    private static void replaceFile(Path file, byte[] bytes) {
+        Path temp = null;
         try {
-            if (!Files.exists(PLAYLIST_FOLDER)) {
-                Files.createDirectories(PLAYLIST_FOLDER);
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
             }
 
-            Path playlistPath = PLAYLIST_FOLDER.resolve(playlistName + PLAYLIST_FORMAT);
-            if (!Files.exists(playlistPath)) {
-                Files.createFile(playlistPath);
-            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
-            throw new PlayLIstCreationException(String.format(
-                    "Error while creating the playlist: %s. Please try again.", playlistName), e);
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteTemp(temp);
+        }
+    }
+
+    private static void deleteTemp(Path temp) {
+        if (temp == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -348,4 +438,54 @@ public class SongDatabase {
             return new JsonPrimitive(path.toString());
         }
     }
+
+    static class SongConverter implements JsonDeserializer<Song>, JsonSerializer<Song> {
+        private static final String NAME = "name";
+        private static final String ARTIST = "artist";
+        private static final String STREAMS = "streams";
+        private static final String PATH = "path";
+        private static final String FORMAT = "format";
+        private static final String DATA_OFFSET = "dataOffset";
+        private static final String DATA_LENGTH = "dataLength";
+        private static final String DURATION_MILLIS = "durationMillis";
+
+        @Override
+        public Song deserialize(JsonElement jsonElement, Type type,
+                                JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
+            JsonObject json = jsonElement.getAsJsonObject();
+
+            // The duration is only saved for readers of the file, it is computed from the header
+            WavHeader header = null;
+            if (json.has(FORMAT)) {
+                header = new WavHeader(jsonDeserializationContext.deserialize(json.get(FORMAT), SongFormat.class),
+                        json.get(DATA_OFFSET).getAsLong(),
+                        json.get(DATA_LENGTH).getAsLong());
+            }
+
+            return new Song(json.get(NAME).getAsString(),
+                    json.get(ARTIST).getAsString(),
+                    json.get(STREAMS).getAsLong(),
+                    jsonDeserializationContext.deserialize(json.get(PATH), Path.class),
+                    header);
+        }
+
+        @Override
+        public JsonElement serialize(Song song, Type type, JsonSerializationContext jsonSerializationContext) {
+            JsonObject json = new JsonObject();
+            json.addProperty(NAME, song.name());
+            json.addProperty(ARTIST, song.artist());
+            json.addProperty(STREAMS, song.streams());
+            json.add(PATH, jsonSerializationContext.serialize(song.path(), Path.class));
+
+            WavHeader header = song.header();
+            if (header != null) {
+                json.add(FORMAT, jsonSerializationContext.serialize(header.getFormat(), SongFormat.class));
+                json.addProperty(DATA_OFFSET, header.getDataOffset());
+                json.addProperty(DATA_LENGTH, header.getDataLength());
+                json.addProperty(DURATION_MILLIS, header.getDuration().toMillis());
+            }
+
+            return json;
+        }
+    }
 }
@@ -0,0 +1,272 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.song.Song;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index of the lower case n-grams of song names and artists.
+// A keyword matches a song when the song's name or artist contains it, ignoring case.
+class SongIndex {
+    static final int MAX_GRAM_LENGTH = 3;
+
+    private static final int INITIAL_POSTINGS_CAPACITY = 4;
+
+    private final ReadWriteLock lock;
+    // Song ids are never reused, so appending a new id keeps every posting list sorted
+    private final List<Entry> entries;
+    private final Map<Song, Integer> ids;
+    private final Map<String, Postings> postings;
+
+    SongIndex() {
+        this.lock = new ReentrantReadWriteLock();
+        this.entries = new ArrayList<>();
+        this.ids = new HashMap<>();
+        this.postings = new HashMap<>();
+    }
+
+    void add(Song song) {
+        ParameterValidator.checkNull(song, "song");
+
+        lock.writeLock().lock();
+        try {
+            Integer id = ids.get(song);
+            if (id != null) {
+                // Same name and artist ignoring case, so the grams are the same
+                entries.set(id, new Entry(song));
+                return;
+            }
+
+            int newId = entries.size();
+            Entry entry = new Entry(song);
+            entries.add(entry);
+            ids.put(song, newId);
+
+            for (String gram : grams(entry)) {
+                postings.computeIfAbsent(gram, key -> new Postings()).add(newId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Same as adding each song, but the grams are computed in parallel and the lock is taken once
+    void addAll(List<Song> songs) {
+        ParameterValidator.checkNull(songs, "songs");
+
+        List<Entry> newEntries = songs.parallelStream()
+                .map(song -> new Entry(ParameterValidator.checkNull(song, "song")))
+                .toList();
+        List<Set<String>> newGrams = newEntries.parallelStream()
+                .map(SongIndex::grams)
+                .toList();
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < newEntries.size(); i++) {
+                Entry entry = newEntries.get(i);
+
+                Integer id = ids.get(entry.song);
+                if (id != null) {
+                    entries.set(id, entry);
+                    continue;
+                }
+
+                int newId = entries.size();
+                entries.add(entry);
+                ids.put(entry.song, newId);
+
+                for (String gram : newGrams.get(i)) {
+                    postings.computeIfAbsent(gram, key -> new Postings()).add(newId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Song song) {
+        ParameterValidator.checkNull(song, "song");
+
+        lock.writeLock().lock();
+        try {
+            Integer id = ids.remove(song);
+            if (id == null) {
+                return;
+            }
+
+            Entry entry = entries.set(id, null);
+            for (String gram : grams(entry)) {
+                Postings gramPostings = postings.get(gram);
+                gramPostings.remove(id);
+
+                if (gramPostings.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<Song> search(String... keyWords) {
+        ParameterValidator.checkNull(keyWords, "keyWords");
+
+        String[] lowerKeyWords = new String[keyWords.length];
+        for (int i = 0; i < keyWords.length; i++) {
+            lowerKeyWords[i] = ParameterValidator.checkNull(keyWords[i], "one keyWord").toLowerCase();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            boolean needsVerification = false;
+
+            for (String keyWord : lowerKeyWords) {
+                if (keyWord.isEmpty()) {
+                    continue;
+                }
+
+                if (keyWord.length() <= MAX_GRAM_LENGTH) {
+                    // The keyword is a gram itself, so its postings are exactly the matching songs
+                    Postings gramPostings = postings.get(keyWord);
+                    if (gramPostings == null) {
+                        return List.of();
+                    }
+                    lists.add(gramPostings);
+                    continue;
+                }
+
+                // Every gram of the keyword must be in a matching song, but not necessarily in the same field
+                needsVerification = true;
+                for (int i = 0; i + MAX_GRAM_LENGTH <= keyWord.length(); i++) {
+                    Postings gramPostings = postings.get(keyWord.substring(i, i + MAX_GRAM_LENGTH));
+                    if (gramPostings == null) {
+                        return List.of();
+                    }
+                    lists.add(gramPostings);
+                }
+            }
+
+            List<Song> result = new ArrayList<>();
+            if (lists.isEmpty()) {
+                for (Entry entry : entries) {
+                    if (entry != null) {
+                        result.add(entry.song);
+                    }
+                }
+                return result;
+            }
+
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            Postings smallest = lists.get(0);
+
+            for (int i = 0; i < smallest.size; i++) {
+                int id = smallest.ids[i];
+
+                if (containedInAll(id, lists)) {
+                    Entry entry = entries.get(id);
+
+                    if (!needsVerification || entry.matchesAll(lowerKeyWords)) {
+                        result.add(entry.song);
+                    }
+                }
+            }
+
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean containedInAll(int id, List<Postings> lists) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Set<String> grams(Entry entry) {
+        Set<String> grams = new HashSet<>();
+        addGrams(entry.name, grams);
+        addGrams(entry.artist, grams);
+
+        return grams;
+    }
+
+    private static void addGrams(String text, Set<String> grams) {
+        for (int length = 1; length <= MAX_GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(text.substring(i, i + length));
+            }
+        }
+    }
+
+    private static class Entry {
+        private final Song song;
+        private final String name;
+        private final String artist;
+
+        Entry(Song song) {
+            this.song = song;
+            this.name = song.name().toLowerCase();
+            this.artist = song.artist().toLowerCase();
+        }
+
+        boolean matchesAll(String[] lowerKeyWords) {
+            for (String keyWord : lowerKeyWords) {
+                if (!name.contains(keyWord) && !artist.contains(keyWord)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    // Sorted ids of the songs which contain a gram
+    private static class Postings {
+        private int[] ids = new int[INITIAL_POSTINGS_CAPACITY];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.SongFormat;
+import com.vlado.spotify.song.WavHeader;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Append-only log of catalog changes, so they survive a crash between two snapshots.
+// Additions and removals are applied and recorded under one lock, so the log has them in the order they were made.
+// Plays take no lock, they only mark their song as played. Every commit then records the stream count of each
+// played song once, after the additions and removals buffered so far.
+// Records are buffered and written with a single fsync every commit interval (group commit).
+//
+// Every record sets a value instead of changing it, a play records the new stream count of the song.
+// Replaying a segment over a snapshot taken after it is therefore harmless, so a segment is only deleted
+// once a newer snapshot is saved.
+//
+// The log is split into segments journal-<number>.log. A record is its payload length (int), a CRC32C of the
+// payload (int) and the payload: the operation (1 byte), the name and artist of the song and then
+// ADD: path, streams (long) and the WAV header, REMOVE: nothing, STREAM: streams (long).
+class SongJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMMITTER_NAME = "Song Journal Committer";
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final byte ADD = 0;
+    private static final byte REMOVE = 1;
+    private static final byte STREAM = 2;
+
+    private final Path directory;
+    private final long commitIntervalMillis;
+    private final Consumer<Throwable> errorHandler;
+
+    // Held for a whole checkpoint, taken before the write lock.
+    // An older snapshot could otherwise replace a newer one after the segments it needs were deleted
+    private final Object checkpointLock = new Object();
+    // Guards the channel and the segment number, taken before the record lock
+    private final Object writeLock = new Object();
+    private FileChannel segment;
+    private long segmentNumber;
+
+    // Songs played since the last commit
+    private final Set<Song> played;
+
+    // Guarded by this
+    private ByteArrayOutputStream pending;
+    private ByteArrayOutputStream spare;
+    private final RecordBuffer payload;
+    private final DataOutputStream payloadOut;
+    private final ByteBuffer recordHeader;
+    private final CRC32C crc;
+    private volatile boolean closed;
+
+    private final Thread committer;
+
+    SongJournal(Path directory, long commitIntervalMillis, Consumer<Throwable> errorHandler) throws IOException {
+        this.directory = ParameterValidator.checkNull(directory, "directory");
+        this.commitIntervalMillis = ParameterValidator.checkPositive(commitIntervalMillis, "commitIntervalMillis");
+        this.errorHandler = ParameterValidator.checkNull(errorHandler, "errorHandler");
+
+        this.pending = new ByteArrayOutputStream();
+        this.spare = new ByteArrayOutputStream();
+        this.payload = new RecordBuffer();
+        this.payloadOut = new DataOutputStream(payload);
+        this.recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        this.crc = new CRC32C();
+        this.played = ConcurrentHashMap.newKeySet();
+
+        Files.createDirectories(directory);
+        // Never appends to an old segment, which may end with a record torn by a crash
+        this.segmentNumber = segments(directory).stream()
+                .mapToLong(SongJournal::segmentNumber)
+                .max()
+                .orElse(0) + 1;
+        this.segment = openSegment(segmentNumber);
+
+        this.committer = new Thread(this::commitPeriodically, COMMITTER_NAME);
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    // Applies every segment of the directory, oldest first, over the given songs
+    static List<Song> replay(Path directory, List<Song> songs) throws IOException {
+        ParameterValidator.checkNull(directory, "directory");
+        ParameterValidator.checkNull(songs, "songs");
+
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            return songs;
+        }
+
+        Map<String, Song> catalog = new LinkedHashMap<>();
+        for (Song song : songs) {
+            catalog.put(key(song.name(), song.artist()), song);
+        }
+
+        for (Path segment : segments) {
+            replaySegment(Files.readAllBytes(segment), catalog);
+        }
+
+        return List.copyOf(catalog.values());
+    }
+
+    synchronized void recordAdd(Song song, Runnable change) {
+        ParameterValidator.checkNull(song, "song");
+        ParameterValidator.checkNull(change, "change");
+        checkOpen();
+
+        change.run();
+        // Plays of a removed song with the same name are not recorded over the added one
+        played.remove(song);
+        writeRecord(ADD, song.name(), song.artist(), out -> {
+            out.writeUTF(song.path().toString());
+            out.writeLong(song.streams());
+            writeHeader(out, song.header());
+        });
+    }
+
+    synchronized void recordRemove(Song song, Runnable change) {
+        ParameterValidator.checkNull(song, "song");
+        ParameterValidator.checkNull(change, "change");
+        checkOpen();
+
+        change.run();
+        played.remove(song);
+        writeRecord(REMOVE, song.name(), song.artist(), out -> {
+        });
+    }
+
+    // Lock free, the stream count is recorded by the next commit
+    void recordStream(Song song) {
+        ParameterValidator.checkNull(song, "song");
+        checkOpen();
+
+        song.incrementStreams();
+        // Checked first, so plays of a song already marked do not write to the set
+        if (!played.contains(song)) {
+            played.add(song);
+        }
+    }
+
+    // Writes and syncs the buffered records, called every commit interval
+    void commit() throws IOException {
+        synchronized (writeLock) {
+            write(takeRecords());
+        }
+    }
+
+    // Starts a new segment, saves the snapshot and then deletes the segments the snapshot covers
+    void checkpoint(Runnable saveSnapshot) throws IOException {
+        ParameterValidator.checkNull(saveSnapshot, "saveSnapshot");
+
+        synchronized (checkpointLock) {
+            long firstKept;
+            synchronized (writeLock) {
+                write(takeRecords());
+
+                segment.close();
+                firstKept = ++segmentNumber;
+                segment = openSegment(segmentNumber);
+            }
+
+            saveSnapshot.run();
+
+            for (Path old : segments(directory)) {
+                if (segmentNumber(old) < firstKept) {
+                    Files.delete(old);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (writeLock) {
+            write(takeRecords());
+            segment.close();
+        }
+    }
+
+    private void commitPeriodically() {
+        while (waitForCommit()) {
+            try {
+                commit();
+            } catch (Throwable e) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+
+    private synchronized boolean waitForCommit() {
+        long deadline = System.currentTimeMillis() + commitIntervalMillis;
+        long remaining;
+        while (!closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return !closed;
+    }
+
+    // Records the stream counts of the played songs and takes every buffered record
+    private synchronized ByteArrayOutputStream takeRecords() {
+        Iterator<Song> it = played.iterator();
+        while (it.hasNext()) {
+            Song song = it.next();
+            // Removed before the count is read, so a play meanwhile marks the song for the next commit
+            it.remove();
+            long streams = song.streams();
+            writeRecord(STREAM, song.name(), song.artist(), out -> out.writeLong(streams));
+        }
+
+        return takePending();
+    }
+
+    // Swaps the buffers, so records keep being appended while the taken ones are written
+    private ByteArrayOutputStream takePending() {
+        ByteArrayOutputStream taken = pending;
+        pending = spare;
+        spare = taken;
+        return taken;
+    }
+
+    private void write(ByteArrayOutputStream records) throws IOException {
+        if (records.size() == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        segment.force(false);
+
+        synchronized (this) {
+            records.reset();
+        }
+    }
+
+    // Checked before a change is made, so no change is made without being recorded
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Song journal is closed");
+        }
+    }
+
+    private void writeRecord(byte operation, String name, String artist, PayloadWriter fields) {
+        try {
+            payload.reset();
+            payloadOut.writeByte(operation);
+            payloadOut.writeUTF(name);
+            payloadOut.writeUTF(artist);
+            fields.write(payloadOut);
+
+            crc.reset();
+            crc.update(payload.buffer(), 0, payload.size());
+
+            recordHeader.clear();
+            recordHeader.putInt(payload.size());
+            recordHeader.putInt((int) crc.getValue());
+            pending.write(recordHeader.array(), 0, RECORD_HEADER_SIZE);
+            payload.writeTo(pending);
+        } catch (IOException e) {
+            // Only written to memory
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private static void writeHeader(DataOutputStream out, WavHeader header) throws IOException {
+        out.writeBoolean(header != null);
+        if (header == null) {
+            return;
+        }
+
+        SongFormat format = header.getFormat();
+        out.writeUTF(format.getEncoding());
+        out.writeFloat(format.getSampleRate());
+        out.writeInt(format.getSampleSizeInBits());
+        out.writeInt(format.getChannels());
+        out.writeInt(format.getFrameSize());
+        out.writeFloat(format.getFrameRate());
+        out.writeBoolean(format.isBigEndian());
+        out.writeLong(header.getDataOffset());
+        out.writeLong(header.getDataLength());
+    }
+
+    private static WavHeader readHeader(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        SongFormat format = new SongFormat(in.readUTF(),
+                in.readFloat(),
+                in.readInt(),
+                in.readInt(),
+                in.readInt(),
+                in.readFloat(),
+                in.readBoolean());
+        return new WavHeader(format, in.readLong(), in.readLong());
+    }
+
+    // Stops at the first torn or corrupted record, which can only be the last one written before a crash
+    private static void replaySegment(byte[] bytes, Map<String, Song> catalog) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return;
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                return;
+            }
+
+            apply(new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length)), catalog);
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private static void apply(DataInputStream in, Map<String, Song> catalog) throws IOException {
+        byte operation = in.readByte();
+        String name = in.readUTF();
+        String artist = in.readUTF();
+        String key = key(name, artist);
+
+        switch (operation) {
+            case ADD -> {
+                Path path = Path.of(in.readUTF());
+                long streams = in.readLong();
+                catalog.put(key, new Song(name, artist, streams, path, readHeader(in)));
+            }
+            case REMOVE -> catalog.remove(key);
+            case STREAM -> {
+                long streams = in.readLong();
+                catalog.computeIfPresent(key, (songKey, song) ->
+                        new Song(song.name(), song.artist(), streams, song.path(), song.header()));
+            }
+            default -> throw new IllegalStateException("Unknown song journal operation: " + operation);
+        }
+    }
+
+    private static String key(String name, String artist) {
+        return name.toLowerCase() + '\n' + artist.toLowerCase();
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .toList());
+            segments.sort((first, second) -> Long.compare(segmentNumber(first), segmentNumber(second)));
+            return segments;
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+                fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Exposes its array, so the checksum is computed without copying the payload
+    private static class RecordBuffer extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,155 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.song.Song;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Serves the most streamed songs from a precomputed snapshot.
+// Plays only bump a counter. Readers never rank the catalog, a reader which finds the snapshot stale
+// starts a rebuild on the refresher and is served the current snapshot meanwhile.
+class TopSongs {
+    private static final String REFRESHER_NAME = "Top Songs Refresher";
+    static final int DEFAULT_SNAPSHOT_SIZE = 100;
+    static final int DEFAULT_REFRESH_PLAYS = 1000;
+    static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 5000;
+
+    // Most streamed first, ties broken by name and artist as the old skip list did
+    private static final Comparator<Ranked> RANKING = Comparator
+            .comparingLong(Ranked::streams).reversed()
+            .thenComparing((Ranked ranked) -> ranked.song().name(), Comparator.reverseOrder())
+            .thenComparing((Ranked ranked) -> ranked.song().artist(), Comparator.reverseOrder());
+
+    private final Supplier<Stream<Song>> songs;
+    private final int snapshotSize;
+    private final int refreshPlays;
+    private final long refreshIntervalMillis;
+    private final Executor refresher;
+    // Set while a rebuild is waiting for or running on the refresher, so readers start only one
+    private final AtomicBoolean refreshing;
+
+    private final LongAdder playsSinceRefresh;
+    private volatile List<Song> snapshot;
+    private volatile boolean valid;
+    private volatile long refreshedAt;
+
+    TopSongs(Supplier<Stream<Song>> songs) {
+        this(songs, DEFAULT_SNAPSHOT_SIZE, DEFAULT_REFRESH_PLAYS, DEFAULT_REFRESH_INTERVAL_MILLIS,
+                Executors.newSingleThreadExecutor(task -> {
+                    Thread thread = new Thread(task, REFRESHER_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    TopSongs(Supplier<Stream<Song>> songs, int snapshotSize, int refreshPlays, long refreshIntervalMillis,
+             Executor refresher) {
+        this.songs = ParameterValidator.checkNull(songs, "songs");
+        this.snapshotSize = ParameterValidator.checkPositive(snapshotSize, "snapshotSize");
+        this.refreshPlays = ParameterValidator.checkPositive(refreshPlays, "refreshPlays");
+        this.refreshIntervalMillis = ParameterValidator.checkNonNegative(refreshIntervalMillis,
+                "refreshIntervalMillis");
+        this.refresher = ParameterValidator.checkNull(refresher, "refresher");
+
+        this.refreshing = new AtomicBoolean();
+        this.playsSinceRefresh = new LongAdder();
+        this.snapshot = List.of();
+    }
+
+    void recordPlay() {
+        playsSinceRefresh.increment();
+    }
+
+    // Called when songs are added or removed, the next read sees the change
+    void invalidate() {
+        valid = false;
+    }
+
+    // At most the snapshot size of songs, so no request ranks the whole catalog
+    List<Song> top(int n) {
+        ParameterValidator.checkPositive(n, "n");
+
+        if (isStale() && refreshing.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+
+        List<Song> current = snapshot;
+        return current.subList(0, Math.min(n, current.size()));
+    }
+
+    // Every song, most streamed first
+    List<Song> ranking() {
+        return songs.get()
+                .map(song -> new Ranked(song, song.streams()))
+                .sorted(RANKING)
+                .map(Ranked::song)
+                .toList();
+    }
+
+    // Rebuilds the snapshot if it is stale, on the calling thread
+    synchronized void refresh() {
+        // Readers which waited for another rebuild do not start one of their own
+        if (!isStale()) {
+            return;
+        }
+
+        // Counted before ranking, so plays during the rebuild trigger the next one
+        valid = true;
+        playsSinceRefresh.reset();
+        refreshedAt = System.currentTimeMillis();
+
+        snapshot = rank(snapshotSize);
+    }
+
+    private boolean isStale() {
+        long plays = playsSinceRefresh.sum();
+        // Without plays the ranking cannot have changed, however old the snapshot is
+        return !valid ||
+                plays >= refreshPlays ||
+                plays > 0 && System.currentTimeMillis() - refreshedAt >= refreshIntervalMillis;
+    }
+
+    private List<Song> rank(int n) {
+        // Min heap of the best n songs, its head is the first one to be evicted
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(n, RANKING.reversed());
+
+        songs.get().forEach(song -> {
+            Ranked ranked = new Ranked(song, song.streams());
+
+            if (heap.size() < n) {
+                heap.add(ranked);
+            } else if (RANKING.compare(ranked, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(ranked);
+            }
+        });
+
+        List<Song> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().song());
+        }
+        Collections.reverse(result);
+
+        return Collections.unmodifiableList(result);
+    }
+
+    // Streams are read once, so the order does not change while ranking
+    private record Ranked(Song song, long streams) {
+    }
+}
@@ -8,8 +8,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class UserDatabase {
     private static final String USERNAME_PARAM_NAME = "username";
@@ -25,7 +25,7 @@ public class UserDatabase {
     private Writer writer;
 
     private UserDatabase() {
-        registeredUsers = new HashMap<>();
+        registeredUsers = new ConcurrentHashMap<>();
     }
 
     public static UserDatabase instance() {
@@ -36,7 +36,7 @@ public class UserDatabase {
         this.writer = ParameterValidator.checkNull(writer, "writer");
     }
 
-    public void addUser(String username, String password) {
+    public synchronized void addUser(String username, String password) {
         ParameterValidator.checkNull(username, USERNAME_PARAM_NAME);
         ParameterValidator.checkEmpty(username, USERNAME_PARAM_NAME);
         ParameterValidator.checkBlank(username, USERNAME_PARAM_NAME);
@@ -4,21 +4,38 @@ import com.vlado.spotify.exceptions.UserErrorException;
 import com.vlado.spotify.logger.Logger;
 import com.vlado.spotify.logger.log.Log;
 import com.vlado.spotify.logger.log.LogLevel;
+import com.vlado.spotify.metrics.Counter;
+import com.vlado.spotify.metrics.Histogram;
+import com.vlado.spotify.metrics.MetricsRegistry;
 import com.vlado.spotify.parsers.RequestParser;
 import com.vlado.spotify.request.Request;
+import com.vlado.spotify.request.RequestType;
 import com.vlado.spotify.server.response.ResponseStatus;
 import com.vlado.spotify.server.response.ServerResponse;
 import com.vlado.spotify.validations.ParameterValidator;
 
 import java.nio.channels.SelectionKey;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 
 public class RequestExecutor {
     private final RequestParser requestParser;
     private Logger logger;
 
+    private final Map<RequestType, Histogram> latencies;
+    private final Counter errors;
+
     public RequestExecutor() {
         this.requestParser = new RequestParser();
+
+        MetricsRegistry metrics = MetricsRegistry.instance();
+        this.latencies = new EnumMap<>(RequestType.class);
+        for (RequestType type : RequestType.values()) {
+            latencies.put(type, metrics.histogram("requests." + type.name().toLowerCase(Locale.ROOT) + ".latency"));
+        }
+        this.errors = metrics.counter("requests.errors");
     }
 
     public RequestExecutor(Logger logger) {
@@ -30,20 +47,23 @@ public class RequestExecutor {
         ParameterValidator.checkNull(request, "request");
         ParameterValidator.checkNull(key, "key");
 
+        long start = System.nanoTime();
         try {
             Request request1 = requestParser.parse(request, key);
             ServerResponse response = request1.execute();
 
-            // Delete later
-            logMessage(response.toString(), key);
+            logResponse(response, key);
 
             return response;
         } catch (UserErrorException e) {
             logError(e, key);
             return ServerResponse.of(ResponseStatus.ERROR, e.getMessage());
         } catch (Throwable e) {
+            errors.increment();
             logError(e, key);
             return ServerResponse.of(ResponseStatus.ERROR, "Server error occurred.");
+        } finally {
+            latencies.get(RequestType.of(request)).recordSince(start);
         }
     }
 
@@ -58,12 +78,13 @@ public class RequestExecutor {
         }
     }
 
-    private void logMessage(String response, SelectionKey key) {
+    // Every response is logged only at INFO, so by default it is not even turned into a string
+    private void logResponse(ServerResponse response, SelectionKey key) {
         ParameterValidator.checkNull(response, "response");
         ParameterValidator.checkNull(key, "key");
 
-        if (logger != null) {
-            logger.log(Log.of(LogLevel.MESSAGE,
+        if (logger != null && logger.isEnabled(LogLevel.INFO)) {
+            logger.log(Log.of(LogLevel.INFO,
                     String.format("User: %s%n Response: %s",
                             key.attachment(), response)));
         }
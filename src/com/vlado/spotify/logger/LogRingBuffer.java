@@ -0,0 +1,80 @@
+package com.vlado.spotify.logger;
+
+import com.vlado.spotify.logger.log.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded queue of logs for many producers and a single consumer.
+// Producers claim a position with a CAS on the tail, every slot has a sequence number which tells
+// whether it is free for the position or holds its log, so producers never lock.
+class LogRingBuffer {
+    private final Log[] logs;
+    // Written after the log of the slot, so a log is visible once its sequence is
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail;
+    // Only used by the consumer
+    private long head;
+
+    LogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.logs = new Log[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return logs.length;
+    }
+
+    // False when the buffer is full
+    boolean offer(Log log) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    logs[index] = log;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Null when no log is published at the head, must only be called by the consumer
+    Log poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+
+        Log log = logs[index];
+        logs[index] = null;
+        sequences.set(index, head + logs.length);
+        head++;
+
+        return log;
+    }
+
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
@@ -2,27 +2,52 @@ package com.vlado.spotify.logger;
 
 import com.vlado.spotify.logger.exception.LoggerException;
 import com.vlado.spotify.logger.log.Log;
+import com.vlado.spotify.logger.log.LogLevel;
 import com.vlado.spotify.logger.options.LoggerOptions;
+import com.vlado.spotify.logger.options.LoggingMode;
+import com.vlado.spotify.logger.options.OverflowPolicy;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 public class Logger {
-    private static final String LOG_FORMAT = "[%s] %s%n%s%n-------------------%n";
+    private static final String LOG_SEPARATOR = "-------------------";
     private static final String LOG_FILE_NAME_FORMAT = "log-%d.txt";
+    private static final String FLUSHER_NAME = "Logger Flusher";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int MAX_BATCH_SIZE = 1024;
+
     private int currentFileNum = 0;
     private final LoggerOptions options;
 
     private BufferedWriter logWriter;
 
     private Path currentFile;
+    // Counted instead of asking the file system for the size on every log
+    private long currentFileSize;
+
+    // Only used in ASYNC mode
+    private final LogRingBuffer queue;
+    private final Thread flusher;
+    private final LongAdder droppedLogs;
+    // Logging threads between the closed check and the end of their offer, waited for by close
+    private final AtomicInteger producers;
+    private volatile boolean flusherParked;
+    private volatile boolean closed;
 
     public Logger(LoggerOptions options) {
         this.options = options;
         this.currentFile = generateLogFilePath();
+        this.droppedLogs = new LongAdder();
+        this.producers = new AtomicInteger();
         try {
             Files.createDirectories(options.getDirectory());
             logWriter = openLogFile();
@@ -31,32 +56,185 @@ public class Logger {
                 throw new LoggerException("Log file opening error", e);
             }
         }
+
+        if (options.getMode() == LoggingMode.ASYNC) {
+            this.queue = new LogRingBuffer(options.getQueueCapacity());
+            this.flusher = new Thread(this::flushQueued, FLUSHER_NAME);
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        } else {
+            this.queue = null;
+            this.flusher = null;
+        }
     }
 
     public LoggerOptions getOptions() {
         return options;
     }
 
+    // Lets callers skip building messages which would not be logged
+    public boolean isEnabled(LogLevel level) {
+        return level.getLevel() >= options.getMinLogLevel().getLevel();
+    }
+
     public void log(Log log) {
-        if (log.level().getLevel() < options.getMinLogLevel().getLevel()) {
+        if (!isEnabled(log.level())) {
             return;
         }
 
+        if (queue != null) {
+            enqueue(log);
+            return;
+        }
+
+        synchronized (this) {
+            try {
+                write(log);
+                logWriter.flush();
+            } catch (IOException e) {
+                if (options.shouldThrowErrors()) {
+                    throw new LoggerException("Logging error occurred", e);
+                }
+            }
+        }
+    }
+
+    // Logs dropped because the queue was full, always 0 in SYNC mode
+    public long getDroppedLogs() {
+        return droppedLogs.sum();
+    }
+
+    // Writes the queued logs and stops the flusher, later logs are dropped
+    public void close() {
+        closed = true;
+
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            // Logs offered after the flusher's last poll, by threads which passed the closed check before it was set
+            while (producers.get() > 0) {
+                Thread.onSpinWait();
+            }
+        }
+
+        synchronized (this) {
+            try {
+                if (queue != null) {
+                    Log log;
+                    while ((log = queue.poll()) != null) {
+                        write(log);
+                    }
+                }
+                if (logWriter != null) {
+                    logWriter.close();
+                }
+            } catch (IOException e) {
+                if (options.shouldThrowErrors()) {
+                    throw new LoggerException("Log file closing error", e);
+                }
+            }
+        }
+    }
+
+    private void enqueue(Log log) {
+        // Counted before closed is read, so close either sees this thread or this thread sees it closed
+        producers.incrementAndGet();
         try {
-            checkFileSize();
+            if (closed) {
+                droppedLogs.increment();
+                return;
+            }
 
-            logWriter.write(String.format(LOG_FORMAT,
-                    log.level().name(), log.time(), log.message()));
-            logWriter.flush();
-        } catch (IOException e) {
-            if (options.shouldThrowErrors()) {
-                throw new LoggerException("Logging error occurred", e);
+            while (!queue.offer(log)) {
+                if (closed || options.getOverflowPolicy() == OverflowPolicy.DROP) {
+                    droppedLogs.increment();
+                    return;
+                }
+
+                LockSupport.unpark(flusher);
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        } finally {
+            producers.decrementAndGet();
+        }
+
+        if (flusherParked) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    // Writes the queued logs in batches, with one flush per batch.
+    // Errors cannot reach the logging threads here, so they are ignored like in SYNC mode without shouldThrowErrors.
+    private void flushQueued() {
+        while (true) {
+            int written = 0;
+            Log log;
+            while (written < MAX_BATCH_SIZE && (log = queue.poll()) != null) {
+                try {
+                    write(log);
+                } catch (IOException e) {
+                    // Dropped, the next logs may go to a new file
+                }
+                written++;
+            }
+
+            if (written > 0) {
+                try {
+                    if (logWriter != null) {
+                        logWriter.flush();
+                    }
+                } catch (IOException e) {
+                    // Retried with the next batch
+                }
+                continue;
+            }
+
+            if (closed) {
+                return;
             }
+
+            // Checked again after announcing the park, so a log queued meanwhile is not left waiting
+            flusherParked = true;
+            if (queue.isEmpty() && !closed) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            flusherParked = false;
+        }
+    }
+
+    private void write(Log log) throws IOException {
+        if (logWriter == null) {
+            throw new IOException("Log file is not open");
         }
+
+        checkFileSize();
+
+        String level = log.level().name();
+        String time = log.time().toString();
+        String message = log.message();
+
+        logWriter.write('[');
+        logWriter.write(level);
+        logWriter.write("] ");
+        logWriter.write(time);
+        logWriter.newLine();
+        logWriter.write(message);
+        logWriter.newLine();
+        logWriter.write(LOG_SEPARATOR);
+        logWriter.newLine();
+
+        currentFileSize += level.length() + time.length() + message.length() + LOG_SEPARATOR.length()
+                + 3 + 3 * System.lineSeparator().length();
     }
 
+    // Sizes are counted in characters, which is the byte size of ASCII logs
     private void checkFileSize() throws IOException {
-        if (Files.size(currentFile) >= options.getMaxFileSize()) {
+        if (currentFileSize >= options.getMaxFileSize()) {
             logWriter.close();
             currentFile = generateLogFilePath();
             logWriter = openLogFile();
@@ -72,6 +250,7 @@ public class Logger {
     }
 
     private BufferedWriter openLogFile() throws IOException {
+        currentFileSize = 0;
         return Files.newBufferedWriter(currentFile,
                 StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
     }
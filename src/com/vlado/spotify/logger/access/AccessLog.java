@@ -0,0 +1,237 @@
+package com.vlado.spotify.logger.access;
+
+import com.vlado.spotify.request.RequestType;
+import com.vlado.spotify.server.response.ResponseStatus;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Binary log with a fixed-size record per request, split into segments access-<number>.bin.
+// A segment starts with a magic (int) and a version (short). A record is the time in epoch millis (long),
+// the latency in nanos (long), the bytes sent (long), the request type and response status ordinals (1 byte each),
+// the length of the user name (1 byte) and USER_SIZE bytes of its UTF-8, cut and padded with zeroes.
+// An empty user name is a request of a client which is not logged in.
+//
+// Records are buffered and written by a background thread, records which do not fit in the buffer are dropped.
+// A new segment is started once the current one reaches the segment size, the oldest ones are deleted.
+public class AccessLog implements Closeable {
+    static final int MAGIC = 0x4143434C;
+    static final short VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = Integer.BYTES + Short.BYTES;
+    static final int USER_SIZE = 32;
+    static final int RECORD_SIZE = 3 * Long.BYTES + 3 * Byte.BYTES + USER_SIZE;
+    static final String SEGMENT_PREFIX = "access-";
+    static final String SEGMENT_SUFFIX = ".bin";
+
+    private static final String WRITER_NAME = "Access Log Writer";
+    private static final long FLUSH_INTERVAL_MILLIS = 100;
+    private static final int BUFFERED_RECORDS = 8192;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int maxSegments;
+    private final Consumer<Throwable> errorHandler;
+
+    // Guards the segment, taken before this
+    private final Object writeLock = new Object();
+    private FileChannel segment;
+    private long segmentNumber;
+    private long segmentBytes;
+
+    // Guarded by this
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private boolean closed;
+
+    private final LongAdder droppedRecords;
+    private final Thread writer;
+
+    public AccessLog(Path directory, long segmentSize, int maxSegments, Consumer<Throwable> errorHandler)
+            throws IOException {
+        this.directory = ParameterValidator.checkNull(directory, "directory");
+        this.segmentSize = ParameterValidator.checkPositive(segmentSize, "segmentSize");
+        this.maxSegments = ParameterValidator.checkPositive(maxSegments, "maxSegments");
+        this.errorHandler = ParameterValidator.checkNull(errorHandler, "errorHandler");
+
+        this.pending = ByteBuffer.allocate(BUFFERED_RECORDS * RECORD_SIZE);
+        this.spare = ByteBuffer.allocate(BUFFERED_RECORDS * RECORD_SIZE);
+        this.droppedRecords = new LongAdder();
+
+        Files.createDirectories(directory);
+        // Never appends to an old segment, which may end with a record torn by a crash
+        this.segmentNumber = segments(directory).stream()
+                .mapToLong(AccessLog::segmentNumber)
+                .max()
+                .orElse(0) + 1;
+        openSegment();
+
+        this.writer = new Thread(this::writePeriodically, WRITER_NAME);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Null user for clients which are not logged in
+    public void record(long timeMillis, String user, RequestType type, ResponseStatus status,
+                       long latencyNanos, long bytesOut) {
+        ParameterValidator.checkNull(type, "type");
+        ParameterValidator.checkNull(status, "status");
+
+        // Encoded before locking, so the lock is held only for the copy
+        byte[] userBytes = user == null ? new byte[0] : user.getBytes(StandardCharsets.UTF_8);
+        int userLength = Math.min(userBytes.length, USER_SIZE);
+
+        synchronized (this) {
+            if (closed || pending.remaining() < RECORD_SIZE) {
+                droppedRecords.increment();
+                return;
+            }
+
+            pending.putLong(timeMillis);
+            pending.putLong(latencyNanos);
+            pending.putLong(bytesOut);
+            pending.put((byte) type.ordinal());
+            pending.put((byte) status.ordinal());
+            pending.put((byte) userLength);
+            pending.put(userBytes, 0, userLength);
+            pending.position(pending.position() + USER_SIZE - userLength);
+        }
+    }
+
+    // Records dropped because the buffer was full or the log was closed
+    public long getDroppedRecords() {
+        return droppedRecords.sum();
+    }
+
+    // Writes the buffered records to the current segment
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+            write(takePending());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (writeLock) {
+            write(takePending());
+            segment.close();
+        }
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .toList());
+            segments.sort((first, second) -> Long.compare(segmentNumber(first), segmentNumber(second)));
+            return segments;
+        }
+    }
+
+    private void writePeriodically() {
+        while (waitForFlush()) {
+            try {
+                flush();
+            } catch (Throwable e) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+
+    private synchronized boolean waitForFlush() {
+        long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MILLIS;
+        long remaining;
+        while (!closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return !closed;
+    }
+
+    // Swaps the buffers, so records keep being added while the taken ones are written
+    private synchronized ByteBuffer takePending() {
+        ByteBuffer taken = pending;
+        pending = spare;
+        spare = taken;
+        return taken;
+    }
+
+    // The taken buffer is only swapped back in by the next flush, which waits for the write lock
+    private void write(ByteBuffer records) throws IOException {
+        records.flip();
+        try {
+            segmentBytes += records.remaining();
+            while (records.hasRemaining()) {
+                segment.write(records);
+            }
+        } finally {
+            records.clear();
+        }
+
+        if (segmentBytes >= segmentSize) {
+            segment.close();
+            segmentNumber++;
+            openSegment();
+            deleteOldSegments();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segment = FileChannel.open(directory.resolve(SEGMENT_PREFIX + segmentNumber + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segmentBytes = SEGMENT_HEADER_SIZE;
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.delete(segments.get(i));
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+                fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
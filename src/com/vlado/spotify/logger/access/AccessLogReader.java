@@ -0,0 +1,79 @@
+package com.vlado.spotify.logger.access;
+
+import com.vlado.spotify.request.RequestType;
+import com.vlado.spotify.server.response.ResponseStatus;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Reads the segments of an access log through memory mapping, oldest first.
+// A torn record at the end of a segment is skipped, it can only be the last one written before a crash.
+public class AccessLogReader {
+    private static final RequestType[] TYPES = RequestType.values();
+    private static final ResponseStatus[] STATUSES = ResponseStatus.values();
+
+    private AccessLogReader() {
+    }
+
+    public static List<Path> segments(Path directory) throws IOException {
+        ParameterValidator.checkNull(directory, "directory");
+
+        return AccessLog.segments(directory);
+    }
+
+    public static void read(Path directory, Consumer<AccessRecord> consumer) throws IOException {
+        ParameterValidator.checkNull(directory, "directory");
+        ParameterValidator.checkNull(consumer, "consumer");
+
+        for (Path segment : AccessLog.segments(directory)) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    public static void readSegment(Path segment, Consumer<AccessRecord> consumer) throws IOException {
+        ParameterValidator.checkNull(segment, "segment");
+        ParameterValidator.checkNull(consumer, "consumer");
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < AccessLog.SEGMENT_HEADER_SIZE || buffer.getInt() != AccessLog.MAGIC) {
+                throw new IllegalArgumentException("Not an access log segment: " + segment);
+            }
+
+            short version = buffer.getShort();
+            if (version != AccessLog.VERSION) {
+                throw new IllegalArgumentException("Unsupported access log segment version: " + version);
+            }
+
+            byte[] user = new byte[AccessLog.USER_SIZE];
+            while (buffer.remaining() >= AccessLog.RECORD_SIZE) {
+                consumer.accept(readRecord(buffer, user));
+            }
+        }
+    }
+
+    private static AccessRecord readRecord(MappedByteBuffer buffer, byte[] user) {
+        long timeMillis = buffer.getLong();
+        long latencyNanos = buffer.getLong();
+        long bytesOut = buffer.getLong();
+        int type = buffer.get();
+        int status = buffer.get();
+        int userLength = buffer.get();
+        buffer.get(user);
+
+        if (type < 0 || type >= TYPES.length || status < 0 || status >= STATUSES.length
+                || userLength < 0 || userLength > AccessLog.USER_SIZE) {
+            throw new IllegalArgumentException("Corrupted access log record");
+        }
+
+        return new AccessRecord(timeMillis, new String(user, 0, userLength, StandardCharsets.UTF_8),
+                TYPES[type], STATUSES[status], latencyNanos, bytesOut);
+    }
+}
@@ -0,0 +1,106 @@
+package com.vlado.spotify.logger.access;
+
+import com.vlado.spotify.request.RequestType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+// Prints the latency percentiles of every request type and the most active users of an access log.
+// Usage: AccessLogTool <directory> [topUsers]
+public class AccessLogTool {
+    private static final String USAGE = "Usage: AccessLogTool <directory> [topUsers]";
+    private static final int DEFAULT_TOP_USERS = 10;
+    private static final String ANONYMOUS = "<anonymous>";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        int topUsers = DEFAULT_TOP_USERS;
+        if (args.length == 2) {
+            try {
+                topUsers = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+        }
+
+        System.out.print(summarize(Path.of(args[0]), topUsers));
+    }
+
+    static String summarize(Path directory, int topUsers) throws IOException {
+        Map<RequestType, Latencies> latencies = new EnumMap<>(RequestType.class);
+        Map<String, UserActivity> users = new HashMap<>();
+        long[] records = new long[1];
+
+        AccessLogReader.read(directory, record -> {
+            records[0]++;
+            latencies.computeIfAbsent(record.type(), type -> new Latencies()).add(record.latencyNanos());
+
+            UserActivity activity = users.computeIfAbsent(record.user(), user -> new UserActivity());
+            activity.requests++;
+            activity.bytesOut += record.bytesOut();
+        });
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("Records: %d in %d segments%n%n", records[0],
+                AccessLogReader.segments(directory).size()));
+
+        summary.append(String.format("%-16s %10s %10s %10s %10s %10s%n",
+                "request", "count", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        latencies.forEach((type, values) -> {
+            long[] sorted = values.sorted();
+            summary.append(String.format("%-16s %10d %10.3f %10.3f %10.3f %10.3f%n",
+                    type.name().toLowerCase(), sorted.length,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    sorted[sorted.length - 1] / NANOS_PER_MILLI));
+        });
+
+        summary.append(String.format("%n%-32s %10s %14s%n", "user", "requests", "bytes out"));
+        users.entrySet().stream()
+                .sorted((first, second) -> Long.compare(second.getValue().requests, first.getValue().requests))
+                .limit(topUsers)
+                .forEach(user -> summary.append(String.format("%-32s %10d %14d%n",
+                        user.getKey().isEmpty() ? ANONYMOUS : user.getKey(),
+                        user.getValue().requests, user.getValue().bytesOut)));
+
+        return summary.toString();
+    }
+
+    // Nearest rank, in milliseconds
+    private static double percentile(long[] sorted, double fraction) {
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(rank - 1, 0)] / NANOS_PER_MILLI;
+    }
+
+    private static class Latencies {
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    private static class UserActivity {
+        private long requests;
+        private long bytesOut;
+    }
+}
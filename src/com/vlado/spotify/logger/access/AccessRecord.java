@@ -0,0 +1,13 @@
+package com.vlado.spotify.logger.access;
+
+import com.vlado.spotify.request.RequestType;
+import com.vlado.spotify.server.response.ResponseStatus;
+
+// An empty user is a client which was not logged in
+public record AccessRecord(long timeMillis,
+                           String user,
+                           RequestType type,
+                           ResponseStatus status,
+                           long latencyNanos,
+                           long bytesOut) {
+}
@@ -10,6 +10,9 @@ public class LoggerOptions {
     private boolean shouldThrowErrors;
     private int maxLogsCount;
     private LogLevel minLogLevel;
+    private final LoggingMode mode;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
 
     private LoggerOptions(LoggerOptionsBuilder builder) {
         this.directory = builder.directory;
@@ -17,6 +20,9 @@ public class LoggerOptions {
         this.shouldThrowErrors = builder.shouldThrowErrors;
         this.minLogLevel = builder.minLogLevel;
         this.maxLogsCount = builder.maxLogsCount;
+        this.mode = builder.mode;
+        this.queueCapacity = builder.queueCapacity;
+        this.overflowPolicy = builder.overflowPolicy;
     }
 
     public static LoggerOptionsBuilder builder(Path directory) {
@@ -43,6 +49,18 @@ public class LoggerOptions {
         return maxLogsCount;
     }
 
+    public LoggingMode getMode() {
+        return mode;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
     public void setShouldThrowErrors(boolean shouldThrowErrors) {
         this.shouldThrowErrors = shouldThrowErrors;
     }
@@ -62,6 +80,10 @@ public class LoggerOptions {
         private boolean shouldThrowErrors = false;
         private LogLevel minLogLevel = LogLevel.MESSAGE;
         private int maxLogsCount = 10;
+        private LoggingMode mode = LoggingMode.SYNC;
+        // How many logs can wait for the ASYNC flusher
+        private int queueCapacity = 8192;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
 
         public LoggerOptionsBuilder(Path directory) {
             this.directory = directory;
@@ -87,6 +109,21 @@ public class LoggerOptions {
             return this;
         }
 
+        public LoggerOptionsBuilder setMode(LoggingMode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public LoggerOptionsBuilder setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public LoggerOptionsBuilder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
         public LoggerOptions build() {
             return new LoggerOptions(this);
         }
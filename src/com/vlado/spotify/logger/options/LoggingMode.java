@@ -0,0 +1,8 @@
+package com.vlado.spotify.logger.options;
+
+public enum LoggingMode {
+    // Logs are written and flushed by the logging thread
+    SYNC,
+    // Logs are queued and written in batches by a background thread
+    ASYNC
+}
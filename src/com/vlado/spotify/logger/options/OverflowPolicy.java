@@ -0,0 +1,8 @@
+package com.vlado.spotify.logger.options;
+
+public enum OverflowPolicy {
+    // Logs which do not fit in the full queue are counted and dropped
+    DROP,
+    // The logging thread waits until the queue has room
+    BLOCK
+}
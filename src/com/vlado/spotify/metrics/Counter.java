@@ -0,0 +1,24 @@
+package com.vlado.spotify.metrics;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Striped, so threads which count at the same time do not contend on a single value
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        ParameterValidator.checkNonNegative(amount, "amount");
+
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,18 @@
+package com.vlado.spotify.metrics;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.function.LongSupplier;
+
+// Reads its value only when a snapshot is taken, so the measured code does nothing for it
+public class Gauge {
+    private final LongSupplier value;
+
+    Gauge(LongSupplier value) {
+        this.value = ParameterValidator.checkNull(value, "value");
+    }
+
+    public long get() {
+        return value.getAsLong();
+    }
+}
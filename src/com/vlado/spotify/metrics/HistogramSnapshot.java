@@ -0,0 +1,88 @@
+package com.vlado.spotify.metrics;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+// Bucket counts of a histogram at one moment. Percentiles are the upper bound of the bucket they fall in.
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+
+    HistogramSnapshot(long[] counts, long sum) {
+        this.counts = counts;
+        this.sum = sum;
+
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // The values recorded after an earlier snapshot of the same histogram
+    public HistogramSnapshot minus(HistogramSnapshot earlier) {
+        ParameterValidator.checkNull(earlier, "earlier");
+
+        long[] difference = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            difference[i] = counts[i] - earlier.counts[i];
+        }
+
+        return new HistogramSnapshot(difference, sum - earlier.sum);
+    }
+
+    // 0 when nothing was recorded
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Histogram.upperBound(i);
+            }
+        }
+
+        return getMax();
+    }
+
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return Histogram.upperBound(i);
+            }
+        }
+
+        return 0;
+    }
+
+    // How many values are at most the given one. A bucket which also holds larger values is not counted,
+    // so the count is low by at most the values within 1/32 below the given one.
+    public long getCountAtMost(long value) {
+        long atMost = 0;
+        for (int i = 0; i < counts.length && Histogram.upperBound(i) <= value; i++) {
+            atMost += counts[i];
+        }
+
+        return atMost;
+    }
+}
@@ -0,0 +1,70 @@
+package com.vlado.spotify.metrics;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Named metrics of the server. Measured code keeps the metric it gets from here in a field,
+// so recording never looks a name up.
+public class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Counter> counters;
+    private final Map<String, Gauge> gauges;
+    private final Map<String, Histogram> histograms;
+    private final long startTimeMillis;
+
+    MetricsRegistry() {
+        this.startTimeMillis = System.currentTimeMillis();
+        this.counters = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+    }
+
+    public static MetricsRegistry instance() {
+        return INSTANCE;
+    }
+
+    // Every metric starts at zero at this time
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    public Counter counter(String name) {
+        ParameterValidator.checkNull(name, "name");
+
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    // Replaces a gauge with the same name
+    public Gauge gauge(String name, LongSupplier value) {
+        ParameterValidator.checkNull(name, "name");
+
+        Gauge gauge = new Gauge(value);
+        gauges.put(name, gauge);
+        return gauge;
+    }
+
+    public Histogram histogram(String name) {
+        ParameterValidator.checkNull(name, "name");
+
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    // Metrics are read one at a time, so values recorded meanwhile may be in some of them only
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.get()));
+
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.get()));
+
+        Map<String, HistogramSnapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+
+        return new MetricsSnapshot(System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+    }
+}
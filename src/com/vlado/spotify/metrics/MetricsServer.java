@@ -0,0 +1,78 @@
+package com.vlado.spotify.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves the metrics at /metrics on a loopback port in the Prometheus text format.
+// Scrapes are answered from the snapshot taken by the last refresh, so a scrape never reads a metric itself
+// and cannot wait for the locks of the measured code.
+public class MetricsServer implements Closeable {
+    private static final String PATH = "/metrics";
+    private static final String THREAD_NAME = "Metrics Server";
+    private static final String GET = "GET";
+
+    private final MetricsRegistry metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile MetricsSnapshot latest;
+
+    // Port 0 binds any free port
+    public MetricsServer(int port, MetricsRegistry metrics) throws IOException {
+        ParameterValidator.checkNonNegative(port, "port");
+        this.metrics = ParameterValidator.checkNull(metrics, "metrics");
+        this.latest = metrics.snapshot();
+
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Takes the snapshot the next scrapes are answered from
+    public void refresh() {
+        latest = metrics.snapshot();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!GET.equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            byte[] body = PrometheusFormat.render(latest).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", PrometheusFormat.CONTENT_TYPE);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
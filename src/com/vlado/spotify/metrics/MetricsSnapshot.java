@@ -0,0 +1,10 @@
+package com.vlado.spotify.metrics;
+
+import java.util.Map;
+
+// Values of every metric by name, sorted by name
+public record MetricsSnapshot(long timeMillis,
+                              Map<String, Long> counters,
+                              Map<String, Long> gauges,
+                              Map<String, HistogramSnapshot> histograms) {
+}
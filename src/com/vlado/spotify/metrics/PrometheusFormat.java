@@ -0,0 +1,62 @@
+package com.vlado.spotify.metrics;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.concurrent.TimeUnit;
+
+// Renders a snapshot in the Prometheus text exposition format. Names get the spotify_ prefix and underscores
+// instead of dots, counters get _total. Histograms are recorded in nanos and exported in seconds, with the
+// fixed buckets below instead of their own fine ones.
+class PrometheusFormat {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String PREFIX = "spotify_";
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double[] BUCKET_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private PrometheusFormat() {
+    }
+
+    static String render(MetricsSnapshot snapshot) {
+        ParameterValidator.checkNull(snapshot, "snapshot");
+
+        StringBuilder text = new StringBuilder();
+        snapshot.counters().forEach((name, value) -> {
+            String metric = metricName(name) + "_total";
+            text.append("# TYPE ").append(metric).append(" counter\n");
+            text.append(metric).append(' ').append(value).append('\n');
+        });
+
+        snapshot.gauges().forEach((name, value) -> {
+            String metric = metricName(name);
+            text.append("# TYPE ").append(metric).append(" gauge\n");
+            text.append(metric).append(' ').append(value).append('\n');
+        });
+
+        snapshot.histograms().forEach((name, histogram) -> {
+            String metric = metricName(name) + "_seconds";
+            text.append("# TYPE ").append(metric).append(" histogram\n");
+            for (double bucket : BUCKET_SECONDS) {
+                text.append(metric).append("_bucket{le=\"").append(bucket).append("\"} ")
+                        .append(histogram.getCountAtMost((long) (bucket * NANOS_PER_SECOND))).append('\n');
+            }
+            text.append(metric).append("_bucket{le=\"+Inf\"} ").append(histogram.getCount()).append('\n');
+            text.append(metric).append("_sum ").append(histogram.getSum() / NANOS_PER_SECOND).append('\n');
+            text.append(metric).append("_count ").append(histogram.getCount()).append('\n');
+        });
+
+        return text.toString();
+    }
+
+    private static String metricName(String name) {
+        StringBuilder metric = new StringBuilder(PREFIX);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            metric.append(Character.isLetterOrDigit(c) ? c : '_');
+        }
+
+        return metric.toString();
+    }
+}
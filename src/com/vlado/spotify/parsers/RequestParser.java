@@ -14,12 +14,14 @@ import com.vlado.spotify.request.LogOutRequest;
 import com.vlado.spotify.request.MusicConnectionRequest;
 import com.vlado.spotify.request.PlaySongNameArtistRequest;
 import com.vlado.spotify.request.PlaySongNameRequest;
+import com.vlado.spotify.request.ProtocolRequest;
 import com.vlado.spotify.request.RegisterRequest;
 import com.vlado.spotify.request.Request;
 import com.vlado.spotify.request.SearchRequest;
 import com.vlado.spotify.request.ShowPlaylistRequest;
 import com.vlado.spotify.request.StopRequest;
 import com.vlado.spotify.request.TopNSongsRequest;
+import com.vlado.spotify.server.response.ResponseSender;
 import com.vlado.spotify.validations.ParameterValidator;
 
 import java.nio.channels.SelectionKey;
@@ -47,6 +49,7 @@ public class RequestParser {
     private static final String SHOW_PLAYLIST = "show-playlist";
 
     private static final String MUSIC_CONNECT = "musicConnect";
+    private static final String PROTOCOL = "protocol";
     private static final String BEGIN_STREAMING = "beginStreaming";
 
     private static final int ARG_1 = 1;
@@ -69,6 +72,7 @@ public class RequestParser {
             case PLAY -> parsePlay(request, key);
             case DISCONNECT -> parseDisconnect(request, key);
             case MUSIC_CONNECT -> parseMusicConnect(request, key);
+            case PROTOCOL -> parseProtocol(request, key);
             case BEGIN_STREAMING -> parseBeginStreaming(request);
             case STOP -> parseStop(request, key);
             case SEARCH -> parseSearch(request, key);
@@ -169,6 +173,20 @@ public class RequestParser {
         return new MusicConnectionRequest(request[ARG_1], key, OnlineUsers.instance());
     }
 
+    private Request parseProtocol(String input, SelectionKey key) {
+        ParameterValidator.checkNull(input, "input");
+        ParameterValidator.checkNull(key, "key");
+
+        String[] request = input.split(SKIP_WHITE_SPACES);
+
+        if (request.length != ONE_ARGUMENT_COMMAND_LENGTH) {
+            throw new UserErrorException(String.format(
+                    INVALID_ARGUMENTS_TO_COMMAND, "protocol <json|binary>"));
+        }
+
+        return new ProtocolRequest(request[ARG_1], key, ResponseSender.instance());
+    }
+
     private Request parseBeginStreaming(String input) {
         ParameterValidator.checkNull(input, "input");
 
@@ -1,27 +1,35 @@
 package com.vlado.spotify.parsers;
 
 import com.vlado.spotify.database.SongDatabase;
+import com.vlado.spotify.metrics.MetricsRegistry;
+import com.vlado.spotify.metrics.MetricsSnapshot;
 import com.vlado.spotify.server.Server;
 import com.vlado.spotify.server.commands.AddSongCommand;
 import com.vlado.spotify.server.commands.Command;
 import com.vlado.spotify.server.commands.QuitCommand;
+import com.vlado.spotify.server.commands.StatsCommand;
 import com.vlado.spotify.validations.ParameterValidator;
 
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ServerCommandParser {
     private static final String INVALID_ARGUMENTS = "Invalid arguments.%n Correct use: %s";
     private static final String QUIT = "quit";
     private static final String ADD_SONG = "add-song";
+    private static final String STATS = "stats";
 
     private static final int ARG_1 = 1;
     private static final int ARG_2 = 2;
     private static final int ARG_3 = 3;
 
     private final Server server;
+    // Metrics at the previous stats command, which its rates are computed from
+    private final AtomicReference<MetricsSnapshot> lastStats;
 
     public ServerCommandParser(Server server) {
         this.server = server;
+        this.lastStats = new AtomicReference<>();
     }
 
     public Command parse(String input) {
@@ -32,6 +40,7 @@ public class ServerCommandParser {
         return switch (command) {
             case QUIT -> parseQuit(input);
             case ADD_SONG -> parseAddSong(input);
+            case STATS -> parseStats(input);
             default -> throw new IllegalArgumentException("Unknown server command: " + input);
         };
     }
@@ -48,6 +57,18 @@ public class ServerCommandParser {
         return new QuitCommand(server);
     }
 
+    private Command parseStats(String input) {
+        ParameterValidator.checkNull(input, "input");
+
+        String[] command = input.split("\\s+");
+
+        if (command.length > 2) {
+            throw new IllegalArgumentException(String.format(INVALID_ARGUMENTS, "stats [subsystem]"));
+        }
+
+        return new StatsCommand(command.length == 2 ? command[ARG_1] : null, MetricsRegistry.instance(), lastStats);
+    }
+
     private Command parseAddSong(String input) {
         ParameterValidator.checkNull(input, "input");
 
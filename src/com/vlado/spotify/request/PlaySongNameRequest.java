@@ -31,7 +31,8 @@ public class PlaySongNameRequest implements Request {
 
         Song song = songDatabase.getSong(songName);
         AudioFormat format = onlineUsers.prepareStreaming(user, songName);
-        SongFormat songFormat = SongFormat.of(format);
+        // Probed songs take their format from the catalog
+        SongFormat songFormat = song.header() == null ? SongFormat.of(format) : song.header().getFormat();
 
         return ServerResponse.of(ResponseStatus.OK,
                 String.format("Now playing: %s by %s.", song.name(), song.artist()), songFormat);
@@ -0,0 +1,38 @@
+package com.vlado.spotify.request;
+
+import com.vlado.spotify.exceptions.UserErrorException;
+import com.vlado.spotify.server.response.ResponseProtocol;
+import com.vlado.spotify.server.response.ResponseSender;
+import com.vlado.spotify.server.response.ResponseStatus;
+import com.vlado.spotify.server.response.ServerResponse;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.nio.channels.SelectionKey;
+import java.util.Locale;
+
+public class ProtocolRequest implements Request {
+    private final String protocolName;
+    private final SelectionKey key;
+    private final ResponseSender responseSender;
+
+    public ProtocolRequest(String protocolName, SelectionKey key, ResponseSender responseSender) {
+        this.protocolName = ParameterValidator.checkNull(protocolName, "protocolName");
+        this.key = ParameterValidator.checkNull(key, "key");
+        this.responseSender = ParameterValidator.checkNull(responseSender, "responseSender");
+    }
+
+    @Override
+    public ServerResponse execute() {
+        ResponseProtocol protocol;
+        try {
+            protocol = ResponseProtocol.valueOf(protocolName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new UserErrorException(String.format("Unknown protocol: %s.", protocolName));
+        }
+
+        responseSender.setProtocol(key, protocol);
+
+        return ServerResponse.of(ResponseStatus.OK,
+                String.format("Responses are sent as %s.", protocol.name().toLowerCase(Locale.ROOT)));
+    }
+}
@@ -0,0 +1,51 @@
+package com.vlado.spotify.request;
+
+import com.vlado.spotify.parsers.ParsingUtil;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Kinds of requests by their command word. The access log stores the ordinal, so new types are added at the end.
+public enum RequestType {
+    REGISTER("register"),
+    LOG_IN("login"),
+    LOG_OUT("logout"),
+    DISCONNECT("disconnect"),
+    SEARCH("search"),
+    TOP("top"),
+    PLAY("play"),
+    STOP("stop"),
+    CREATE_PLAYLIST("create-playlist"),
+    ADD_SONG_TO_PLAYLIST("add-song-to"),
+    SHOW_PLAYLIST("show-playlist"),
+    MUSIC_CONNECT("musicConnect"),
+    PROTOCOL("protocol"),
+    BEGIN_STREAMING("beginStreaming"),
+    // Requests which start with no known command
+    UNKNOWN("");
+
+    private static final Map<String, RequestType> BY_COMMAND = new HashMap<>();
+
+    static {
+        for (RequestType type : values()) {
+            BY_COMMAND.put(type.command, type);
+        }
+    }
+
+    private final String command;
+
+    RequestType(String command) {
+        this.command = command;
+    }
+
+    public static RequestType of(String request) {
+        ParameterValidator.checkNull(request, "request");
+
+        return BY_COMMAND.getOrDefault(ParsingUtil.getFirstWord(request), UNKNOWN);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+}
@@ -0,0 +1,355 @@
+package com.vlado.spotify.server;
+
+import com.vlado.spotify.database.OnlineUsers;
+import com.vlado.spotify.executors.RequestExecutor;
+import com.vlado.spotify.logger.access.AccessLog;
+import com.vlado.spotify.metrics.Histogram;
+import com.vlado.spotify.metrics.MetricsRegistry;
+import com.vlado.spotify.request.DisconnectRequest;
+import com.vlado.spotify.request.RequestType;
+import com.vlado.spotify.server.response.ResponseSender;
+import com.vlado.spotify.server.response.ResponseStatus;
+import com.vlado.spotify.server.response.ServerResponse;
+import com.vlado.spotify.server.timer.TimerWheel;
+import com.vlado.spotify.song.StreamResult;
+import com.vlado.spotify.user.User;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+public class SelectorWorker implements Runnable {
+    private static final int BUFFER_SIZE = 8192;
+    private static final long SLOW_CONSUMER_CHECK_MILLIS = 1000;
+    private static final long TIMER_TICK_MILLIS = 10;
+    private static final int TIMER_WHEEL_SIZE = 512;
+
+    private final Selector selector;
+    private final ByteBuffer buffer;
+    // Tasks submitted by other threads, which must run on this worker's thread
+    private final Queue<Runnable> pendingTasks;
+    private final AtomicBoolean isWorking;
+    // Paces streams, reaps idle connections and checks for slow consumers. Accessed only from this worker's thread
+    private final TimerWheel timers;
+
+    // Time of the last read or write of each connection, when idle connections are reaped
+    private final Map<SelectionKey, Long> lastActivity;
+    private long idleTimeoutNanos;
+
+    // Keys whose request is being executed on the request pool. Accessed only from this worker's thread
+    private final Set<SelectionKey> inFlight;
+
+    private final RequestExecutor requestExecutor;
+    // Null when requests are executed inline
+    private final Executor requestPool;
+    private final Consumer<Throwable> errorHandler;
+    // Null when requests are not logged
+    private AccessLog accessLog;
+    // Time spent handling ready keys, tasks and timers in one loop, without waiting in select
+    private final Histogram loopTime = MetricsRegistry.instance().histogram("selector.loop.time");
+
+    public SelectorWorker(RequestExecutor requestExecutor, Consumer<Throwable> errorHandler) throws IOException {
+        this(requestExecutor, errorHandler, null);
+    }
+
+    public SelectorWorker(RequestExecutor requestExecutor, Executor requestPool,
+                          Consumer<Throwable> errorHandler) throws IOException {
+        this(requestExecutor, errorHandler, ParameterValidator.checkNull(requestPool, "requestPool"));
+    }
+
+    // Executes requests inline when requestPool is null
+    private SelectorWorker(RequestExecutor requestExecutor, Consumer<Throwable> errorHandler,
+                           Executor requestPool) throws IOException {
+        this.requestExecutor = ParameterValidator.checkNull(requestExecutor, "requestExecutor");
+        this.errorHandler = ParameterValidator.checkNull(errorHandler, "errorHandler");
+        this.requestPool = requestPool;
+
+        this.selector = Selector.open();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+        this.isWorking = new AtomicBoolean(true);
+        this.inFlight = new HashSet<>();
+        this.timers = new TimerWheel(TIMER_TICK_MILLIS, TimeUnit.MILLISECONDS, TIMER_WHEEL_SIZE, errorHandler);
+        this.lastActivity = new HashMap<>();
+        scheduleSlowConsumerCheck();
+    }
+
+    // Must be called before the worker is started
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        ParameterValidator.checkNonNegative(idleTimeoutMillis, "idleTimeoutMillis");
+
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    // Must be called before the worker is started
+    public void setAccessLog(AccessLog accessLog) {
+        this.accessLog = ParameterValidator.checkNull(accessLog, "accessLog");
+    }
+
+    public void register(SocketChannel client) {
+        ParameterValidator.checkNull(client, "client");
+
+        execute(() -> {
+            SelectionKey key;
+            try {
+                key = client.register(selector, SelectionKey.OP_READ);
+            } catch (ClosedChannelException e) {
+                throw new UncheckedIOException("Client disconnected before being registered", e);
+            }
+
+            if (idleTimeoutNanos > 0) {
+                lastActivity.put(key, System.nanoTime());
+                timers.schedule(idleTimeoutNanos, TimeUnit.NANOSECONDS, () -> checkIdle(key));
+            }
+        });
+    }
+
+    public void execute(Runnable task) {
+        ParameterValidator.checkNull(task, "task");
+
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    public void stop() {
+        isWorking.set(false);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try (selector) {
+            while (isWorking.get()) {
+                selector.select(timers.selectTimeoutMillis(System.nanoTime()));
+                long start = System.nanoTime();
+                runPendingTasks();
+
+                var it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+
+                    try {
+                        handleKey(key);
+                    } catch (Throwable e) {
+                        errorHandler.accept(e);
+                    }
+
+                    it.remove();
+                }
+
+                timers.advance(System.nanoTime());
+                loopTime.recordSince(start);
+            }
+        } catch (Throwable e) {
+            errorHandler.accept(e);
+        }
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+
+    private void scheduleSlowConsumerCheck() {
+        timers.schedulePeriodic(SLOW_CONSUMER_CHECK_MILLIS, SLOW_CONSUMER_CHECK_MILLIS, TimeUnit.MILLISECONDS,
+                this::checkSlowConsumers);
+    }
+
+    private void checkSlowConsumers() {
+        long now = System.nanoTime();
+
+        for (SelectionKey key : selector.keys()) {
+            try {
+                if (key.isValid() && ResponseSender.instance().isSlowConsumer(key, now)) {
+                    disconnect(key);
+                }
+            } catch (Throwable e) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+
+    // Each connection has a single idle timer, which is moved forward when it finds recent traffic
+    private void checkIdle(SelectionKey key) {
+        Long lastActive = lastActivity.get(key);
+        if (lastActive == null || !key.isValid()) {
+            lastActivity.remove(key);
+            return;
+        }
+
+        long idle = System.nanoTime() - lastActive;
+        if (idle < idleTimeoutNanos || inFlight.contains(key) || OnlineUsers.instance().hasActiveStream(key)) {
+            long remaining = idle < idleTimeoutNanos ? idleTimeoutNanos - idle : idleTimeoutNanos;
+            timers.schedule(remaining, TimeUnit.NANOSECONDS, () -> checkIdle(key));
+            return;
+        }
+
+        try {
+            disconnect(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Idle connection closing error", e);
+        }
+    }
+
+    private void handleKey(SelectionKey key) throws IOException {
+        ParameterValidator.checkNull(key, "key");
+
+        if (!key.isValid()) {
+            return;
+        }
+
+        if (idleTimeoutNanos > 0) {
+            lastActivity.put(key, System.nanoTime());
+        }
+
+        if (key.isReadable()) {
+            if (inFlight.contains(key)) {
+                // Sending queued responses enables reading again, but the next request
+                // must wait for the response of the current one
+                key.interestOpsAnd(~SelectionKey.OP_READ);
+                return;
+            }
+
+            String command = readClientRequest(key);
+            if (command == null) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            if (requestPool == null) {
+                sendResponse(key, command, requestExecutor.execute(command, key), start);
+            } else {
+                executeOffloaded(key, command, start);
+            }
+        } else if (key.isWritable()) {
+            if (OnlineUsers.instance().isStreaming(key)) {
+                streamSong(key);
+            } else {
+                ResponseSender.instance().sendQueued(key, (SocketChannel) key.channel());
+            }
+        }
+    }
+
+    // The latency includes the time the request waits for a request thread
+    private void executeOffloaded(SelectionKey key, String command, long start) {
+        ParameterValidator.checkNull(key, "key");
+        ParameterValidator.checkNull(command, "command");
+
+        inFlight.add(key);
+        key.interestOpsAnd(~SelectionKey.OP_READ);
+
+        requestPool.execute(() -> {
+            ServerResponse response = requestExecutor.execute(command, key);
+
+            execute(() -> {
+                inFlight.remove(key);
+                if (!key.isValid()) {
+                    return;
+                }
+
+                key.interestOpsOr(SelectionKey.OP_READ);
+                try {
+                    sendResponse(key, command, response, start);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Response sending error", e);
+                }
+            });
+        });
+    }
+
+    private void sendResponse(SelectionKey key, String command, ServerResponse response, long start)
+            throws IOException {
+        ParameterValidator.checkNull(key, "key");
+        ParameterValidator.checkNull(response, "response");
+
+        if (!key.channel().isOpen()) {
+            return;
+        }
+
+        int bytesOut = ResponseSender.instance().send(key, response);
+        if (accessLog != null) {
+            String user = key.attachment() instanceof User loggedIn ? loggedIn.getUsername() : null;
+            accessLog.record(System.currentTimeMillis(), user, RequestType.of(command), response.getStatus(),
+                    System.nanoTime() - start, bytesOut);
+        }
+    }
+
+    private String readClientRequest(SelectionKey key) throws IOException {
+        ParameterValidator.checkNull(key, "key");
+
+        SocketChannel client = (SocketChannel) key.channel();
+
+        buffer.clear();
+        try {
+            int readBytes = client.read(buffer);
+            if (readBytes < 0) {
+                disconnect(key);
+                return null;
+            }
+            buffer.flip();
+        } catch (IOException e) {
+            disconnect(key);
+            throw new RuntimeException("Connection error occurred");
+        }
+
+        byte[] temp = new byte[buffer.remaining()];
+        buffer.get(temp);
+        return new String(temp, StandardCharsets.UTF_8);
+    }
+
+    private void disconnect(SelectionKey key) throws IOException {
+        lastActivity.remove(key);
+        new DisconnectRequest(key, OnlineUsers.instance()).execute();
+        ResponseSender.instance().removeClientsMessageQueue(key);
+        key.channel().close();
+    }
+
+    private void streamSong(SelectionKey key) throws IOException {
+        ParameterValidator.checkNull(key, "key");
+
+        StreamResult result = OnlineUsers.instance().streamSongFragment(key);
+        if (result == StreamResult.FINISHED) {
+            ResponseSender.instance().send(key, ServerResponse.of(ResponseStatus.STOP_STREAMING, "Song ended."));
+            return;
+        }
+        // A stopped stream was already answered by the request which stopped it
+        if (result == StreamResult.STOPPED) {
+            return;
+        }
+
+        // The stream is ahead of playback, so writing stops until the client catches up
+        long delay = OnlineUsers.instance().getPacingDelayNanos(key, System.nanoTime());
+        if (delay > 0 && key.isValid()) {
+            key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            timers.schedule(delay, TimeUnit.NANOSECONDS, () -> resumeStream(key));
+        }
+    }
+
+    private void resumeStream(SelectionKey key) {
+        if (key.isValid() && OnlineUsers.instance().isStreaming(key)) {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+        }
+    }
+}
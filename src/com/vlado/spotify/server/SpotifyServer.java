@@ -3,17 +3,23 @@ package com.vlado.spotify.server;
 import com.vlado.spotify.database.OnlineUsers;
 import com.vlado.spotify.database.SongDatabase;
 import com.vlado.spotify.database.UserDatabase;
-import com.vlado.spotify.request.DisconnectRequest;
+import com.vlado.spotify.server.options.RequestExecutionMode;
+import com.vlado.spotify.server.options.ServerOptions;
 import com.vlado.spotify.server.response.ResponseSender;
-import com.vlado.spotify.song.SongFragment;
+import com.vlado.spotify.server.timer.TimerWheel;
+import com.vlado.spotify.song.BlockCache;
+import com.vlado.spotify.song.StreamingMode;
 import com.vlado.spotify.logger.Logger;
+import com.vlado.spotify.logger.access.AccessLog;
 import com.vlado.spotify.logger.log.Log;
 import com.vlado.spotify.logger.log.LogLevel;
 import com.vlado.spotify.logger.options.LoggerOptions;
+import com.vlado.spotify.logger.options.LoggingMode;
+import com.vlado.spotify.logger.options.OverflowPolicy;
+import com.vlado.spotify.metrics.MetricsRegistry;
+import com.vlado.spotify.metrics.MetricsServer;
 import com.vlado.spotify.executors.RequestExecutor;
 import com.vlado.spotify.executors.CommandExecutor;
-import com.vlado.spotify.server.response.ResponseStatus;
-import com.vlado.spotify.server.response.ServerResponse;
 import com.vlado.spotify.validations.ParameterValidator;
 
 import java.io.BufferedReader;
@@ -22,40 +28,97 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SpotifyServer implements Server {
-    private static final int BUFFER_SIZE = 8192;
-
     private static final int LOG_FILE_SIZE = 32768;
     private static final String LOG_MESSAGE_FORMAT = "Exception: %s%nMessage: %s%nStackTrace: %s";
+    private static final String SELECTOR_WORKER_NAME = "Selector Worker %d";
+    private static final String REQUEST_WORKER_NAME = "Request Worker %d";
     private static final Path CLIENT_LOGS_PATH = Path.of("resources", "server", "clientRequestsLogs");
     private static final Path SERVER_LOGS_PATH = Path.of("resources", "server", "serverCommandsLogs");
-    private static final Object MUSIC_CHANNEL_ATTACHMENT = null;
+    private static final Path ACCESS_LOGS_PATH = Path.of("resources", "server", "accessLogs");
+    private static final int ACCESS_LOG_SEGMENTS = 16;
+    private static final long METRICS_REFRESH_MILLIS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+    private static final long TIMER_TICK_MILLIS = 100;
+    private static final int TIMER_WHEEL_SIZE = 64;
 
     private final String host;
     private final int port;
+    private final int selectorThreads;
+    private final RequestExecutionMode requestExecutionMode;
+    private final int requestThreads;
+    private final long idleTimeoutMillis;
+    private final long snapshotIntervalMillis;
+    private final long journalCommitIntervalMillis;
+    private final long accessLogSegmentSize;
+    private final int metricsPort;
 
-    private ByteBuffer buffer;
     private Selector selector;
+    private TimerWheel timers;
+    private SelectorWorker[] workers;
+    private Thread[] workerThreads;
+    private ExecutorService requestPool;
+    private int nextWorker;
+    // Null when requests are not logged
+    private AccessLog accessLog;
+    // Null when the metrics are not served
+    private MetricsServer metricsServer;
 
     private final Logger clientLogger;
     private final AtomicBoolean isWorking = new AtomicBoolean(false);
     private final RequestExecutor requestExecutor;
 
     public SpotifyServer(String host, int port) {
-        this.host = host;
-        this.port = port;
+        this(ServerOptions.builder(host, port).build());
+    }
+
+    public SpotifyServer(ServerOptions options) {
+        ParameterValidator.checkNull(options, "options");
+
+        this.host = options.getHost();
+        this.port = options.getPort();
+        this.selectorThreads = ParameterValidator.checkPositive(options.getSelectorThreads(), "selectorThreads");
+        this.requestExecutionMode = ParameterValidator.checkNull(options.getRequestExecutionMode(),
+                "requestExecutionMode");
+        this.requestThreads = ParameterValidator.checkPositive(options.getRequestThreads(), "requestThreads");
+        this.idleTimeoutMillis = ParameterValidator.checkNonNegative(options.getIdleTimeoutMillis(),
+                "idleTimeoutMillis");
+        this.snapshotIntervalMillis = ParameterValidator.checkNonNegative(options.getSnapshotIntervalMillis(),
+                "snapshotIntervalMillis");
+        this.journalCommitIntervalMillis = ParameterValidator.checkNonNegative(
+                options.getJournalCommitIntervalMillis(), "journalCommitIntervalMillis");
+        this.accessLogSegmentSize = ParameterValidator.checkNonNegative(options.getAccessLogSegmentSize(),
+                "accessLogSegmentSize");
+        this.metricsPort = ParameterValidator.checkNonNegative(options.getMetricsPort(), "metricsPort");
         this.clientLogger = initializeClientLogger();
         this.requestExecutor = new RequestExecutor(clientLogger);
+
+        OnlineUsers.instance().setStreamingMode(options.getStreamingMode());
+        OnlineUsers.instance().setStreamLeadMillis(options.getStreamLeadMillis());
+        if (options.getStreamingMode() == StreamingMode.CACHED) {
+            OnlineUsers.instance().setBlockCache(new BlockCache(options.getBlockCacheSize()));
+        }
+
+        SongDatabase.instance().setPlaylistFlushDelayMillis(options.getPlaylistFlushDelayMillis());
+        SongDatabase.instance().setPlaylistCacheSize(options.getPlaylistCacheSize());
+        SongDatabase.instance().setErrorHandler(this::logError);
+
+        ResponseSender.instance().setOutboundBudget(options.getOutboundBudget());
+        ResponseSender.instance().setBackpressurePolicy(options.getBackpressurePolicy());
+        ResponseSender.instance().setSlowConsumerTimeoutMillis(options.getSlowConsumerTimeoutMillis());
     }
 
     @Override
@@ -68,7 +131,8 @@ public class SpotifyServer implements Server {
             setUpServer(server);
 
             while (isWorking.get()) {
-                int ready = selector.select();
+                int ready = selector.select(timers.selectTimeoutMillis(System.nanoTime()));
+                timers.advance(System.nanoTime());
                 if (ready == 0) {
                     continue;
                 }
@@ -78,7 +142,9 @@ public class SpotifyServer implements Server {
                     SelectionKey key = it.next();
 
                     try {
-                        handleKey(key);
+                        if (key.isAcceptable()) {
+                            acceptConnection(key);
+                        }
                     } catch (Throwable e) {
                         logError(e);
                     }
@@ -88,6 +154,8 @@ public class SpotifyServer implements Server {
             }
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            stopWorkers();
         }
     }
 
@@ -100,98 +168,129 @@ public class SpotifyServer implements Server {
         selector = Selector.open();
         server.register(selector, SelectionKey.OP_ACCEPT);
 
-        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        if (journalCommitIntervalMillis > 0) {
+            SongDatabase.instance().openJournal(journalCommitIntervalMillis, this::logError);
+        }
+
+        if (accessLogSegmentSize > 0) {
+            accessLog = new AccessLog(ACCESS_LOGS_PATH, accessLogSegmentSize, ACCESS_LOG_SEGMENTS, this::logError);
+        }
+
+        timers = new TimerWheel(TIMER_TICK_MILLIS, TimeUnit.MILLISECONDS, TIMER_WHEEL_SIZE, this::logError);
+        if (snapshotIntervalMillis > 0) {
+            timers.schedulePeriodic(snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS,
+                    SongDatabase.instance()::saveSongs);
+        }
+
+        // Refreshed by the timers, so scrapes are answered without reading any metric
+        if (metricsPort > 0) {
+            metricsServer = new MetricsServer(metricsPort, MetricsRegistry.instance());
+            timers.schedulePeriodic(METRICS_REFRESH_MILLIS, METRICS_REFRESH_MILLIS, TimeUnit.MILLISECONDS,
+                    metricsServer::refresh);
+        }
 
+        startSelectorWorkers();
         startServerCommandExecutor();
         isWorking.set(true);
     }
 
     @Override
     public void stopServer() {
-        SongDatabase.instance().saveSongs();
-
-        OnlineUsers.instance().closeAllStreams();
         isWorking.set(false);
-
         if (selector.isOpen()) {
             selector.wakeup();
         }
-    }
-
-    private void handleKey(SelectionKey key) throws IOException {
-        ParameterValidator.checkNull(key, "key");
 
-        if (key.isReadable()) {
-            ServerResponse response = readClientRequest(key);
+        // No request may change the songs or log once they are saved, so the threads handling them stop first
+        stopWorkers();
+        OnlineUsers.instance().closeAllStreams();
 
-            if (response != null && key.channel().isOpen()) {
-                ResponseSender.instance().send(key, response);
-            }
-        } else if (key.isWritable()) {
-            if (key.attachment() == MUSIC_CHANNEL_ATTACHMENT) {
-                ServerResponse songFragment = getSongFragment(key);
-                ResponseSender.instance().send(key, songFragment);
-            } else {
-                ResponseSender.instance().sendQueued(key, (SocketChannel) key.channel());
-            }
-        } else if (key.isAcceptable()) {
-            acceptConnection(key);
+        SongDatabase.instance().saveSongs();
+        SongDatabase.instance().closeJournal();
+        SongDatabase.instance().flushPlaylists();
+        closeAccessLog();
+        if (metricsServer != null) {
+            metricsServer.close();
         }
+        clientLogger.close();
     }
 
     private void acceptConnection(SelectionKey key) throws IOException {
         ParameterValidator.checkNull(key, "key");
 
-        key.attach(null);
-
         ServerSocketChannel server = (ServerSocketChannel) key.channel();
         SocketChannel client = server.accept();
+        if (client == null) {
+            return;
+        }
 
         client.configureBlocking(false);
-        client.register(selector, SelectionKey.OP_READ);
+        nextWorker().register(client);
     }
 
-    private ServerResponse readClientRequest(SelectionKey key) throws IOException {
-        ParameterValidator.checkNull(key, "key");
+    private SelectorWorker nextWorker() {
+        SelectorWorker worker = workers[nextWorker];
+        nextWorker = (nextWorker + 1) % workers.length;
 
-        SocketChannel client = (SocketChannel) key.channel();
+        return worker;
+    }
 
-        buffer.clear();
-        try {
-            int readBytes = client.read(buffer);
-            if (readBytes < 0) {
-                new DisconnectRequest(key, OnlineUsers.instance()).execute();
-                client.close();
-                return null;
-            }
-            buffer.flip();
-        } catch (IOException e) {
-            new DisconnectRequest(key, OnlineUsers.instance()).execute();
-            client.close();
-            throw new RuntimeException("Connection error occurred");
+    private void startSelectorWorkers() throws IOException {
+        workers = new SelectorWorker[selectorThreads];
+        workerThreads = new Thread[selectorThreads];
+
+        if (requestExecutionMode == RequestExecutionMode.OFFLOADED) {
+            requestPool = Executors.newFixedThreadPool(requestThreads, new DaemonThreadFactory(REQUEST_WORKER_NAME));
         }
 
-        byte[] temp = new byte[buffer.remaining()];
-        buffer.get(temp);
-        String command = new String(temp, StandardCharsets.UTF_8);
+        for (int i = 0; i < selectorThreads; i++) {
+            workers[i] = requestPool == null
+                    ? new SelectorWorker(requestExecutor, this::logError)
+                    : new SelectorWorker(requestExecutor, requestPool, this::logError);
+            workers[i].setIdleTimeoutMillis(idleTimeoutMillis);
+            if (accessLog != null) {
+                workers[i].setAccessLog(accessLog);
+            }
 
-        return requestExecutor.execute(command, key);
+            workerThreads[i] = new Thread(workers[i], String.format(SELECTOR_WORKER_NAME, i));
+            workerThreads[i].setDaemon(true);
+            workerThreads[i].start();
+        }
     }
 
-    private ServerResponse getSongFragment(SelectionKey key) {
-        ParameterValidator.checkNull(key, "key");
-
-        ServerResponse response;
+    // Waits for the workers to stop reading requests, then for the requests they offloaded to finish
+    private void stopWorkers() {
+        try {
+            if (workers != null) {
+                for (SelectorWorker worker : workers) {
+                    worker.stop();
+                }
+                for (Thread workerThread : workerThreads) {
+                    workerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+                }
+            }
 
-        SongFragment fragment = OnlineUsers.instance().getSongFragment(key);
+            if (requestPool != null) {
+                requestPool.shutdown();
+                if (!requestPool.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    logError(new IllegalStateException("Requests were still running when the server stopped"));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        if (fragment != null) {
-            response = ServerResponse.of(ResponseStatus.OK, fragment);
-        } else {
-            response = ServerResponse.of(ResponseStatus.STOP_STREAMING, "Song ended.");
+    private void closeAccessLog() {
+        if (accessLog == null) {
+            return;
         }
 
-        return response;
+        try {
+            accessLog.close();
+        } catch (IOException e) {
+            logError(e);
+        }
     }
 
     private void startServerCommandExecutor() {
@@ -209,8 +308,11 @@ public class SpotifyServer implements Server {
     }
 
     private Logger initializeClientLogger() {
+        // Written in the background, so requests do not wait for the disk
         LoggerOptions options = LoggerOptions.builder(CLIENT_LOGS_PATH)
                 .setMaxFileSize(LOG_FILE_SIZE)
+                .setMode(LoggingMode.ASYNC)
+                .setOverflowPolicy(OverflowPolicy.DROP)
                 .build();
         return new Logger(options);
     }
@@ -223,7 +325,7 @@ public class SpotifyServer implements Server {
 
             UserDatabase.instance().setWriter(writer);
             UserDatabase.instance().readUsers(reader);
-            SongDatabase.instance().loadSongs();
+            System.out.println(SongDatabase.instance().loadSongs());
             SongDatabase.instance().loadPlaylists();
 
             server.startServer();
@@ -232,4 +334,20 @@ public class SpotifyServer implements Server {
             server.logError(e);
         }
     }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String nameFormat;
+        private final AtomicInteger created = new AtomicInteger();
+
+        DaemonThreadFactory(String nameFormat) {
+            this.nameFormat = nameFormat;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, String.format(nameFormat, created.getAndIncrement()));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
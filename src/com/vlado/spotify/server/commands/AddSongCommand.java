@@ -2,8 +2,11 @@ package com.vlado.spotify.server.commands;
 
 import com.vlado.spotify.database.SongDatabase;
 import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.WavHeader;
 import com.vlado.spotify.validations.ParameterValidator;
 
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
 import java.nio.file.Path;
 
 public class AddSongCommand implements Command {
@@ -22,9 +25,19 @@ public class AddSongCommand implements Command {
 
     @Override
     public String execute() {
-        Song newSong = new Song(songName, artistName, 0, path);
+        Song newSong = new Song(songName, artistName, 0, path, readHeader());
         songDatabase.addSong(newSong);
 
         return String.format("Song: %s by %s, successfully added.", songName, artistName);
     }
+
+    private WavHeader readHeader() {
+        try {
+            return WavHeader.read(path);
+        } catch (IOException | UnsupportedAudioFileException e) {
+            throw new IllegalArgumentException(String.format(
+                    "Song: %s by %s, is not a supported WAV file. Check the path %s.",
+                    songName, artistName, path.toString()), e);
+        }
+    }
 }
@@ -0,0 +1,152 @@
+package com.vlado.spotify.server.commands;
+
+import com.vlado.spotify.metrics.HistogramSnapshot;
+import com.vlado.spotify.metrics.MetricsRegistry;
+import com.vlado.spotify.metrics.MetricsSnapshot;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Prints the metrics of the running server, or of one subsystem: the metrics whose name starts with it.
+// Rates are per second since the previous stats command, or since the server started for the first one.
+// Only a snapshot of the metrics is taken, the selector threads keep running meanwhile.
+public class StatsCommand implements Command {
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+    private static final String HITS = ".hits";
+    private static final String MISSES = ".misses";
+
+    // Null for every subsystem
+    private final String subsystem;
+    private final MetricsRegistry metrics;
+    private final AtomicReference<MetricsSnapshot> previous;
+
+    public StatsCommand(String subsystem, MetricsRegistry metrics, AtomicReference<MetricsSnapshot> previous) {
+        this.subsystem = subsystem;
+        this.metrics = ParameterValidator.checkNull(metrics, "metrics");
+        this.previous = ParameterValidator.checkNull(previous, "previous");
+    }
+
+    @Override
+    public String execute() {
+        MetricsSnapshot current = metrics.snapshot();
+        if (subsystem != null && !hasSubsystem(current)) {
+            throw new IllegalArgumentException(String.format("Unknown subsystem: %s. Known subsystems: %s",
+                    subsystem, String.join(", ", subsystems(current))));
+        }
+        // Swapped only for valid commands, so a mistyped one does not restart the rates
+        MetricsSnapshot last = previous.getAndSet(current);
+
+        long lastTimeMillis = last == null ? metrics.getStartTimeMillis() : last.timeMillis();
+        double seconds = Math.max(current.timeMillis() - lastTimeMillis, 1) / MILLIS_PER_SECOND;
+
+        StringBuilder stats = new StringBuilder();
+        stats.append(String.format("Stats at %s, rates over the last %.1f s%n",
+                Instant.ofEpochMilli(current.timeMillis()), seconds));
+
+        appendGauges(stats, current);
+        appendCounters(stats, current, last, seconds);
+        appendHistograms(stats, current, last, seconds);
+
+        return stats.toString();
+    }
+
+    private void appendGauges(StringBuilder stats, MetricsSnapshot current) {
+        StringBuilder rows = new StringBuilder();
+        current.gauges().forEach((name, value) -> {
+            if (includes(name)) {
+                rows.append(String.format("%-40s %14d%n", name, value));
+            }
+        });
+
+        appendSection(stats, String.format("%-40s %14s%n", "gauge", "value"), rows);
+    }
+
+    private void appendCounters(StringBuilder stats, MetricsSnapshot current, MetricsSnapshot last,
+                                double seconds) {
+        StringBuilder rows = new StringBuilder();
+        current.counters().forEach((name, count) -> {
+            if (includes(name)) {
+                long lastCount = last == null ? 0 : last.counters().getOrDefault(name, 0L);
+                rows.append(String.format("%-40s %14d %10.1f%n", name, count, (count - lastCount) / seconds));
+            }
+        });
+
+        // Hit rates of the caches which count their hits and misses
+        current.counters().forEach((name, hits) -> {
+            if (includes(name) && name.endsWith(HITS)) {
+                String cache = name.substring(0, name.length() - HITS.length());
+                Long misses = current.counters().get(cache + MISSES);
+                if (misses != null) {
+                    long lookups = hits + misses;
+                    rows.append(String.format("%-40s %13.1f%%%n", cache + ".hit.rate",
+                            lookups == 0 ? 0 : 100.0 * hits / lookups));
+                }
+            }
+        });
+
+        appendSection(stats, String.format("%-40s %14s %10s%n", "counter", "count", "rate/s"), rows);
+    }
+
+    // Histograms which never recorded anything are left out.
+    // Percentiles are of the values recorded since the previous stats command, like the rates
+    private void appendHistograms(StringBuilder stats, MetricsSnapshot current, MetricsSnapshot last,
+                                  double seconds) {
+        StringBuilder rows = new StringBuilder();
+        for (Map.Entry<String, HistogramSnapshot> entry : current.histograms().entrySet()) {
+            HistogramSnapshot histogram = entry.getValue();
+            if (!includes(entry.getKey()) || histogram.getCount() == 0) {
+                continue;
+            }
+
+            HistogramSnapshot lastHistogram = last == null ? null : last.histograms().get(entry.getKey());
+            HistogramSnapshot window = lastHistogram == null ? histogram : histogram.minus(lastHistogram);
+            rows.append(String.format("%-40s %10d %10.1f %10s %10s %10s %10s%n",
+                    entry.getKey(), histogram.getCount(), window.getCount() / seconds,
+                    millis(window, window.getPercentile(50)),
+                    millis(window, window.getPercentile(90)),
+                    millis(window, window.getPercentile(99)),
+                    millis(window, window.getMax())));
+        }
+
+        appendSection(stats, String.format("%-40s %10s %10s %10s %10s %10s %10s%n",
+                "histogram", "count", "rate/s", "p50 ms", "p90 ms", "p99 ms", "max ms"), rows);
+    }
+
+    // A dash when nothing was recorded in the window
+    private static String millis(HistogramSnapshot window, long nanos) {
+        return window.getCount() == 0 ? "-" : String.format("%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    // Sections without metrics are left out
+    private static void appendSection(StringBuilder stats, String header, StringBuilder rows) {
+        if (!rows.isEmpty()) {
+            stats.append(System.lineSeparator()).append(header).append(rows);
+        }
+    }
+
+    private boolean includes(String name) {
+        return subsystem == null || subsystem(name).equals(subsystem);
+    }
+
+    private boolean hasSubsystem(MetricsSnapshot snapshot) {
+        return subsystems(snapshot).contains(subsystem);
+    }
+
+    private static TreeSet<String> subsystems(MetricsSnapshot snapshot) {
+        TreeSet<String> subsystems = new TreeSet<>();
+        snapshot.gauges().keySet().forEach(name -> subsystems.add(subsystem(name)));
+        snapshot.counters().keySet().forEach(name -> subsystems.add(subsystem(name)));
+        snapshot.histograms().keySet().forEach(name -> subsystems.add(subsystem(name)));
+        return subsystems;
+    }
+
+    private static String subsystem(String name) {
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+}
@@ -0,0 +1,8 @@
+package com.vlado.spotify.server.options;
+
+public enum RequestExecutionMode {
+    // Requests are executed on the selector thread which has read them
+    INLINE,
+    // Requests are executed on a separate pool and their responses are handed back to the selector thread
+    OFFLOADED
+}
@@ -0,0 +1,308 @@
+package com.vlado.spotify.server.options;
+
+import com.vlado.spotify.server.response.BackpressurePolicy;
+import com.vlado.spotify.song.StreamingMode;
+
+public class ServerOptions {
+    private final String host;
+    private final int port;
+    private StreamingMode streamingMode;
+    private int selectorThreads;
+    private RequestExecutionMode requestExecutionMode;
+    private int requestThreads;
+    private long outboundBudget;
+    private BackpressurePolicy backpressurePolicy;
+    private long slowConsumerTimeoutMillis;
+    private long streamLeadMillis;
+    private long idleTimeoutMillis;
+    private long snapshotIntervalMillis;
+    private long journalCommitIntervalMillis;
+    private long playlistFlushDelayMillis;
+    private int playlistCacheSize;
+    private long blockCacheSize;
+    private long accessLogSegmentSize;
+    private int metricsPort;
+
+    private ServerOptions(ServerOptionsBuilder builder) {
+        this.host = builder.host;
+        this.port = builder.port;
+        this.streamingMode = builder.streamingMode;
+        this.selectorThreads = builder.selectorThreads;
+        this.requestExecutionMode = builder.requestExecutionMode;
+        this.requestThreads = builder.requestThreads;
+        this.outboundBudget = builder.outboundBudget;
+        this.backpressurePolicy = builder.backpressurePolicy;
+        this.slowConsumerTimeoutMillis = builder.slowConsumerTimeoutMillis;
+        this.streamLeadMillis = builder.streamLeadMillis;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.snapshotIntervalMillis = builder.snapshotIntervalMillis;
+        this.journalCommitIntervalMillis = builder.journalCommitIntervalMillis;
+        this.playlistFlushDelayMillis = builder.playlistFlushDelayMillis;
+        this.playlistCacheSize = builder.playlistCacheSize;
+        this.blockCacheSize = builder.blockCacheSize;
+        this.accessLogSegmentSize = builder.accessLogSegmentSize;
+        this.metricsPort = builder.metricsPort;
+    }
+
+    public static ServerOptionsBuilder builder(String host, int port) {
+        return new ServerOptionsBuilder(host, port);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public StreamingMode getStreamingMode() {
+        return streamingMode;
+    }
+
+    public int getSelectorThreads() {
+        return selectorThreads;
+    }
+
+    public RequestExecutionMode getRequestExecutionMode() {
+        return requestExecutionMode;
+    }
+
+    public int getRequestThreads() {
+        return requestThreads;
+    }
+
+    public long getOutboundBudget() {
+        return outboundBudget;
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    public long getSlowConsumerTimeoutMillis() {
+        return slowConsumerTimeoutMillis;
+    }
+
+    public long getStreamLeadMillis() {
+        return streamLeadMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalMillis;
+    }
+
+    public long getJournalCommitIntervalMillis() {
+        return journalCommitIntervalMillis;
+    }
+
+    public long getPlaylistFlushDelayMillis() {
+        return playlistFlushDelayMillis;
+    }
+
+    public int getPlaylistCacheSize() {
+        return playlistCacheSize;
+    }
+
+    public long getBlockCacheSize() {
+        return blockCacheSize;
+    }
+
+    public long getAccessLogSegmentSize() {
+        return accessLogSegmentSize;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setStreamingMode(StreamingMode streamingMode) {
+        this.streamingMode = streamingMode;
+    }
+
+    public void setSelectorThreads(int selectorThreads) {
+        this.selectorThreads = selectorThreads;
+    }
+
+    public void setRequestExecutionMode(RequestExecutionMode requestExecutionMode) {
+        this.requestExecutionMode = requestExecutionMode;
+    }
+
+    public void setRequestThreads(int requestThreads) {
+        this.requestThreads = requestThreads;
+    }
+
+    public void setOutboundBudget(long outboundBudget) {
+        this.outboundBudget = outboundBudget;
+    }
+
+    public void setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+        this.backpressurePolicy = backpressurePolicy;
+    }
+
+    public void setSlowConsumerTimeoutMillis(long slowConsumerTimeoutMillis) {
+        this.slowConsumerTimeoutMillis = slowConsumerTimeoutMillis;
+    }
+
+    public void setStreamLeadMillis(long streamLeadMillis) {
+        this.streamLeadMillis = streamLeadMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    public void setJournalCommitIntervalMillis(long journalCommitIntervalMillis) {
+        this.journalCommitIntervalMillis = journalCommitIntervalMillis;
+    }
+
+    public void setPlaylistFlushDelayMillis(long playlistFlushDelayMillis) {
+        this.playlistFlushDelayMillis = playlistFlushDelayMillis;
+    }
+
+    public void setPlaylistCacheSize(int playlistCacheSize) {
+        this.playlistCacheSize = playlistCacheSize;
+    }
+
+    public void setBlockCacheSize(long blockCacheSize) {
+        this.blockCacheSize = blockCacheSize;
+    }
+
+    public void setAccessLogSegmentSize(long accessLogSegmentSize) {
+        this.accessLogSegmentSize = accessLogSegmentSize;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public static class ServerOptionsBuilder {
+        private final String host;
+        private final int port;
+
+        private StreamingMode streamingMode = StreamingMode.BUFFERED;
+        private int selectorThreads = Runtime.getRuntime().availableProcessors();
+        private RequestExecutionMode requestExecutionMode = RequestExecutionMode.INLINE;
+        // Requests mostly block on file I/O, so the pool is larger than the number of cores
+        private int requestThreads = 2 * Runtime.getRuntime().availableProcessors();
+        // Bytes of unsent responses a single connection may have queued
+        private long outboundBudget = 1024 * 1024;
+        private BackpressurePolicy backpressurePolicy = BackpressurePolicy.PAUSE;
+        private long slowConsumerTimeoutMillis = 30_000;
+        // How far a stream may run ahead of playback, OnlineUsers.UNPACED to send as fast as the client reads
+        private long streamLeadMillis = 2000;
+        // Connections without traffic for this long are closed, 0 to keep them open
+        private long idleTimeoutMillis = 15 * 60 * 1000;
+        // How often the song database is saved while the server runs, 0 to save only on stop
+        private long snapshotIntervalMillis = 5 * 60 * 1000;
+        // How often journaled song changes are synced to disk, 0 to keep them only until the next snapshot
+        private long journalCommitIntervalMillis = 50;
+        // How long songs added to playlists may wait to be written together with the next ones
+        private long playlistFlushDelayMillis = 100;
+        // How many playlists are kept in memory, the least recently used are read again when needed
+        private int playlistCacheSize = 10_000;
+        // Bytes of song data kept in memory by CACHED streaming
+        private long blockCacheSize = 64 * 1024 * 1024;
+        // Bytes of access log records per segment file, 0 to not log requests
+        private long accessLogSegmentSize = 4 * 1024 * 1024;
+        // Loopback port the metrics are served on for Prometheus, 0 to not serve them
+        private int metricsPort = 0;
+
+        public ServerOptionsBuilder(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public ServerOptionsBuilder setStreamingMode(StreamingMode streamingMode) {
+            this.streamingMode = streamingMode;
+            return this;
+        }
+
+        public ServerOptionsBuilder setSelectorThreads(int selectorThreads) {
+            this.selectorThreads = selectorThreads;
+            return this;
+        }
+
+        public ServerOptionsBuilder setRequestExecutionMode(RequestExecutionMode requestExecutionMode) {
+            this.requestExecutionMode = requestExecutionMode;
+            return this;
+        }
+
+        public ServerOptionsBuilder setRequestThreads(int requestThreads) {
+            this.requestThreads = requestThreads;
+            return this;
+        }
+
+        public ServerOptionsBuilder setOutboundBudget(long outboundBudget) {
+            this.outboundBudget = outboundBudget;
+            return this;
+        }
+
+        public ServerOptionsBuilder setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+            this.backpressurePolicy = backpressurePolicy;
+            return this;
+        }
+
+        public ServerOptionsBuilder setSlowConsumerTimeoutMillis(long slowConsumerTimeoutMillis) {
+            this.slowConsumerTimeoutMillis = slowConsumerTimeoutMillis;
+            return this;
+        }
+
+        public ServerOptionsBuilder setStreamLeadMillis(long streamLeadMillis) {
+            this.streamLeadMillis = streamLeadMillis;
+            return this;
+        }
+
+        public ServerOptionsBuilder setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public ServerOptionsBuilder setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+            this.snapshotIntervalMillis = snapshotIntervalMillis;
+            return this;
+        }
+
+        public ServerOptionsBuilder setJournalCommitIntervalMillis(long journalCommitIntervalMillis) {
+            this.journalCommitIntervalMillis = journalCommitIntervalMillis;
+            return this;
+        }
+
+        public ServerOptionsBuilder setPlaylistFlushDelayMillis(long playlistFlushDelayMillis) {
+            this.playlistFlushDelayMillis = playlistFlushDelayMillis;
+            return this;
+        }
+
+        public ServerOptionsBuilder setPlaylistCacheSize(int playlistCacheSize) {
+            this.playlistCacheSize = playlistCacheSize;
+            return this;
+        }
+
+        public ServerOptionsBuilder setBlockCacheSize(long blockCacheSize) {
+            this.blockCacheSize = blockCacheSize;
+            return this;
+        }
+
+        public ServerOptionsBuilder setAccessLogSegmentSize(long accessLogSegmentSize) {
+            this.accessLogSegmentSize = accessLogSegmentSize;
+            return this;
+        }
+
+        public ServerOptionsBuilder setMetricsPort(int metricsPort) {
+            this.metricsPort = metricsPort;
+            return this;
+        }
+
+        public ServerOptions build() {
+            return new ServerOptions(this);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.vlado.spotify.server.response;
+
+public enum BackpressurePolicy {
+    // A client over its outbound budget is not read from and not streamed to until its queue drains
+    PAUSE,
+    // Like PAUSE, but the client is disconnected if it stays over its budget for longer than the timeout
+    DISCONNECT
+}
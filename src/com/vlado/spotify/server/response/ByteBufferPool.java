@@ -0,0 +1,57 @@
+package com.vlado.spotify.server.response;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Direct buffers of one size, reused by every connection's outbound queue
+class ByteBufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> pooled;
+    private final AtomicInteger pooledCount;
+
+    ByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = ParameterValidator.checkPositive(bufferSize, "bufferSize");
+        this.maxPooled = ParameterValidator.checkNonNegative(maxPooled, "maxPooled");
+        this.pooled = new ConcurrentLinkedQueue<>();
+        this.pooledCount = new AtomicInteger();
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    int getPooledCount() {
+        return pooledCount.get();
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = pooled.poll();
+
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        pooledCount.decrementAndGet();
+        return buffer.clear();
+    }
+
+    void release(ByteBuffer buffer) {
+        ParameterValidator.checkNull(buffer, "buffer");
+
+        if (buffer.capacity() != bufferSize) {
+            throw new IllegalArgumentException("Buffer does not belong to this pool");
+        }
+
+        // Buffers over the limit are left to the garbage collector
+        if (pooledCount.incrementAndGet() <= maxPooled) {
+            pooled.add(buffer);
+        } else {
+            pooledCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.vlado.spotify.server.response;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+// Responses of one connection which are not yet written, kept in pooled buffers
+class OutboundQueue {
+    static final int MAX_GATHER = 64;
+
+    private static final long WITHIN_BUDGET = -1;
+
+    private final ByteBufferPool pool;
+    // Flipped buffers, the first one may be partially written
+    private final Deque<ByteBuffer> buffers;
+    private final ByteBuffer[] gather;
+    private long queuedBytes;
+    // System.nanoTime() of the moment the queue went over its budget
+    private long overBudgetSince = WITHIN_BUDGET;
+
+    OutboundQueue(ByteBufferPool pool) {
+        this.pool = ParameterValidator.checkNull(pool, "pool");
+        this.buffers = new ArrayDeque<>();
+        this.gather = new ByteBuffer[MAX_GATHER];
+    }
+
+    synchronized void add(byte code, byte[] message) {
+        ParameterValidator.checkNull(message, "message");
+
+        ByteBuffer buffer = pool.acquire();
+        buffer.putInt(message.length);
+        buffer.put(code);
+
+        int offset = 0;
+        while (true) {
+            int length = Math.min(buffer.remaining(), message.length - offset);
+            buffer.put(message, offset, length);
+            offset += length;
+
+            buffers.addLast(buffer.flip());
+            queuedBytes += buffer.remaining();
+
+            if (offset == message.length) {
+                return;
+            }
+            buffer = pool.acquire();
+        }
+    }
+
+    // Writes as much as the channel accepts, at most MAX_GATHER buffers per system call
+    synchronized long flush(GatheringByteChannel channel) throws IOException {
+        ParameterValidator.checkNull(channel, "channel");
+
+        long total = 0;
+
+        while (!buffers.isEmpty()) {
+            int count = 0;
+            long expected = 0;
+
+            Iterator<ByteBuffer> it = buffers.iterator();
+            while (it.hasNext() && count < MAX_GATHER) {
+                ByteBuffer buffer = it.next();
+                gather[count++] = buffer;
+                expected += buffer.remaining();
+            }
+
+            long written = channel.write(gather, 0, count);
+            total += written;
+            queuedBytes -= written;
+
+            while (!buffers.isEmpty() && !buffers.peekFirst().hasRemaining()) {
+                pool.release(buffers.pollFirst());
+            }
+
+            if (written < expected) {
+                break;
+            }
+        }
+
+        return total;
+    }
+
+    synchronized boolean isEmpty() {
+        return buffers.isEmpty();
+    }
+
+    synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    // Returns true only when the queue has just gone over the budget
+    synchronized boolean checkBudget(long budget, long now) {
+        if (queuedBytes <= budget) {
+            overBudgetSince = WITHIN_BUDGET;
+            return false;
+        }
+
+        if (overBudgetSince == WITHIN_BUDGET) {
+            overBudgetSince = now;
+            return true;
+        }
+
+        return false;
+    }
+
+    synchronized boolean isOverBudget() {
+        return overBudgetSince != WITHIN_BUDGET;
+    }
+
+    synchronized boolean isOverBudgetLongerThan(long timeoutNanos, long now) {
+        return overBudgetSince != WITHIN_BUDGET && now - overBudgetSince > timeoutNanos;
+    }
+
+    synchronized void clear() {
+        while (!buffers.isEmpty()) {
+            pool.release(buffers.pollFirst());
+        }
+        queuedBytes = 0;
+        overBudgetSince = WITHIN_BUDGET;
+    }
+}
@@ -2,113 +2,125 @@ package com.vlado.spotify.server.response;
 
 import java.nio.ByteBuffer;
 
-import com.carrotsearch.hppc.ByteArrayDeque;
-import com.carrotsearch.hppc.ByteDeque;
 import com.vlado.spotify.validations.ParameterValidator;
 
+// Growable ring buffer of framed responses: size (4 bytes), code (1 byte), payload (size bytes).
 public class ResponseBuffer {
     public static final int FRAGMENT_SIZE_BYTES = 4;
     public static final int CODE_BYTES = 1;
     public static final byte FRAGMENT = 0;
     public static final byte MESSAGE = 1;
+    public static final byte BINARY_MESSAGE = 2;
 
     private static final int MINIMAL_MESSAGE_SIZE = FRAGMENT_SIZE_BYTES + CODE_BYTES + 1;
     private static final int PARTIAL_MESSAGE_ERROR = -1;
-    private final ByteDeque buffer;
+    private static final int UNKNOWN_FRAGMENT_SIZE = -1;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // Capacity is always a power of two, so indexes wrap with a mask
+    private byte[] data;
+    private int head;
+    private int size;
+    // Fragment size read from the header at head, until head moves
+    private int fragmentSize = UNKNOWN_FRAGMENT_SIZE;
 
     public ResponseBuffer(int bufferSize) {
         ParameterValidator.checkPositive(bufferSize, "bufferSize");
-        this.buffer = new ByteArrayDeque(bufferSize);
+        this.data = new byte[capacityFor(bufferSize)];
     }
 
     public void putBack(ByteBuffer byteBuffer) {
         ParameterValidator.checkNull(byteBuffer, "byteBuffer");
 
-        while (byteBuffer.hasRemaining()) {
-            buffer.addLast(byteBuffer.get());
-        }
+        int length = byteBuffer.remaining();
+        ensureCapacity(length);
+
+        int tail = index(size);
+        int firstPart = Math.min(length, data.length - tail);
+        byteBuffer.get(data, tail, firstPart);
+        byteBuffer.get(data, 0, length - firstPart);
+
+        size += length;
     }
 
     public void putBack(byte[] bytes) {
         ParameterValidator.checkNull(bytes, "bytes");
 
-        for (byte b : bytes) {
-            buffer.addLast(b);
-        }
+        putBack(ByteBuffer.wrap(bytes));
     }
 
     public void putFront(byte[] bytes) {
         ParameterValidator.checkNull(bytes, "bytes");
 
-        for (int i = bytes.length - 1; i >= 0; --i) {
-            buffer.addFirst(bytes[i]);
-        }
+        putFront(ByteBuffer.wrap(bytes));
     }
+
     public void putFront(ByteBuffer byteBuffer) {
         ParameterValidator.checkNull(byteBuffer, "byteBuffer");
 
-        byte[] bytes = new byte[byteBuffer.remaining()];
-        for (int i = bytes.length - 1; i >= 0; --i) {
-            bytes[i] = byteBuffer.get();
-        }
+        int length = byteBuffer.remaining();
+        ensureCapacity(length);
 
-        for (byte b : bytes) {
-            buffer.addFirst(b);
-        }
+        head = index(-length);
+        int firstPart = Math.min(length, data.length - head);
+        byteBuffer.get(data, head, firstPart);
+        byteBuffer.get(data, 0, length - firstPart);
+
+        size += length;
+        fragmentSize = UNKNOWN_FRAGMENT_SIZE;
     }
 
     public byte[] getNext() {
-        int fragmentSize = getResponseSize();
+        int responseSize = getResponseSize();
 
-        if (fragmentSize == PARTIAL_MESSAGE_ERROR) {
+        if (responseSize == PARTIAL_MESSAGE_ERROR) {
             return null;
         }
 
-        for (int i = 0; i < FRAGMENT_SIZE_BYTES; ++i) {
-            buffer.removeFirst();
-        }
-
-        byte[] fragment = new byte[fragmentSize];
-        for (int i = 0; i < fragmentSize; ++i) {
-            fragment[i] = buffer.removeFirst();
-        }
+        byte[] response = copy(FRAGMENT_SIZE_BYTES, responseSize);
+        remove(FRAGMENT_SIZE_BYTES + responseSize);
 
-        return fragment;
+        return response;
     }
 
-    public byte[] peekNext() {
-        int fragmentSize = getResponseSize();
+    // Same bytes as getNext, without copying them.
+    // The returned buffer is only valid until the next change of this buffer.
+    public ByteBuffer getNextBuffer() {
+        int responseSize = getResponseSize();
 
-        if (fragmentSize == PARTIAL_MESSAGE_ERROR) {
+        if (responseSize == PARTIAL_MESSAGE_ERROR) {
             return null;
         }
 
-        var it = buffer.iterator();
-        for (int i = 0; i < FRAGMENT_SIZE_BYTES && it.hasNext(); ++i) {
-            it.next();
+        if (head + FRAGMENT_SIZE_BYTES + responseSize > data.length) {
+            // The response wraps around the end of the array
+            resize(data.length);
         }
 
-        byte[] fragment = new byte[fragmentSize];
-        int i;
-        for (i = 0; i < fragmentSize && it.hasNext(); ++i) {
-            fragment[i] = it.next().value;
+        ByteBuffer response = ByteBuffer.wrap(data, head + FRAGMENT_SIZE_BYTES, responseSize).slice();
+        remove(FRAGMENT_SIZE_BYTES + responseSize);
+
+        return response;
+    }
+
+    public byte[] peekNext() {
+        int responseSize = getResponseSize();
+
+        if (responseSize == PARTIAL_MESSAGE_ERROR) {
+            return null;
         }
 
-        return fragment;
+        return copy(FRAGMENT_SIZE_BYTES, responseSize);
     }
 
     public boolean skipNext() {
-        int fragmentSize = getResponseSize();
+        int responseSize = getResponseSize();
 
-        if (fragmentSize == PARTIAL_MESSAGE_ERROR) {
+        if (responseSize == PARTIAL_MESSAGE_ERROR) {
             return false;
         }
 
-        fragmentSize += FRAGMENT_SIZE_BYTES;
-        for (int i = 0; i < fragmentSize; ++i) {
-            buffer.removeFirst();
-        }
-
+        remove(FRAGMENT_SIZE_BYTES + responseSize);
         return true;
     }
 
@@ -117,42 +129,96 @@ public class ResponseBuffer {
     }
 
     public void clear() {
-        buffer.clear();
+        head = 0;
+        size = 0;
+        fragmentSize = UNKNOWN_FRAGMENT_SIZE;
     }
 
     public byte getNextCode() {
         if (hasResponse()) {
-            var it = buffer.iterator();
-            for (int i = 0; i < FRAGMENT_SIZE_BYTES; i++) {
-                it.next();
-            }
-
-            return it.next().value;
+            return data[index(FRAGMENT_SIZE_BYTES)];
         }
 
         return -1;
     }
 
     public boolean isEmpty() {
-        return buffer.isEmpty();
+        return size == 0;
     }
 
     private int getResponseSize() {
-        if (buffer.size() < MINIMAL_MESSAGE_SIZE) {
+        if (size < MINIMAL_MESSAGE_SIZE) {
             return PARTIAL_MESSAGE_ERROR;
         }
 
-        int fragmentSize = 0;
-        var it = buffer.iterator();
-        for (int i = 0; i < FRAGMENT_SIZE_BYTES; i++) {
-            fragmentSize <<= Byte.SIZE;
-            fragmentSize |= ((int) it.next().value) & 0xFF;
+        if (fragmentSize == UNKNOWN_FRAGMENT_SIZE) {
+            int headerSize = 0;
+            for (int i = 0; i < FRAGMENT_SIZE_BYTES; i++) {
+                headerSize <<= Byte.SIZE;
+                headerSize |= ((int) data[index(i)]) & 0xFF;
+            }
+            fragmentSize = headerSize;
         }
 
-        if (fragmentSize > buffer.size() - FRAGMENT_SIZE_BYTES - CODE_BYTES) {
+        if (fragmentSize > size - FRAGMENT_SIZE_BYTES - CODE_BYTES) {
             return PARTIAL_MESSAGE_ERROR;
         }
 
         return fragmentSize + CODE_BYTES;
     }
+
+    private byte[] copy(int offset, int length) {
+        byte[] result = new byte[length];
+
+        int start = index(offset);
+        int firstPart = Math.min(length, data.length - start);
+        System.arraycopy(data, start, result, 0, firstPart);
+        System.arraycopy(data, 0, result, firstPart, length - firstPart);
+
+        return result;
+    }
+
+    private void remove(int length) {
+        head = index(length);
+        size -= length;
+        fragmentSize = UNKNOWN_FRAGMENT_SIZE;
+
+        if (size == 0) {
+            head = 0;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (extra > MAX_CAPACITY - size) {
+            throw new IllegalStateException("Response buffer cannot grow past " + MAX_CAPACITY + " bytes");
+        }
+
+        if (size + extra > data.length) {
+            resize(capacityFor(size + extra));
+        }
+    }
+
+    // Moves the contents to the start of a new array of the given capacity
+    private void resize(int capacity) {
+        byte[] resized = new byte[capacity];
+
+        int firstPart = Math.min(size, data.length - head);
+        System.arraycopy(data, head, resized, 0, firstPart);
+        System.arraycopy(data, 0, resized, firstPart, size - firstPart);
+
+        data = resized;
+        head = 0;
+    }
+
+    private int index(int offset) {
+        return (head + offset) & (data.length - 1);
+    }
+
+    private static int capacityFor(int bytes) {
+        if (bytes > MAX_CAPACITY) {
+            throw new IllegalStateException("Response buffer cannot grow past " + MAX_CAPACITY + " bytes");
+        }
+
+        return bytes <= 1 ? 1 : Integer.highestOneBit(bytes - 1) << 1;
+    }
 }
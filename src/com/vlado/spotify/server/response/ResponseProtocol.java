@@ -0,0 +1,8 @@
+package com.vlado.spotify.server.response;
+
+public enum ResponseProtocol {
+    // Responses are serialized as Gson JSON, the default for clients which never ask for another protocol
+    JSON,
+    // Responses are encoded by ServerResponseCodec
+    BINARY
+}
@@ -1,39 +1,68 @@
 package com.vlado.spotify.server.response;
 
-import com.vlado.spotify.song.SongFragment;
+import com.vlado.spotify.metrics.Counter;
+import com.vlado.spotify.metrics.Histogram;
+import com.vlado.spotify.metrics.MetricsRegistry;
+import com.vlado.spotify.song.StreamSession;
 import com.vlado.spotify.validations.ParameterValidator;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class ResponseSender {
     private static final String NULL_PARAM_ERROR = "%s cannot be null";
     private static final int BUFFER_SIZE = 8192;
-    private static final byte MESSAGE = 1;
-    private static final byte FRAGMENT = 0;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    private static final long DEFAULT_OUTBOUND_BUDGET = 1024 * 1024;
+    private static final long DEFAULT_SLOW_CONSUMER_TIMEOUT_MILLIS = 30_000;
 
     private static final ResponseSender INSTANCE = new ResponseSender();
 
-    private final ByteBuffer buffer;
-    private final Map<SelectionKey, Deque<byte[]>> waitingResponses;
+    private final ByteBufferPool bufferPool;
+    private final Map<SelectionKey, OutboundQueue> waitingResponses;
+    // Clients which are not in the map receive JSON responses
+    private final Map<SelectionKey, ResponseProtocol> protocols;
+
+    private volatile long outboundBudget = DEFAULT_OUTBOUND_BUDGET;
+    private volatile BackpressurePolicy backpressurePolicy = BackpressurePolicy.PAUSE;
+    private volatile long slowConsumerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_CONSUMER_TIMEOUT_MILLIS);
+
+    // How many times a client went over its budget and was paused
+    private final Counter pauses;
+    // How many clients were disconnected for staying over their budget
+    private final Counter disconnects;
+
+    private final Histogram sendLatency;
+    private final Counter jsonBytes;
+    private final Counter binaryBytes;
+    private final Counter streamBytes;
 
     private ResponseSender() {
-        this.waitingResponses = new HashMap<>();
-        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.bufferPool = new ByteBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+        this.waitingResponses = new ConcurrentHashMap<>();
+        this.protocols = new ConcurrentHashMap<>();
+
+        MetricsRegistry metrics = MetricsRegistry.instance();
+        this.sendLatency = metrics.histogram("responses.send.latency");
+        this.jsonBytes = metrics.counter("responses.bytes.json");
+        this.binaryBytes = metrics.counter("responses.bytes.binary");
+        this.streamBytes = metrics.counter("streams.bytes");
+        metrics.gauge("responses.queued.bytes", this::getQueuedBytes);
+        this.pauses = metrics.counter("responses.pauses");
+        this.disconnects = metrics.counter("responses.disconnects");
     }
 
     public static ResponseSender instance() {
         return INSTANCE;
     }
 
-    public void send(SelectionKey client, ServerResponse response) throws IOException {
+    // Returns the size of the framed response
+    public int send(SelectionKey client, ServerResponse response) throws IOException {
         ParameterValidator.checkNull(client, "client");
         ParameterValidator.checkNull(response, "response");
 
@@ -42,114 +71,168 @@ public class ResponseSender {
             throw new IllegalStateException("Client channel is closed");
         }
 
-        boolean canWrite = sendQueued(client, clientChannel);
+        long start = System.nanoTime();
+        OutboundQueue queue = waitingResponses.computeIfAbsent(client, key -> new OutboundQueue(bufferPool));
+        byte[] message;
+        int size;
+        if (getProtocol(client) == ResponseProtocol.BINARY) {
+            message = ServerResponseCodec.encode(response);
+            queue.add(ResponseBuffer.BINARY_MESSAGE, message);
+            size = ResponseBuffer.FRAGMENT_SIZE_BYTES + ResponseBuffer.CODE_BYTES + message.length;
+            binaryBytes.add(size);
+        } else {
+            message = response.toString().getBytes(StandardCharsets.UTF_8);
+            queue.add(ResponseBuffer.MESSAGE, message);
+            size = ResponseBuffer.FRAGMENT_SIZE_BYTES + ResponseBuffer.CODE_BYTES + message.length;
+            jsonBytes.add(size);
+        }
+
+        queue.flush(clientChannel);
+        if (!queue.isEmpty()) {
+            waitForWrite(client, queue);
+        }
+        sendLatency.recordSince(start);
 
-        int responseSize = loadBuffer(response);
+        return size;
+    }
 
-        if (canWrite) {
-            int written = clientChannel.write(buffer);
+    public boolean sendStream(SelectionKey client, StreamSession session) throws IOException {
+        ParameterValidator.checkNull(client, "client");
+        ParameterValidator.checkNull(session, "session");
 
-            if (written != responseSize) {
-                saveResponseRemaining(client, written);
-            }
-        } else {
-            saveResponseRemaining(client, 0);
+        SocketChannel clientChannel = (SocketChannel) client.channel();
+        if (!clientChannel.isOpen()) {
+            throw new IllegalStateException("Client channel is closed");
+        }
+
+        if (!sendQueued(client, clientChannel)) {
+            return true;
         }
+
+        long written = session.writeTo(clientChannel);
+        if (written == StreamSession.STREAM_FINISHED) {
+            return false;
+        }
+        streamBytes.add(written);
+
+        client.interestOps(SelectionKey.OP_WRITE);
+        return true;
     }
 
     public boolean sendQueued(SelectionKey client, SocketChannel clientChannel) throws IOException {
         ParameterValidator.checkNull(client, "client");
         ParameterValidator.checkNull(clientChannel, "clientChannel");
 
-        boolean canWrite = true;
+        OutboundQueue queue = waitingResponses.get(client);
+        if (queue == null) {
+            return true;
+        }
 
-        if (waitingResponses.containsKey(client)) {
-            Deque<byte[]> responseDeque = waitingResponses.get(client);
+        queue.flush(clientChannel);
+        if (!queue.isEmpty()) {
+            waitForWrite(client, queue);
+            return false;
+        }
 
-            while (!responseDeque.isEmpty() && canWrite) {
-                byte[] byteResponse = responseDeque.peek();
-                int loaded = loadBuffer(byteResponse);
+        queue.checkBudget(outboundBudget, System.nanoTime());
+        client.interestOps(SelectionKey.OP_READ);
+        return true;
+    }
 
-                int written = clientChannel.write(buffer);
-                if (written != loaded) {
-                    canWrite = false;
-                    saveResponseRemaining(client, written);
-                }
+    public void setOutboundBudget(long outboundBudget) {
+        this.outboundBudget = ParameterValidator.checkPositive(outboundBudget, "outboundBudget");
+    }
 
-                responseDeque.poll();
-            }
+    public void setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+        this.backpressurePolicy = ParameterValidator.checkNull(backpressurePolicy, "backpressurePolicy");
+    }
 
-            if (responseDeque.isEmpty()) {
-                client.interestOps(SelectionKey.OP_READ);
-            }
-        }
+    public void setSlowConsumerTimeoutMillis(long slowConsumerTimeoutMillis) {
+        ParameterValidator.checkNonNegative(slowConsumerTimeoutMillis, "slowConsumerTimeoutMillis");
 
-        return canWrite;
+        this.slowConsumerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(slowConsumerTimeoutMillis);
     }
 
-    public void removeClientsMessageQueue(SelectionKey client) {
-        waitingResponses.remove(client);
+    public boolean isOverBudget(SelectionKey client) {
+        ParameterValidator.checkNull(client, "client");
+
+        OutboundQueue queue = waitingResponses.get(client);
+        return queue != null && queue.isOverBudget();
     }
 
-    private void saveResponseRemaining(SelectionKey client, int written) {
+    // True when the client should be disconnected under the DISCONNECT policy.
+    // Every positive answer is counted as a disconnect.
+    public boolean isSlowConsumer(SelectionKey client, long now) {
         ParameterValidator.checkNull(client, "client");
 
-        if (!waitingResponses.containsKey(client)) {
-            waitingResponses.put(client, new ArrayDeque<>());
+        if (backpressurePolicy != BackpressurePolicy.DISCONNECT) {
+            return false;
         }
 
-        Deque<byte[]> responseDeque = waitingResponses.get(client);
-        byte[] remaining = new byte[buffer.remaining()];
-        buffer.get(remaining);
-        if (written == 0) {
-            responseDeque.addLast(remaining);
-        } else {
-            responseDeque.addFirst(remaining);
+        OutboundQueue queue = waitingResponses.get(client);
+        if (queue != null && queue.isOverBudgetLongerThan(slowConsumerTimeoutNanos, now)) {
+            disconnects.increment();
+            return true;
         }
 
-        client.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return false;
     }
 
-    private int loadBuffer(ServerResponse response) {
-        ParameterValidator.checkNull(response, "response");
-
-        int responseSize;
+    public long getQueuedBytes(SelectionKey client) {
+        ParameterValidator.checkNull(client, "client");
 
-        buffer.clear();
-        if (response.getSongFragment() != null) {
-            SongFragment fragment = response.getSongFragment();
-            responseSize = fragment.getRead();
-            buffer.putInt(responseSize);
-            buffer.put(FRAGMENT);
+        OutboundQueue queue = waitingResponses.get(client);
+        return queue == null ? 0 : queue.getQueuedBytes();
+    }
 
-            for (int i = 0; i < fragment.getRead(); ++i) {
-                buffer.put(fragment.getFragment()[i]);
-            }
-        } else {
-            byte[] message = response.toString().getBytes(StandardCharsets.UTF_8);
-            responseSize = message.length;
-            buffer.putInt(responseSize);
-            buffer.put(MESSAGE);
-            buffer.put(message);
+    // Bytes of unsent responses of every client
+    public long getQueuedBytes() {
+        long queued = 0;
+        for (OutboundQueue queue : waitingResponses.values()) {
+            queued += queue.getQueuedBytes();
         }
-        buffer.flip();
 
-        return responseSize + ResponseBuffer.FRAGMENT_SIZE_BYTES + ResponseBuffer.CODE_BYTES;
+        return queued;
+    }
+
+    public long getPauses() {
+        return pauses.get();
+    }
+
+    public long getDisconnects() {
+        return disconnects.get();
+    }
+
+    public void setProtocol(SelectionKey client, ResponseProtocol protocol) {
+        ParameterValidator.checkNull(client, "client");
+        ParameterValidator.checkNull(protocol, "protocol");
+
+        protocols.put(client, protocol);
     }
 
-    private int loadBuffer(byte[] bytes, int offset, int length) {
-        ParameterValidator.checkNull(bytes, "bytes");
-        ParameterValidator.checkNonNegative(offset, "offset");
-        ParameterValidator.checkNonNegative(length, "length");
+    public ResponseProtocol getProtocol(SelectionKey client) {
+        ParameterValidator.checkNull(client, "client");
+
+        return protocols.getOrDefault(client, ResponseProtocol.JSON);
+    }
 
-        buffer.clear();
-        buffer.put(bytes, offset, length);
-        buffer.flip();
+    public void removeClientsMessageQueue(SelectionKey client) {
+        OutboundQueue queue = waitingResponses.remove(client);
+        if (queue != null) {
+            queue.clear();
+        }
 
-        return length;
+        protocols.remove(client);
     }
 
-    private int loadBuffer(byte[] bytes) {
-        return loadBuffer(bytes, 0, bytes.length);
+    // Over its budget the client is only written to, so it cannot make more responses by sending requests
+    private void waitForWrite(SelectionKey client, OutboundQueue queue) {
+        if (queue.checkBudget(outboundBudget, System.nanoTime())) {
+            pauses.increment();
+        }
+
+        client.interestOps(queue.isOverBudget()
+                ? SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
     }
 }
@@ -1,21 +1,20 @@
 package com.vlado.spotify.server.response;
 
 import com.google.gson.Gson;
-import com.vlado.spotify.song.SongFragment;
 import com.vlado.spotify.song.SongFormat;
 import com.vlado.spotify.validations.ParameterValidator;
 
 public class ServerResponse {
+    private static final Gson GSON = new Gson();
+
     private final ResponseStatus status;
     private final String message;
     private final SongFormat songFormat;
-    private final SongFragment songFragment;
 
-    private ServerResponse(ResponseStatus status, String message, SongFormat songFormat, SongFragment songFragment) {
+    private ServerResponse(ResponseStatus status, String message, SongFormat songFormat) {
         this.status = status;
         this.message = message;
         this.songFormat = songFormat;
-        this.songFragment = songFragment;
     }
 
     public static ServerResponse of(ResponseStatus status, String message, SongFormat songFormat) {
@@ -23,21 +22,14 @@ public class ServerResponse {
         ParameterValidator.checkNull(message, "message");
         ParameterValidator.checkNull(songFormat, "songFormat");
 
-        return new ServerResponse(status, message, songFormat, null);
+        return new ServerResponse(status, message, songFormat);
     }
 
     public static ServerResponse of(ResponseStatus status, String message) {
         ParameterValidator.checkNull(status, "status");
         ParameterValidator.checkNull(message, "message");
 
-        return new ServerResponse(status, message, null, null);
-    }
-
-    public static ServerResponse of(ResponseStatus status, SongFragment songFragment) {
-        ParameterValidator.checkNull(status, "status");
-        ParameterValidator.checkNull(songFragment, "songFragment");
-
-        return new ServerResponse(status, null, null, songFragment);
+        return new ServerResponse(status, message, null);
     }
 
     public ResponseStatus getStatus() {
@@ -52,10 +44,6 @@ public class ServerResponse {
         return songFormat;
     }
 
-    public SongFragment getSongFragment() {
-        return songFragment;
-    }
-
     public boolean isSuccessfulLogInResponse() {
         return status.equals(ResponseStatus.SUCCESSFULLY_LOGGED_IN);
     }
@@ -68,10 +56,6 @@ public class ServerResponse {
         return songFormat != null;
     }
 
-    public boolean isSongFragmentResponse() {
-        return songFragment != null;
-    }
-
     public boolean isStreamingStoppedResponse() {
         return status.equals(ResponseStatus.STOP_STREAMING);
     }
@@ -82,7 +66,6 @@ public class ServerResponse {
 
     @Override
     public String toString() {
-        Gson gson = new Gson();
-        return gson.toJson(this);
+        return GSON.toJson(this);
     }
 }
@@ -0,0 +1,105 @@
+package com.vlado.spotify.server.response;
+
+import com.vlado.spotify.song.SongFormat;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Binary form of a ServerResponse:
+// status ordinal (1 byte), flags (1 byte), the song format if HAS_SONG_FORMAT is set, then the UTF-8 message.
+// The song format is the encoding name (1 byte length + ASCII), sample rate (float), sample size in bits (int),
+// channels (int), frame size (int), frame rate (float) and big endian (1 byte).
+public class ServerResponseCodec {
+    private static final byte HAS_SONG_FORMAT = 1;
+    private static final int HEADER_SIZE = 2 * Byte.BYTES;
+    private static final int SONG_FORMAT_SIZE = Byte.BYTES + 2 * Float.BYTES + 3 * Integer.BYTES + Byte.BYTES;
+    private static final int MAX_ENCODING_LENGTH = Byte.MAX_VALUE;
+
+    private static final ResponseStatus[] STATUSES = ResponseStatus.values();
+
+    private ServerResponseCodec() {
+    }
+
+    public static byte[] encode(ServerResponse response) {
+        ParameterValidator.checkNull(response, "response");
+
+        byte[] message = response.getMessage().getBytes(StandardCharsets.UTF_8);
+        SongFormat songFormat = response.getSongFormat();
+        byte[] encoding = songFormat == null
+                ? null
+                : songFormat.getEncoding().getBytes(StandardCharsets.US_ASCII);
+
+        if (encoding != null && encoding.length > MAX_ENCODING_LENGTH) {
+            throw new IllegalArgumentException("Song format encoding is too long");
+        }
+
+        int size = HEADER_SIZE + message.length + (encoding == null ? 0 : SONG_FORMAT_SIZE + encoding.length);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        buffer.put((byte) response.getStatus().ordinal());
+        buffer.put(encoding == null ? 0 : HAS_SONG_FORMAT);
+        if (encoding != null) {
+            buffer.put((byte) encoding.length);
+            buffer.put(encoding);
+            buffer.putFloat(songFormat.getSampleRate());
+            buffer.putInt(songFormat.getSampleSizeInBits());
+            buffer.putInt(songFormat.getChannels());
+            buffer.putInt(songFormat.getFrameSize());
+            buffer.putFloat(songFormat.getFrameRate());
+            buffer.put((byte) (songFormat.isBigEndian() ? 1 : 0));
+        }
+        buffer.put(message);
+
+        return buffer.array();
+    }
+
+    public static ServerResponse decode(byte[] bytes) {
+        ParameterValidator.checkNull(bytes, "bytes");
+
+        return decode(bytes, 0, bytes.length);
+    }
+
+    public static ServerResponse decode(byte[] bytes, int offset, int length) {
+        ParameterValidator.checkNull(bytes, "bytes");
+        ParameterValidator.checkNonNegative(offset, "offset");
+        ParameterValidator.checkNonNegative(length, "length");
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+
+        try {
+            int statusIndex = buffer.get();
+            if (statusIndex < 0 || statusIndex >= STATUSES.length) {
+                throw new IllegalArgumentException("Unknown response status: " + statusIndex);
+            }
+            ResponseStatus status = STATUSES[statusIndex];
+
+            SongFormat songFormat = null;
+            if ((buffer.get() & HAS_SONG_FORMAT) != 0) {
+                int encodingLength = buffer.get() & 0xFF;
+                if (encodingLength > MAX_ENCODING_LENGTH) {
+                    throw new IllegalArgumentException("Song format encoding is too long: " + encodingLength);
+                }
+                byte[] encoding = new byte[encodingLength];
+                buffer.get(encoding);
+
+                songFormat = new SongFormat(new String(encoding, StandardCharsets.US_ASCII),
+                        buffer.getFloat(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getFloat(),
+                        buffer.get() != 0);
+            }
+
+            String message = new String(bytes, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+
+            return songFormat == null
+                    ? ServerResponse.of(status, message)
+                    : ServerResponse.of(status, message, songFormat);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated binary response", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.vlado.spotify.server.timer;
+
+// Handle of a task scheduled on a TimerWheel. Must be used from the thread owning the wheel.
+public interface Timeout {
+    // Returns false if the task has already run or was cancelled before
+    boolean cancel();
+
+    boolean isCancelled();
+
+    // True once a one-shot task has run. Periodic tasks never expire.
+    boolean isExpired();
+}
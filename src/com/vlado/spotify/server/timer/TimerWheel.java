@@ -0,0 +1,280 @@
+package com.vlado.spotify.server.timer;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Hashed timer wheel owned by a single thread. Scheduling and cancelling are O(1) and the owner
+// runs the expired tasks by calling advance from its event loop.
+public class TimerWheel {
+    public static final long NO_TIMERS = -1;
+
+    private static final long UNKNOWN_TICK = -1;
+
+    private final long tickNanos;
+    private final TimerNode[] buckets;
+    private final int mask;
+    private final long startNanos;
+    private final Consumer<Throwable> errorHandler;
+
+    // Index of the next tick to be processed
+    private long currentTick;
+    private int pending;
+    // Earliest tick with a timer in it, recomputed lazily after that timer leaves the wheel
+    private long nextDeadlineTick = UNKNOWN_TICK;
+
+    public TimerWheel(long tickDuration, TimeUnit unit, int wheelSize, Consumer<Throwable> errorHandler) {
+        ParameterValidator.checkNull(unit, "unit");
+        ParameterValidator.checkPositive(wheelSize, "wheelSize");
+        this.errorHandler = ParameterValidator.checkNull(errorHandler, "errorHandler");
+
+        this.tickNanos = ParameterValidator.checkPositive(unit.toNanos(tickDuration), "tickDuration");
+        // A power of two number of buckets lets ticks be mapped to buckets with a mask
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.buckets = new TimerNode[Math.max(size, 1)];
+        this.mask = buckets.length - 1;
+        this.startNanos = System.nanoTime();
+    }
+
+    public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        ParameterValidator.checkNull(unit, "unit");
+        ParameterValidator.checkNull(task, "task");
+
+        TimerNode node = new TimerNode(task, 0);
+        add(node, System.nanoTime() + Math.max(unit.toNanos(delay), 0));
+
+        return node;
+    }
+
+    // Runs task every period after the initial delay, until its timeout is cancelled.
+    // A task which runs late is not run again to catch up.
+    public Timeout schedulePeriodic(long initialDelay, long period, TimeUnit unit, Runnable task) {
+        ParameterValidator.checkNull(unit, "unit");
+        ParameterValidator.checkNull(task, "task");
+
+        TimerNode node = new TimerNode(task, ParameterValidator.checkPositive(unit.toNanos(period), "period"));
+        add(node, System.nanoTime() + Math.max(unit.toNanos(initialDelay), 0));
+
+        return node;
+    }
+
+    // Runs every task whose deadline has passed. Returns the number of tasks run.
+    public int advance(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        int expired = 0;
+
+        while (currentTick <= targetTick) {
+            long tick = nextDeadlineTick();
+            if (tick == UNKNOWN_TICK || tick > targetTick) {
+                // Ticks without timers are skipped at once
+                currentTick = targetTick + 1;
+                break;
+            }
+
+            // Moved first, so tasks scheduled by the expired ones land in a later tick
+            currentTick = tick + 1;
+            expired += expireBucket(tick, nowNanos);
+        }
+
+        return expired;
+    }
+
+    // Time until the earliest scheduled deadline, NO_TIMERS if nothing is scheduled
+    public long nanosUntilNextDeadline(long nowNanos) {
+        long tick = nextDeadlineTick();
+        if (tick == UNKNOWN_TICK) {
+            return NO_TIMERS;
+        }
+
+        return Math.max(startNanos + tick * tickNanos - nowNanos, 0);
+    }
+
+    // Timeout for Selector.select, which waits without a timeout for 0.
+    // Rounded up to whole milliseconds, so the deadline has passed when select returns.
+    public long selectTimeoutMillis(long nowNanos) {
+        long timeout = nanosUntilNextDeadline(nowNanos);
+        if (timeout == NO_TIMERS) {
+            return 0;
+        }
+
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(timeout + TimeUnit.MILLISECONDS.toNanos(1) - 1), 1);
+    }
+
+    public int size() {
+        return pending;
+    }
+
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    private void add(TimerNode node, long deadlineNanos) {
+        // Rounded up, so a task never runs before its deadline
+        long tick = Math.max((deadlineNanos - startNanos + tickNanos - 1) / tickNanos, currentTick);
+
+        node.deadlineNanos = deadlineNanos;
+        node.tick = tick;
+        node.link(buckets, (int) (tick & mask));
+        pending++;
+
+        if (nextDeadlineTick != UNKNOWN_TICK && tick < nextDeadlineTick) {
+            nextDeadlineTick = tick;
+        } else if (pending == 1) {
+            nextDeadlineTick = tick;
+        }
+    }
+
+    private void remove(TimerNode node) {
+        node.unlink(buckets, (int) (node.tick & mask));
+        pending--;
+
+        if (node.tick == nextDeadlineTick) {
+            nextDeadlineTick = UNKNOWN_TICK;
+        }
+    }
+
+    private long nextDeadlineTick() {
+        if (nextDeadlineTick == UNKNOWN_TICK && pending > 0) {
+            nextDeadlineTick = findNextDeadlineTick();
+        }
+
+        return nextDeadlineTick;
+    }
+
+    // Timers due in the coming rotation are found by scanning the buckets in order.
+    // Otherwise the earliest timer of a later rotation is the answer.
+    private long findNextDeadlineTick() {
+        long earliest = Long.MAX_VALUE;
+
+        for (int i = 0; i < buckets.length; i++) {
+            long tick = currentTick + i;
+
+            for (TimerNode node = buckets[(int) (tick & mask)]; node != null; node = node.next) {
+                if (node.tick == tick) {
+                    return tick;
+                }
+                earliest = Math.min(earliest, node.tick);
+            }
+        }
+
+        return earliest;
+    }
+
+    private int expireBucket(long tick, long nowNanos) {
+        int bucket = (int) (tick & mask);
+        TimerNode expired = null;
+
+        // Nodes are unlinked first, so tasks may schedule and cancel other timers
+        TimerNode node = buckets[bucket];
+        while (node != null) {
+            TimerNode next = node.next;
+
+            if (node.tick <= tick) {
+                remove(node);
+                node.next = expired;
+                expired = node;
+            }
+
+            node = next;
+        }
+
+        int count = 0;
+        while (expired != null) {
+            TimerNode current = expired;
+            expired = expired.next;
+            current.next = null;
+            count++;
+
+            run(current, nowNanos);
+        }
+
+        return count;
+    }
+
+    private void run(TimerNode node, long nowNanos) {
+        node.state = node.isPeriodic() ? TimerNode.RUNNING : TimerNode.EXPIRED;
+
+        try {
+            node.task.run();
+        } catch (Throwable e) {
+            errorHandler.accept(e);
+        }
+
+        if (node.state == TimerNode.RUNNING) {
+            node.state = TimerNode.PENDING;
+            add(node, Math.max(node.deadlineNanos + node.periodNanos, nowNanos));
+        }
+    }
+
+    private class TimerNode implements Timeout {
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int EXPIRED = 2;
+        private static final int CANCELLED = 3;
+
+        private final Runnable task;
+        private final long periodNanos;
+        private long deadlineNanos;
+        private long tick;
+        private int state = PENDING;
+
+        private TimerNode previous;
+        private TimerNode next;
+
+        TimerNode(Runnable task, long periodNanos) {
+            this.task = task;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (state == PENDING) {
+                remove(this);
+            } else if (state != RUNNING) {
+                return false;
+            }
+
+            state = CANCELLED;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        boolean isPeriodic() {
+            return periodNanos > 0;
+        }
+
+        void link(TimerNode[] buckets, int bucket) {
+            previous = null;
+            next = buckets[bucket];
+            if (next != null) {
+                next.previous = this;
+            }
+            buckets[bucket] = this;
+        }
+
+        void unlink(TimerNode[] buckets, int bucket) {
+            if (previous == null) {
+                buckets[bucket] = next;
+            } else {
+                previous.next = next;
+            }
+
+            if (next != null) {
+                next.previous = previous;
+            }
+
+            previous = null;
+            next = null;
+        }
+    }
+}
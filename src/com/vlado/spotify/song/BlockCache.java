@@ -0,0 +1,192 @@
+package com.vlado.spotify.song;
+
+import com.vlado.spotify.metrics.Counter;
+import com.vlado.spotify.metrics.MetricsRegistry;
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Fixed-size blocks of song data shared by every stream of the same song.
+// Blocks are evicted in LRU order once the cache is over its capacity, except while a stream holds them.
+public class BlockCache {
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private final int blockSize;
+    private final long capacity;
+    // Access ordered, so iteration starts from the least recently used block
+    private final Map<BlockKey, Block> blocks;
+    private long size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    // Shared by every cache, the server uses one at a time
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+
+    public BlockCache(long capacity) {
+        this(capacity, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BlockCache(long capacity, int blockSize) {
+        this.capacity = ParameterValidator.checkPositive(capacity, "capacity");
+        this.blockSize = ParameterValidator.checkPositive(blockSize, "blockSize");
+        this.blocks = new LinkedHashMap<>(16, 0.75f, true);
+
+        MetricsRegistry metrics = MetricsRegistry.instance();
+        this.hitsCounter = metrics.counter("cache.blocks.hits");
+        this.missesCounter = metrics.counter("cache.blocks.misses");
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    // Returns the block with the given index of the song's data, reading it on a miss.
+    // The block is held until it is released and is not evicted before that.
+    public Block acquire(Path path, long index, SongChannel source) throws IOException {
+        ParameterValidator.checkNull(path, "path");
+        ParameterValidator.checkNonNegative(index, "index");
+        ParameterValidator.checkNull(source, "source");
+
+        BlockKey key = new BlockKey(path, index);
+        synchronized (this) {
+            Block block = blocks.get(key);
+            if (block != null) {
+                hits++;
+                hitsCounter.increment();
+                block.references++;
+                return block;
+            }
+            misses++;
+            missesCounter.increment();
+        }
+
+        // Read without the lock, so a miss does not stall streams of other songs
+        ByteBuffer data = ByteBuffer.allocateDirect(blockSize);
+        if (source.readData(data, index * blockSize) <= 0) {
+            throw new IllegalArgumentException(String.format("Block %d is past the end of %s", index, path));
+        }
+        data.flip();
+
+        synchronized (this) {
+            // Another stream may have read the same block meanwhile
+            Block block = blocks.get(key);
+            if (block != null) {
+                block.references++;
+                return block;
+            }
+
+            block = new Block(key, data.asReadOnlyBuffer());
+            // Held before evicting, so the new block is not evicted itself
+            block.references++;
+            blocks.put(key, block);
+            size += block.size();
+            evict();
+
+            return block;
+        }
+    }
+
+    // Drops the unused blocks of a song, the held ones are dropped when released
+    public synchronized void invalidate(Path path) {
+        ParameterValidator.checkNull(path, "path");
+
+        Iterator<Block> it = blocks.values().iterator();
+        while (it.hasNext()) {
+            Block block = it.next();
+            if (block.key.path().equals(path)) {
+                it.remove();
+                size -= block.size();
+                block.detached = true;
+            }
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getBlockCount() {
+        return blocks.size();
+    }
+
+    private synchronized void release(Block block) {
+        if (block.references == 0) {
+            throw new IllegalStateException("Block is not held");
+        }
+        block.references--;
+
+        if (block.references == 0 && !block.detached) {
+            evict();
+        }
+    }
+
+    // Held blocks are skipped, so the cache stays over its capacity while every block is in use
+    private void evict() {
+        Iterator<Block> it = blocks.values().iterator();
+        while (size > capacity && it.hasNext()) {
+            Block block = it.next();
+            if (block.references == 0) {
+                it.remove();
+                size -= block.size();
+                evictions++;
+            }
+        }
+    }
+
+    private record BlockKey(Path path, long index) {
+    }
+
+    public class Block {
+        private final BlockKey key;
+        private final ByteBuffer data;
+        // Guarded by the cache
+        private int references;
+        private boolean detached;
+
+        private Block(BlockKey key, ByteBuffer data) {
+            this.key = key;
+            this.data = data;
+        }
+
+        public long getIndex() {
+            return key.index();
+        }
+
+        public int size() {
+            return data.limit();
+        }
+
+        // A view of the block data with its own position, so streams do not interfere
+        public ByteBuffer data() {
+            return data.duplicate();
+        }
+
+        // Every acquire must be followed by exactly one release
+        public void release() {
+            BlockCache.this.release(this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.vlado.spotify.song;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// The data chunk of a song file mapped into memory. The file is closed once it is mapped.
+public class MappedSong {
+    private final WavHeader header;
+    private final ByteBuffer data;
+
+    private MappedSong(WavHeader header, ByteBuffer data) {
+        this.header = header;
+        this.data = data;
+    }
+
+    public static MappedSong map(Path path) throws IOException, UnsupportedAudioFileException {
+        ParameterValidator.checkNull(path, "path");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WavHeader header = WavHeader.read(channel);
+            if (header.getDataLength() > Integer.MAX_VALUE) {
+                throw new UnsupportedAudioFileException("The data chunk is too large to be mapped");
+            }
+
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY,
+                    header.getDataOffset(), header.getDataLength());
+            return new MappedSong(header, data);
+        }
+    }
+
+    public WavHeader getHeader() {
+        return header;
+    }
+
+    // A view of the data chunk with its own position
+    public ByteBuffer data() {
+        return data.duplicate();
+    }
+}
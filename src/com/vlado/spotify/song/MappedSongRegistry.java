@@ -0,0 +1,55 @@
+package com.vlado.spotify.song;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps each song file once and shares the mapping between every MAPPED stream of the song
+public class MappedSongRegistry {
+    private final Map<Path, MappedSong> songs;
+
+    public MappedSongRegistry() {
+        this.songs = new ConcurrentHashMap<>();
+    }
+
+    public MappedSong get(Path path) throws IOException, UnsupportedAudioFileException {
+        ParameterValidator.checkNull(path, "path");
+
+        MappedSong song = songs.get(path);
+        if (song != null) {
+            return song;
+        }
+
+        // Two streams may map the same song at once, then only one mapping is kept
+        MappedSong mapped = MappedSong.map(path);
+        song = songs.putIfAbsent(path, mapped);
+
+        return song == null ? mapped : song;
+    }
+
+    // Streams which already use the mapping keep it until they end.
+    // The memory is unmapped once the mapping is no longer reachable.
+    public void remove(Path path) {
+        ParameterValidator.checkNull(path, "path");
+
+        songs.remove(path);
+    }
+
+    public boolean contains(Path path) {
+        ParameterValidator.checkNull(path, "path");
+
+        return songs.containsKey(path);
+    }
+
+    public int size() {
+        return songs.size();
+    }
+
+    public void clear() {
+        songs.clear();
+    }
+}
@@ -5,21 +5,32 @@ import com.vlado.spotify.validations.ParameterValidator;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Song implements Serializable {
     private static final String SONG_FORMAT = ".wav";
 
     private final String name;
     private final String artist;
-    private int streams;
+    // Plays are counted from many threads at once, so they are striped instead of contending on one field
+    private final LongAdder streams;
     private final Path path;
+    // Null until the song file is probed
+    private final WavHeader header;
 
-    public Song(String name, String artist, int streams, Path path) {
+    public Song(String name, String artist, long streams, Path path) {
+        this(name, artist, streams, path, null);
+    }
+
+    public Song(String name, String artist, long streams, Path path, WavHeader header) {
         this.name = ParameterValidator.checkNull(name, "name");
         this.artist = ParameterValidator.checkNull(artist, "artist");
-        this.streams = ParameterValidator.checkNonNegative(streams, "streams");
+        this.streams = new LongAdder();
+        this.streams.add(ParameterValidator.checkNonNegative(streams, "streams"));
         this.path = ParameterValidator.checkNull(path, "path");
+        this.header = header;
     }
 
     public String name() {
@@ -30,16 +41,31 @@ public class Song implements Serializable {
         return artist;
     }
 
-    public int streams() {
-        return streams;
+    public long streams() {
+        return streams.sum();
     }
 
     public Path path() {
         return path;
     }
 
+    public WavHeader header() {
+        return header;
+    }
+
+    // Zero when the song file is not probed yet
+    public Duration duration() {
+        return header == null ? Duration.ZERO : header.getDuration();
+    }
+
+    public Song withHeader(WavHeader header) {
+        ParameterValidator.checkNull(header, "header");
+
+        return new Song(name, artist, streams(), path, header);
+    }
+
     public void incrementStreams() {
-        streams += 1;
+        streams.increment();
     }
 
     @Override
@@ -61,7 +87,7 @@ public class Song implements Serializable {
         return "Song[" +
                 "name=" + name + ", " +
                 "artist=" + artist + ", " +
-                "streams=" + streams + ", " +
+                "streams=" + streams.sum() + ", " +
                 "path=" + path + ']';
     }
 
@@ -0,0 +1,160 @@
+package com.vlado.spotify.song;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SongChannel implements Closeable {
+    // Exactly one of channel and mapped is set
+    private final FileChannel channel;
+    private final ByteBuffer mapped;
+    private final WavHeader header;
+    private final long end;
+    private long position;
+
+    private SongChannel(FileChannel channel, ByteBuffer mapped, WavHeader header) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.header = header;
+        this.position = header.getDataOffset();
+        this.end = header.getDataOffset() + header.getDataLength();
+    }
+
+    public static SongChannel open(Path path) throws IOException, UnsupportedAudioFileException {
+        ParameterValidator.checkNull(path, "path");
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SongChannel(channel, null, WavHeader.read(channel));
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Opens a song whose header is already known, without reading it again
+    public static SongChannel open(Path path, WavHeader header) throws IOException {
+        ParameterValidator.checkNull(path, "path");
+        ParameterValidator.checkNull(header, "header");
+
+        return new SongChannel(FileChannel.open(path, StandardOpenOption.READ), null, header);
+    }
+
+    // Reads the song from memory instead of a file
+    public static SongChannel open(MappedSong song) {
+        ParameterValidator.checkNull(song, "song");
+
+        return new SongChannel(null, song.data(), song.getHeader());
+    }
+
+    public WavHeader getHeader() {
+        return header;
+    }
+
+    public long remaining() {
+        return end - position;
+    }
+
+    public boolean hasRemaining() {
+        return position < end;
+    }
+
+    public int read(ByteBuffer destination) throws IOException {
+        ParameterValidator.checkNull(destination, "destination");
+
+        if (!hasRemaining()) {
+            return -1;
+        }
+
+        int limit = destination.limit();
+        if (destination.remaining() > remaining()) {
+            destination.limit(destination.position() + (int) remaining());
+        }
+
+        try {
+            int read = mapped == null
+                    ? channel.read(destination, position)
+                    : copyMapped(destination, position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        } finally {
+            destination.limit(limit);
+        }
+    }
+
+    // Reads from the given offset into the data chunk without moving the position of the channel
+    public int readData(ByteBuffer destination, long dataOffset) throws IOException {
+        ParameterValidator.checkNull(destination, "destination");
+        ParameterValidator.checkNonNegative(dataOffset, "dataOffset");
+
+        long available = header.getDataLength() - dataOffset;
+        if (available <= 0) {
+            return -1;
+        }
+
+        int limit = destination.limit();
+        if (destination.remaining() > available) {
+            destination.limit(destination.position() + (int) available);
+        }
+
+        try {
+            if (mapped != null) {
+                return copyMapped(destination, header.getDataOffset() + dataOffset);
+            }
+
+            int read = 0;
+            while (destination.hasRemaining()) {
+                int bytes = channel.read(destination, header.getDataOffset() + dataOffset + read);
+                if (bytes < 0) {
+                    break;
+                }
+                read += bytes;
+            }
+            return read;
+        } finally {
+            destination.limit(limit);
+        }
+    }
+
+    public long transferTo(WritableByteChannel target, long count) throws IOException {
+        ParameterValidator.checkNull(target, "target");
+
+        long transferred;
+        if (mapped == null) {
+            transferred = channel.transferTo(position, Math.min(count, remaining()), target);
+        } else {
+            int length = (int) Math.min(count, remaining());
+            transferred = target.write(mapped.slice(mappedIndex(position), length));
+        }
+        position += transferred;
+
+        return transferred;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private int copyMapped(ByteBuffer destination, long filePosition) {
+        int length = destination.remaining();
+        destination.put(mapped.slice(mappedIndex(filePosition), length));
+
+        return length;
+    }
+
+    private int mappedIndex(long filePosition) {
+        return (int) (filePosition - header.getDataOffset());
+    }
+}
@@ -45,6 +45,34 @@ public class SongFormat implements Serializable {
         );
     }
 
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getSampleSizeInBits() {
+        return sampleSizeInBits;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public float getFrameRate() {
+        return frameRate;
+    }
+
+    public boolean isBigEndian() {
+        return bigEndian;
+    }
+
     public AudioFormat toAudioFormat() {
         AudioFormat.Encoding encode = switch (this.encoding) {
             case "ALAW" -> AudioFormat.Encoding.ALAW;
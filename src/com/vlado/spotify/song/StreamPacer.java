@@ -0,0 +1,46 @@
+package com.vlado.spotify.song;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.util.concurrent.TimeUnit;
+
+// Lets a stream run at most lead ahead of real time, measured from its first write
+public class StreamPacer {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long NOT_STARTED = -1;
+
+    private final double bytesPerSecond;
+    private final long leadNanos;
+    private long startNanos = NOT_STARTED;
+
+    public StreamPacer(SongFormat format, long leadMillis) {
+        ParameterValidator.checkNull(format, "format");
+        ParameterValidator.checkNonNegative(leadMillis, "leadMillis");
+
+        // Formats without a known frame rate are not paced
+        this.bytesPerSecond = format.getFrameRate() > 0 && format.getFrameSize() > 0
+                ? (double) format.getFrameRate() * format.getFrameSize()
+                : 0;
+        this.leadNanos = TimeUnit.MILLISECONDS.toNanos(leadMillis);
+    }
+
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void start(long nowNanos) {
+        if (startNanos == NOT_STARTED) {
+            startNanos = nowNanos;
+        }
+    }
+
+    // How long to wait before sending more than bytesSent, 0 if the stream may send now
+    public long delayNanos(long bytesSent, long nowNanos) {
+        if (bytesPerSecond == 0 || startNanos == NOT_STARTED) {
+            return 0;
+        }
+
+        long dueNanos = startNanos - leadNanos + (long) (bytesSent / bytesPerSecond * NANOS_PER_SECOND);
+        return Math.max(dueNanos - nowNanos, 0);
+    }
+}
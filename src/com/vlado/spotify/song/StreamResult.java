@@ -0,0 +1,10 @@
+package com.vlado.spotify.song;
+
+public enum StreamResult {
+    // A fragment was sent and the song has more to send
+    STREAMING,
+    // The song was sent to the end and its session was closed by this call
+    FINISHED,
+    // The session was already stopped, e.g. by a request handled on another thread
+    STOPPED
+}
@@ -0,0 +1,193 @@
+package com.vlado.spotify.song;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class StreamSession implements Closeable {
+    public static final int FRAME_HEADER_SIZE = Integer.BYTES + Byte.BYTES;
+    public static final int STREAM_FINISHED = -1;
+
+    private static final byte FRAGMENT = 0;
+
+    private final Song song;
+    private final SongChannel songChannel;
+    private final StreamingMode streamingMode;
+    private final int maxFragmentSize;
+    // Null when the stream is sent as fast as the client reads it
+    private final StreamPacer pacer;
+    // CACHED: the cache the song data is read from
+    private final BlockCache blockCache;
+    // BUFFERED: the whole frame, otherwise only the frame header
+    private final ByteBuffer buffer;
+    // ZERO_COPY, CACHED and MAPPED: bytes of the current frame which are not yet transferred
+    private long frameRemaining;
+    // CACHED: the held block, the part of it in the current frame and the data offset of the next frame
+    private BlockCache.Block block;
+    private ByteBuffer blockData;
+    private long dataPosition;
+
+    private long bytesSent;
+    private long fragmentsSent;
+    private boolean closed;
+
+    public StreamSession(Song song, SongChannel songChannel, StreamingMode streamingMode, int maxFragmentSize) {
+        this(song, songChannel, streamingMode, maxFragmentSize, null);
+    }
+
+    public StreamSession(Song song, SongChannel songChannel, StreamingMode streamingMode, int maxFragmentSize,
+                         StreamPacer pacer) {
+        this(song, songChannel, streamingMode, maxFragmentSize, pacer, null);
+    }
+
+    public StreamSession(Song song, SongChannel songChannel, StreamingMode streamingMode, int maxFragmentSize,
+                         StreamPacer pacer, BlockCache blockCache) {
+        this.song = ParameterValidator.checkNull(song, "song");
+        this.songChannel = ParameterValidator.checkNull(songChannel, "songChannel");
+        this.streamingMode = ParameterValidator.checkNull(streamingMode, "streamingMode");
+        this.maxFragmentSize = ParameterValidator.checkPositive(maxFragmentSize, "maxFragmentSize");
+        this.pacer = pacer;
+        this.blockCache = streamingMode == StreamingMode.CACHED
+                ? ParameterValidator.checkNull(blockCache, "blockCache")
+                : null;
+
+        int bufferSize = streamingMode == StreamingMode.BUFFERED
+                ? FRAME_HEADER_SIZE + maxFragmentSize
+                : FRAME_HEADER_SIZE;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).flip();
+    }
+
+    public Song getSong() {
+        return song;
+    }
+
+    public SongFormat getFormat() {
+        return songChannel.getHeader().getFormat();
+    }
+
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    public synchronized long getFragmentsSent() {
+        return fragmentsSent;
+    }
+
+    public synchronized long getPacingDelayNanos(long nowNanos) {
+        return pacer == null || closed ? 0 : pacer.delayNanos(bytesSent, nowNanos);
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized long writeTo(WritableByteChannel channel) throws IOException {
+        ParameterValidator.checkNull(channel, "channel");
+
+        if (closed || (!hasPendingFrame() && !startFrame())) {
+            return STREAM_FINISHED;
+        }
+
+        if (pacer != null) {
+            pacer.start(System.nanoTime());
+        }
+
+        long written = 0;
+        if (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+
+        if (!buffer.hasRemaining() && frameRemaining > 0) {
+            long transferred = streamingMode == StreamingMode.CACHED
+                    ? channel.write(blockData)
+                    : songChannel.transferTo(channel, frameRemaining);
+            frameRemaining -= transferred;
+            written += transferred;
+        }
+
+        bytesSent += written;
+        return written;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            releaseBlock();
+            songChannel.close();
+        }
+    }
+
+    private boolean hasPendingFrame() {
+        return buffer.hasRemaining() || frameRemaining > 0;
+    }
+
+    private boolean startFrame() throws IOException {
+        int fragmentSize;
+
+        buffer.clear();
+        if (streamingMode == StreamingMode.BUFFERED) {
+            buffer.position(FRAME_HEADER_SIZE);
+            fragmentSize = Math.max(songChannel.read(buffer), 0);
+        } else if (streamingMode == StreamingMode.CACHED) {
+            fragmentSize = nextCachedFragment();
+            frameRemaining = fragmentSize;
+            buffer.position(FRAME_HEADER_SIZE);
+        } else {
+            fragmentSize = (int) Math.min(maxFragmentSize, songChannel.remaining());
+            frameRemaining = fragmentSize;
+            buffer.position(FRAME_HEADER_SIZE);
+        }
+
+        if (fragmentSize == 0) {
+            buffer.limit(0);
+            return false;
+        }
+
+        buffer.putInt(0, fragmentSize);
+        buffer.put(Integer.BYTES, FRAGMENT);
+        buffer.flip();
+        fragmentsSent++;
+
+        return true;
+    }
+
+    // Frames never span blocks, so each frame is a slice of the held block
+    private int nextCachedFragment() throws IOException {
+        if (dataPosition >= songChannel.getHeader().getDataLength()) {
+            releaseBlock();
+            return 0;
+        }
+
+        long index = dataPosition / blockCache.getBlockSize();
+        if (block == null || block.getIndex() != index) {
+            releaseBlock();
+            block = blockCache.acquire(song.path(), index, songChannel);
+        }
+
+        int offset = (int) (dataPosition - index * blockCache.getBlockSize());
+        int fragmentSize = Math.min(maxFragmentSize, block.size() - offset);
+        if (fragmentSize <= 0) {
+            // The file is shorter than its header says
+            releaseBlock();
+            return 0;
+        }
+
+        blockData = block.data();
+        blockData.position(offset).limit(offset + fragmentSize);
+        dataPosition += fragmentSize;
+
+        return fragmentSize;
+    }
+
+    private void releaseBlock() {
+        if (block != null) {
+            block.release();
+            block = null;
+            blockData = null;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.vlado.spotify.song;
+
+public enum StreamingMode {
+    // Song data is read into a heap fragment and copied into the response buffer
+    BUFFERED,
+    // Song data is sent straight from the file to the socket with FileChannel.transferTo
+    ZERO_COPY,
+    // Song data is sent from blocks of a BlockCache shared by every stream of the song
+    CACHED,
+    // Song data is sent from a read-only mapping of the song file shared by every stream of the song
+    MAPPED
+}
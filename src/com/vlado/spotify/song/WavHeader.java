@@ -0,0 +1,146 @@
+package com.vlado.spotify.song;
+
+import com.vlado.spotify.validations.ParameterValidator;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class WavHeader implements Serializable {
+    private static final int RIFF_HEADER_SIZE = 12;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int MIN_FMT_CHUNK_SIZE = 16;
+    // Size of the extensible fmt chunk, the longest one whose fields are read
+    private static final int MAX_FMT_READ_SIZE = 40;
+    private static final int EXTENSIBLE_SUB_FORMAT_OFFSET = 24;
+
+    private static final int RIFF_ID = 0x46464952;
+    private static final int WAVE_ID = 0x45564157;
+    private static final int FMT_ID = 0x20746d66;
+    private static final int DATA_ID = 0x61746164;
+
+    private static final int WAVE_FORMAT_PCM = 0x0001;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 0x0003;
+    private static final int WAVE_FORMAT_ALAW = 0x0006;
+    private static final int WAVE_FORMAT_MULAW = 0x0007;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final SongFormat format;
+    private final long dataOffset;
+    private final long dataLength;
+
+    public WavHeader(SongFormat format, long dataOffset, long dataLength) {
+        this.format = ParameterValidator.checkNull(format, "format");
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    public static WavHeader read(Path path) throws IOException, UnsupportedAudioFileException {
+        ParameterValidator.checkNull(path, "path");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    public static WavHeader read(FileChannel channel) throws IOException, UnsupportedAudioFileException {
+        ParameterValidator.checkNull(channel, "channel");
+
+        long fileSize = channel.size();
+        ByteBuffer riffHeader = readFully(channel, 0, RIFF_HEADER_SIZE);
+        if (riffHeader.getInt(0) != RIFF_ID || riffHeader.getInt(8) != WAVE_ID) {
+            throw new UnsupportedAudioFileException("Not a RIFF/WAVE file");
+        }
+
+        SongFormat format = null;
+        long position = RIFF_HEADER_SIZE;
+        while (position + CHUNK_HEADER_SIZE <= fileSize) {
+            ByteBuffer chunkHeader = readFully(channel, position, CHUNK_HEADER_SIZE);
+            int chunkId = chunkHeader.getInt(0);
+            long chunkSize = Integer.toUnsignedLong(chunkHeader.getInt(4));
+            long chunkStart = position + CHUNK_HEADER_SIZE;
+
+            if (chunkId == FMT_ID) {
+                if (chunkSize < MIN_FMT_CHUNK_SIZE || chunkSize > fileSize - chunkStart) {
+                    throw new UnsupportedAudioFileException("Invalid fmt chunk size: " + chunkSize);
+                }
+                format = parseFormat(readFully(channel, chunkStart, (int) Math.min(chunkSize, MAX_FMT_READ_SIZE)));
+            } else if (chunkId == DATA_ID) {
+                if (format == null) {
+                    throw new UnsupportedAudioFileException("The data chunk precedes the fmt chunk");
+                }
+                return new WavHeader(format, chunkStart, Math.min(chunkSize, fileSize - chunkStart));
+            }
+
+            position = chunkStart + chunkSize + (chunkSize & 1);
+        }
+
+        throw new UnsupportedAudioFileException("No data chunk found");
+    }
+
+    public SongFormat getFormat() {
+        return format;
+    }
+
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    // Zero when the format has no frame rate
+    public Duration getDuration() {
+        double bytesPerSecond = (double) format.getFrameRate() * format.getFrameSize();
+        if (bytesPerSecond <= 0) {
+            return Duration.ZERO;
+        }
+
+        return Duration.ofNanos((long) (dataLength / bytesPerSecond * TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private static SongFormat parseFormat(ByteBuffer fmt) throws UnsupportedAudioFileException {
+        int formatTag = Short.toUnsignedInt(fmt.getShort(0));
+        int channels = Short.toUnsignedInt(fmt.getShort(2));
+        int sampleRate = fmt.getInt(4);
+        int blockAlign = Short.toUnsignedInt(fmt.getShort(12));
+        int bitsPerSample = Short.toUnsignedInt(fmt.getShort(14));
+
+        if (formatTag == WAVE_FORMAT_EXTENSIBLE && fmt.limit() >= EXTENSIBLE_SUB_FORMAT_OFFSET + Short.BYTES) {
+            formatTag = Short.toUnsignedInt(fmt.getShort(EXTENSIBLE_SUB_FORMAT_OFFSET));
+        }
+
+        AudioFormat.Encoding encoding = switch (formatTag) {
+            case WAVE_FORMAT_PCM -> bitsPerSample <= Byte.SIZE
+                    ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+            case WAVE_FORMAT_IEEE_FLOAT -> AudioFormat.Encoding.PCM_FLOAT;
+            case WAVE_FORMAT_ALAW -> AudioFormat.Encoding.ALAW;
+            case WAVE_FORMAT_MULAW -> AudioFormat.Encoding.ULAW;
+            default -> throw new UnsupportedAudioFileException("Unsupported WAV encoding: " + formatTag);
+        };
+
+        return new SongFormat(encoding.toString(), sampleRate, bitsPerSample, channels,
+                blockAlign, sampleRate, false);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of WAV file");
+            }
+        }
+
+        return buffer.flip();
+    }
+}
@@ -39,6 +39,14 @@ public class ParameterValidator {
         return number;
     }
 
+    public static long checkPositive(long number, String paramName) {
+        if (number <= 0) {
+            throw new IllegalArgumentException(String.format(POSITIVE_PARAM_ERROR, paramName));
+        }
+
+        return number;
+    }
+
     public static int checkNonNegative(int number, String paramName) {
         if (number < 0) {
             throw new IllegalArgumentException(String.format(NON_NEGATIVE_PARAM, paramName));
@@ -47,5 +55,11 @@ public class ParameterValidator {
         return number;
     }
 
+    public static long checkNonNegative(long number, String paramName) {
+        if (number < 0) {
+            throw new IllegalArgumentException(String.format(NON_NEGATIVE_PARAM, paramName));
+        }
 
+        return number;
+    }
 }
@@ -0,0 +1,110 @@
+package com.vlado.spotify.database;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.vlado.spotify.song.Song;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogLoaderTest {
+    private static final String SONG_LINE =
+            "{\"name\":\"song%d\",\"artist\":\"artist\",\"streams\":%d,\"path\":\"testResources/5sec.wav\"}";
+    private static final int SONGS = 50;
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeHierarchyAdapter(Path.class, new SongDatabase.PathConverter())
+            .registerTypeAdapter(Song.class, new SongDatabase.SongConverter())
+            .create();
+
+    private Path catalog;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        catalog = Files.createTempFile("songs", ".txt");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(catalog);
+    }
+
+    @Test
+    void testLoadEverySongAcrossChunks() throws Exception {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < SONGS; i++) {
+            lines.append(String.format(SONG_LINE, i, i)).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        Files.writeString(catalog, lines);
+
+        List<Song> loaded = new ArrayList<>();
+        CatalogLoadReport report = new CatalogLoader(gson, 7).load(catalog, loaded::addAll);
+
+        assertEquals(SONGS, report.songs(), "The report counts every song.");
+        assertEquals(SONGS, loaded.size(), "Every line is parsed once, whatever the chunk boundaries.");
+        for (int i = 0; i < SONGS; i++) {
+            assertEquals("song" + i, loaded.get(i).name(), "Songs keep the order of the file.");
+            assertEquals(i, loaded.get(i).streams(), "Streams are parsed.");
+        }
+    }
+
+    @Test
+    void testLoadProbesHeaders() throws Exception {
+        Files.writeString(catalog, String.format(SONG_LINE, 1, 1));
+
+        List<Song> loaded = new ArrayList<>();
+        new CatalogLoader(gson).load(catalog, loaded::addAll);
+
+        assertNotNull(loaded.get(0).header(), "Songs saved without a header are probed.");
+    }
+
+    @Test
+    void testLoadSkipsBlankLines() throws Exception {
+        Files.writeString(catalog, "\n" + String.format(SONG_LINE, 1, 1) + "\n\n   \n");
+
+        List<Song> loaded = new ArrayList<>();
+        new CatalogLoader(gson, 3).load(catalog, loaded::addAll);
+
+        assertEquals(1, loaded.size(), "Blank lines are skipped.");
+    }
+
+    @Test
+    void testLoadEmptyFile() throws Exception {
+        List<Song> loaded = new ArrayList<>();
+        CatalogLoadReport report = new CatalogLoader(gson).load(catalog, loaded::addAll);
+
+        assertEquals(0, report.songs(), "An empty catalog has no songs.");
+        assertTrue(loaded.isEmpty(), "An empty catalog builds nothing.");
+    }
+
+    @Test
+    void testLoadMissingSongFile() throws Exception {
+        Files.writeString(catalog,
+                "{\"name\":\"a\",\"artist\":\"b\",\"streams\":1,\"path\":\"testResources/missing.wav\"}");
+
+        List<Song> loaded = new ArrayList<>();
+        assertThrows(IllegalArgumentException.class, () -> new CatalogLoader(gson).load(catalog, loaded::addAll),
+                "Songs whose files are missing fail the loading.");
+        assertTrue(loaded.isEmpty(), "Nothing is built when a song is invalid.");
+    }
+
+    @Test
+    void testLoadSnapshot() throws Exception {
+        Song song = new Song("song", "artist", 3, Path.of("testResources", "5sec.wav"));
+        Files.write(catalog, CatalogSnapshot.encode(List.of(song)));
+
+        List<Song> loaded = new ArrayList<>();
+        CatalogLoadReport report = new CatalogLoader(gson).load(catalog, loaded::addAll);
+
+        assertEquals(1, report.songs(), "Snapshots are loaded like JSON catalogs.");
+        assertEquals(List.of(song), loaded, "The snapshot songs are built.");
+        assertNotNull(loaded.get(0).header(), "Songs without a header are probed.");
+    }
+}
@@ -0,0 +1,89 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.SongFormat;
+import com.vlado.spotify.song.WavHeader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotTest {
+    private static final WavHeader HEADER = new WavHeader(
+            new SongFormat("PCM_SIGNED", 44100, 16, 2, 4, 44100, false), 44, 882000);
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        List<Song> songs = List.of(
+                new Song("Rockstar", "Post Malone", 10, Path.of("resources", "songs", "rockstar.wav"), HEADER),
+                new Song("Popstar", "Drake", 0, Path.of("resources", "songs", "popstar.wav")));
+
+        List<Song> decoded = CatalogSnapshot.decode(CatalogSnapshot.encode(songs));
+
+        assertEquals(songs, decoded, "Every song is decoded in order.");
+        assertEquals(10, decoded.get(0).streams(), "Streams are kept.");
+        assertEquals(songs.get(0).path(), decoded.get(0).path(), "Paths are kept.");
+
+        WavHeader header = decoded.get(0).header();
+        assertEquals(HEADER.getDataOffset(), header.getDataOffset(), "The data offset is kept.");
+        assertEquals(HEADER.getDataLength(), header.getDataLength(), "The data length is kept.");
+        assertEquals(HEADER.getFormat().getEncoding(), header.getFormat().getEncoding(), "The encoding is kept.");
+        assertEquals(HEADER.getFormat().getSampleRate(), header.getFormat().getSampleRate(),
+                "The sample rate is kept.");
+        assertEquals(HEADER.getFormat().getChannels(), header.getFormat().getChannels(), "The channels are kept.");
+        assertNull(decoded.get(1).header(), "Songs without a header stay without one.");
+    }
+
+    @Test
+    void testEncodeStoresRepeatedStringsOnce() {
+        List<Song> sameArtist = new ArrayList<>();
+        List<Song> differentArtists = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Path path = Path.of("song" + i + ".wav");
+            sameArtist.add(new Song("song" + i, "A rather long artist name", i, path));
+            differentArtists.add(new Song("song" + i, "A rather long artist name " + i, i, path));
+        }
+
+        assertTrue(CatalogSnapshot.encode(sameArtist).length < CatalogSnapshot.encode(differentArtists).length,
+                "An artist of many songs is stored once.");
+    }
+
+    @Test
+    void testIsSnapshot() {
+        assertTrue(CatalogSnapshot.isSnapshot(CatalogSnapshot.encode(List.of())), "Snapshots are recognized.");
+        assertFalse(CatalogSnapshot.isSnapshot("{\"name\":\"a\"}".getBytes()), "JSON is not a snapshot.");
+        assertFalse(CatalogSnapshot.isSnapshot(new byte[0]), "An empty file is not a snapshot.");
+    }
+
+    @Test
+    void testDecodeCorruptedSnapshot() {
+        byte[] bytes = CatalogSnapshot.encode(List.of(new Song("a", "b", 1, Path.of("a.wav"), HEADER)));
+        bytes[bytes.length / 2] ^= 1;
+
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.decode(bytes),
+                "Corrupted snapshots are rejected.");
+    }
+
+    @Test
+    void testDecodeTruncatedSnapshot() {
+        byte[] bytes = CatalogSnapshot.encode(List.of(new Song("a", "b", 1, Path.of("a.wav"), HEADER)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CatalogSnapshot.decode(Arrays.copyOf(bytes, bytes.length - 8)),
+                "Truncated snapshots are rejected.");
+    }
+
+    @Test
+    void testDecodeUnknownVersion() {
+        byte[] bytes = CatalogSnapshot.encode(List.of());
+        ByteBuffer.wrap(bytes).putShort(Integer.BYTES, (short) (CatalogSnapshot.VERSION + 1));
+
+        assertThrows(IllegalArgumentException.class, () -> CatalogSnapshot.decode(bytes),
+                "Snapshots of other versions are rejected.");
+    }
+}
@@ -1,6 +1,7 @@
 package com.vlado.spotify.database;
 
 import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.StreamResult;
 import com.vlado.spotify.stubs.SelectionKeyStub;
 import com.vlado.spotify.user.User;
 import org.junit.jupiter.api.AfterAll;
@@ -10,11 +11,14 @@ import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.file.Path;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 
@@ -41,6 +45,21 @@ class OnlineUsersTest {
     @AfterAll
     static void afterAll() {
         onlineUsers.clear();
+        onlineUsers.setSongDatabase(SongDatabase.instance());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSetSongDatabaseMovesRemovalListener() {
+        SongDatabase other = mock(SongDatabase.class);
+        onlineUsers.setSongDatabase(other);
+        try {
+            ArgumentCaptor<Consumer<Song>> listener = ArgumentCaptor.forClass(Consumer.class);
+            verify(other).addRemovalListener(listener.capture());
+            verify(songDatabase).removeRemovalListener(listener.getValue());
+        } finally {
+            onlineUsers.setSongDatabase(songDatabase);
+        }
     }
 
     @Test
@@ -252,27 +271,33 @@ class OnlineUsersTest {
     }
 
     @Test
-    void testGetSongFragmentNullKey() {
-        assertThrows(IllegalArgumentException.class, () -> onlineUsers.getSongFragment(null),
-                "Cannot get song fragment if key is null.");
+    void testGetStreamSessionNullKey() {
+        assertThrows(IllegalArgumentException.class, () -> onlineUsers.getStreamSession(null),
+                "Cannot get stream session if key is null.");
+    }
+
+    @Test
+    void testGetStreamSessionNotMusicKey() {
+        assertThrows(IllegalStateException.class, () -> onlineUsers.getStreamSession(keyStub),
+                "Cannot get stream session if a request key is passed as parameter.");
     }
 
     @Test
-    void testGetSongFragmentNotMusicKey() {
-        assertThrows(IllegalStateException.class, () -> onlineUsers.getSongFragment(keyStub),
-                "Cannot get song fragment if a request key is passed as parameter.");
+    void testGetStreamSessionNotCurrentlyListening() {
+        assertThrows(IllegalStateException.class, () -> onlineUsers.getStreamSession(new SelectionKeyStub()),
+                "Cannot get the stream session for a user who is not currently listening.");
     }
 
     @Test
-    void testGetSongFragmentNotCurrentlyListening() {
-        assertThrows(IllegalStateException.class, () -> onlineUsers.getSongFragment(new SelectionKeyStub()),
-                "Cannot get the song fragment for a user who is not currently listening.");
+    void testStreamSongFragmentAfterStop() throws IOException {
+        assertEquals(StreamResult.STOPPED, onlineUsers.streamSongFragment(new SelectionKeyStub()),
+                "A stream stopped by another thread is reported as stopped, not as finished.");
     }
 
     @Test
     @Order(7)
     void testStopListeningCorrectKey() {
-        assertDoesNotThrow(() -> onlineUsers.getSongFragment(user.getMusicKey()),
+        assertDoesNotThrow(() -> onlineUsers.getStreamSession(user.getMusicKey()),
                 "Stop listening with the correct key should not throw.");
     }
 
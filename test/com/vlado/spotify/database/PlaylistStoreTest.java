@@ -0,0 +1,156 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.exceptions.SongNotFoundException;
+import com.vlado.spotify.exceptions.UserErrorException;
+import com.vlado.spotify.song.Song;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistStoreTest {
+    private static final String FORMAT = ".txt";
+    private static final String PLAYLIST = "playlist";
+    private static final int CAPACITY = 2;
+
+    private Path folder;
+    private PlaylistWriter writer;
+    private PlaylistStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        folder = Files.createTempDirectory("playlists");
+        writer = new PlaylistWriter(folder, FORMAT, 60_000, Throwable::printStackTrace);
+        store = new PlaylistStore(folder, FORMAT, writer, PlaylistStoreTest::findSong, CAPACITY);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.close();
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    void testCreate() {
+        store.create(PLAYLIST);
+
+        assertTrue(Files.exists(folder.resolve(PLAYLIST + FORMAT)), "The playlist file is created right away.");
+        assertEquals(List.of(), store.get(PLAYLIST), "New playlists are empty.");
+        assertThrows(UserErrorException.class, () -> store.create(PLAYLIST), "Playlists are created once.");
+    }
+
+    @Test
+    void testAddToMissingPlaylist() {
+        assertThrows(UserErrorException.class, () -> store.add(PLAYLIST, song(0)),
+                "Songs cannot be added to missing playlists.");
+        assertThrows(UserErrorException.class, () -> store.get(PLAYLIST), "Missing playlists are not found.");
+    }
+
+    @Test
+    void testAdd() throws Exception {
+        store.create(PLAYLIST);
+        store.add(PLAYLIST, song(0));
+        List<Song> before = store.get(PLAYLIST);
+        store.add(PLAYLIST, song(1));
+
+        assertEquals(List.of(song(0)), before, "Returned playlists do not change with later additions.");
+        assertEquals(List.of(song(0), song(1)), store.get(PLAYLIST), "Songs are kept in the order they are added.");
+        assertThrows(UserErrorException.class, () -> store.add(PLAYLIST, song(0)), "Songs are added once.");
+
+        writer.flush();
+        assertEquals(List.of("\"song0\" \"artist\"", "\"song1\" \"artist\""),
+                Files.readAllLines(folder.resolve(PLAYLIST + FORMAT)), "Added songs are written to the file.");
+    }
+
+    @Test
+    void testConcurrentAdds() throws Exception {
+        store.create(PLAYLIST);
+        int songs = 1000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < songs; i++) {
+            Song song = song(i);
+            executor.execute(() -> store.add(PLAYLIST, song));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        writer.flush();
+        List<Song> playlist = store.get(PLAYLIST);
+        List<String> lines = Files.readAllLines(folder.resolve(PLAYLIST + FORMAT));
+
+        assertEquals(songs, playlist.size(), "No concurrent addition is lost.");
+        for (int i = 0; i < songs; i++) {
+            assertEquals(String.format("\"%s\" \"artist\"", playlist.get(i).name()), lines.get(i),
+                    "The file has the songs in the order of the playlist.");
+        }
+    }
+
+    private static Song song(int index) {
+        return new Song("song" + index, "artist", 0, Path.of("song" + index + ".wav"));
+    }
+
+    @Test
+    void testPlaylistsAreReadOnFirstUse() throws Exception {
+        Files.writeString(folder.resolve(PLAYLIST + FORMAT), "\"song0\" \"artist\"\n\"missing\" \"artist\"\n");
+        store.loadNames();
+
+        assertTrue(store.exists(PLAYLIST), "Playlist names are read at once.");
+        assertTrue(Files.exists(folder.resolve(PlaylistStore.INDEX_FILE)), "A missing index is rebuilt.");
+        assertEquals(0, store.getLoadedPlaylists(), "Playlists are not read with their names.");
+
+        assertEquals(List.of(song(0)), store.get(PLAYLIST), "Songs missing from the catalog are skipped.");
+        assertEquals(1, store.getLoadedPlaylists(), "Playlists are read on their first use.");
+    }
+
+    @Test
+    void testNamesAreReadFromIndex() throws Exception {
+        store.create(PLAYLIST);
+
+        PlaylistStore restarted = new PlaylistStore(folder, FORMAT, writer, PlaylistStoreTest::findSong, CAPACITY);
+        Files.delete(folder.resolve(PLAYLIST + FORMAT));
+        restarted.loadNames();
+
+        assertTrue(restarted.exists(PLAYLIST), "Created playlists are indexed.");
+        assertFalse(restarted.exists("other"), "Other playlists do not exist.");
+        assertEquals(List.of(), restarted.get(PLAYLIST), "Indexed playlists without a file are empty.");
+    }
+
+    @Test
+    void testColdPlaylistsAreDropped() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            store.create(PLAYLIST + i);
+            store.add(PLAYLIST + i, song(i));
+        }
+
+        assertEquals(CAPACITY, store.getLoadedPlaylists(), "Only the recently used playlists are kept.");
+        assertTrue(writer.getPendingPlaylists() > 0, "Songs of the dropped playlists are not written yet.");
+        for (int i = 0; i < 4; i++) {
+            assertEquals(List.of(song(i)), store.get(PLAYLIST + i),
+                    "Dropped playlists are read again with their pending songs.");
+        }
+        assertEquals(CAPACITY, store.getLoadedPlaylists(), "Reading playlists again keeps the cache bounded.");
+    }
+
+    private static Song findSong(String name, String artist) {
+        if (!name.startsWith("song")) {
+            throw new SongNotFoundException(name);
+        }
+
+        return new Song(name, artist, 0, Path.of(name + ".wav"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.vlado.spotify.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistWriterTest {
+    private static final String FORMAT = ".txt";
+    private static final long FLUSH_DELAY_MILLIS = 10;
+
+    private Path folder;
+    private List<Throwable> errors;
+    private PlaylistWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        folder = Files.createTempDirectory("playlists");
+        // Written by the background writer
+        errors = new CopyOnWriteArrayList<>();
+        writer = new PlaylistWriter(folder, FORMAT, FLUSH_DELAY_MILLIS, errors::add);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.close();
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    void testFlushWritesLinesInOrder() throws Exception {
+        writer.setFlushDelayMillis(60_000);
+        writer.append("first", "a\n");
+        writer.append("second", "b\n");
+        writer.append("first", "c\n");
+
+        assertEquals(2, writer.getPendingPlaylists(), "Lines of the same playlist are coalesced.");
+
+        writer.flush();
+
+        assertEquals("a\nc\n", Files.readString(folder.resolve("first" + FORMAT)), "Lines keep their order.");
+        assertEquals("b\n", Files.readString(folder.resolve("second" + FORMAT)), "Every playlist is written.");
+        assertEquals(0, writer.getPendingPlaylists(), "Nothing is pending after a flush.");
+    }
+
+    @Test
+    void testLinesAreWrittenWithinFlushDelay() throws Exception {
+        writer.append("playlist", "a\n");
+
+        Path file = folder.resolve("playlist" + FORMAT);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Files.exists(file) || Files.size(file) == 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "Lines are written in the background.");
+            Thread.sleep(FLUSH_DELAY_MILLIS);
+        }
+
+        assertEquals("a\n", Files.readString(file), "The line is written once.");
+    }
+
+    @Test
+    void testCloseWritesPendingLines() throws Exception {
+        writer.setFlushDelayMillis(60_000);
+        writer.append("playlist", "a\n");
+
+        writer.close();
+
+        assertEquals("a\n", Files.readString(folder.resolve("playlist" + FORMAT)), "Closing writes pending lines.");
+        assertThrows(IllegalStateException.class, () -> writer.append("playlist", "b\n"),
+                "Closed writers reject lines.");
+    }
+
+    @Test
+    void testFailedLinesAreKept() throws Exception {
+        writer.setFlushDelayMillis(60_000);
+        Files.createDirectory(folder.resolve("broken" + FORMAT));
+        writer.append("broken", "a\n");
+
+        writer.flush();
+
+        assertEquals(1, errors.size(), "Write failures are reported.");
+        assertEquals(1, writer.getPendingPlaylists(), "Lines which were not written are kept for the next flush.");
+
+        Files.delete(folder.resolve("broken" + FORMAT));
+        writer.append("broken", "b\n");
+        writer.flush();
+
+        assertEquals("a\nb\n", Files.readString(folder.resolve("broken" + FORMAT)),
+                "Kept lines are written before the newer ones.");
+    }
+
+    @Test
+    void testFailedFlushIsRetriedAfterInterval() throws Exception {
+        writer.setFlushDelayMillis(0);
+        Files.createDirectory(folder.resolve("broken" + FORMAT));
+        writer.append("broken", "a\n");
+
+        Thread.sleep(300);
+
+        assertEquals(1, errors.size(), "A failed write is not retried right away.");
+
+        Files.delete(folder.resolve("broken" + FORMAT));
+        writer.close();
+
+        assertEquals("a\n", Files.readString(folder.resolve("broken" + FORMAT)),
+                "Closing writes the lines kept after the failure.");
+    }
+}
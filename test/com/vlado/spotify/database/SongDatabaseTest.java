@@ -1,14 +1,20 @@
 package com.vlado.spotify.database;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.vlado.spotify.exceptions.SongNotFoundException;
 import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.WavHeader;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -182,6 +188,23 @@ class SongDatabaseTest {
                 "Song is no longer found in the database.");
     }
 
+    @Test
+    void testRemoveSongNotifiesRemovalListeners() {
+        Song song = new Song("listener name", ARTIST_NAME, 0, SOME_PATH);
+        songDatabase.addSong(song);
+
+        List<Song> removed = new ArrayList<>();
+        Consumer<Song> listener = removed::add;
+        songDatabase.addRemovalListener(listener);
+        try {
+            songDatabase.removeSong(song.name(), song.artist());
+        } finally {
+            songDatabase.removeRemovalListener(listener);
+        }
+
+        assertEquals(List.of(song), removed, "Removal listeners are told about the removed song.");
+    }
+
     @Test
     void testUpdateSongNullName() {
         assertThrows(IllegalArgumentException.class, () -> songDatabase.updateSong(null, ARTIST_NAME),
@@ -245,6 +268,7 @@ class SongDatabaseTest {
     void testGetTopNStreamedSongsSuccessful() {
         Song top = songDatabase.getSong(SONG_NAME, ARTIST_NAME);
         Song second = songDatabase.getSong(SONG_NAME, ARTIST_2_NAME);
+        songDatabase.refreshTopSongs();
         assertIterableEquals(List.of(top), songDatabase.getTopNStreamedSongs(1),
                 "The top song is found successfully.");
         assertIterableEquals(List.of(top, second), songDatabase.getTopNStreamedSongs(2),
@@ -292,4 +316,83 @@ class SongDatabaseTest {
         assertTrue(actual.containsAll(expected),
                 "Correct songs a returned when searching by artist.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSongConverterKeepsHeader() throws Exception {
+        Gson gson = new GsonBuilder()
+                .registerTypeHierarchyAdapter(Path.class, new SongDatabase.PathConverter())
+                .registerTypeAdapter(Song.class, new SongDatabase.SongConverter())
+                .create();
+        Path songPath = Path.of("testResources", "5sec.wav");
+        Song song = new Song(SONG_NAME, ARTIST_NAME, 3, songPath, WavHeader.read(songPath));
+
+        Song read = gson.fromJson(gson.toJson(song), Song.class);
+
+        assertEquals(song.header().getDataOffset(), read.header().getDataOffset(), "Data offset is saved.");
+        assertEquals(song.header().getDataLength(), read.header().getDataLength(), "Data length is saved.");
+        assertEquals(song.header().getFormat().getFrameRate(), read.header().getFormat().getFrameRate(),
+                "Format is saved.");
+        assertEquals(song.duration(), read.duration(), "Duration follows from the saved header.");
+    }
+
+    @Test
+    void testSongConverterWithoutHeader() {
+        Gson gson = new GsonBuilder()
+                .registerTypeHierarchyAdapter(Path.class, new SongDatabase.PathConverter())
+                .registerTypeAdapter(Song.class, new SongDatabase.SongConverter())
+                .create();
+
+        Song read = gson.fromJson("{\"name\":\"a\",\"artist\":\"b\",\"streams\":1,\"path\":\"p.wav\"}",
+                Song.class);
+
+        assertNull(read.header(), "Songs saved without a header are not probed yet.");
+    }
+
+    @Test
+    void testLoadSongsBuildsIndexes() throws Exception {
+        Path catalog = Files.createTempFile("songs", ".txt");
+        try {
+            Files.writeString(catalog,
+                    "{\"name\":\"Loaded Song\",\"artist\":\"Loaded Artist\",\"streams\":1000000,"
+                            + "\"path\":\"testResources/5sec.wav\"}\n");
+
+            assertEquals(1, songDatabase.loadSongs(catalog).songs(), "The loaded songs are reported.");
+
+            Song song = songDatabase.getSong("loaded song", "loaded artist");
+            assertNotNull(song.header(), "Loaded songs are probed.");
+            assertEquals(List.of(song), songDatabase.search("loaded"), "Loaded songs are searchable.");
+            songDatabase.refreshTopSongs();
+            assertEquals(song, songDatabase.getTopNStreamedSongs(1).get(0), "Loaded songs are ranked.");
+        } finally {
+            songDatabase.removeSong("loaded song", "loaded artist");
+            Files.deleteIfExists(catalog);
+        }
+    }
+
+    @Test
+    void testSaveSongsSnapshotAndExport() throws Exception {
+        Path directory = Files.createTempDirectory("catalog");
+        Path snapshot = directory.resolve("songs.bin");
+        Path json = directory.resolve("songs.txt");
+        Song song = new Song("Saved Song", "Saved Artist", 42, Path.of("testResources", "5sec.wav"));
+        songDatabase.addSong(song);
+        try {
+            songDatabase.saveSongs(snapshot);
+            songDatabase.exportSongs(json);
+
+            try (var files = Files.list(directory)) {
+                assertEquals(2, files.count(), "No temporary files are left behind.");
+            }
+
+            List<Song> saved = CatalogSnapshot.decode(Files.readAllBytes(snapshot));
+            assertEquals(42, saved.get(saved.indexOf(song)).streams(), "The snapshot has every song.");
+            assertTrue(Files.readAllLines(json).stream().anyMatch(line -> line.contains("\"Saved Song\"")),
+                    "The exported JSON has every song.");
+        } finally {
+            songDatabase.removeSong("saved song", "saved artist");
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(json);
+            Files.delete(directory);
+        }
+    }
+}
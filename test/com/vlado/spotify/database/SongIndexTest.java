@@ -0,0 +1,152 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.song.Song;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongIndexTest {
+    private static final Path SOME_PATH = Path.of("somePath");
+    private static final String ALPHABET = "abcAB 1";
+
+    private SongIndex songIndex;
+    private List<Song> catalog;
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        songIndex = new SongIndex();
+        catalog = new ArrayList<>();
+        random = new Random(42);
+    }
+
+    @Test
+    void testSearchNullKeyWords() {
+        assertThrows(IllegalArgumentException.class, () -> songIndex.search((String[]) null),
+                "Search keyWords cannot be null.");
+        assertThrows(IllegalArgumentException.class, () -> songIndex.search("a", null),
+                "Search keyWords cannot contain a null word.");
+    }
+
+    @Test
+    void testSearchEmptyIndex() {
+        assertTrue(songIndex.search("song").isEmpty(), "Nothing is found in an empty index.");
+        assertTrue(songIndex.search().isEmpty(), "Nothing is found in an empty index.");
+    }
+
+    @Test
+    void testSearchNoKeyWordsReturnsAll() {
+        addRandomSongs(50);
+
+        assertSameSongs(catalog, songIndex.search());
+        assertSameSongs(catalog, songIndex.search(""));
+    }
+
+    @Test
+    void testSearchMatchesContainsSemantics() {
+        addRandomSongs(500);
+
+        for (int i = 0; i < 1000; i++) {
+            String[] keyWords = randomKeyWords();
+            assertSameSongs(containsOracle(keyWords), songIndex.search(keyWords));
+        }
+    }
+
+    @Test
+    void testSearchKeyWordSpanningNameAndArtist() {
+        Song song = new Song("abc", "def", 0, SOME_PATH);
+        songIndex.add(song);
+
+        assertTrue(songIndex.search("abcdef").isEmpty(),
+                "A keyword must be contained in the name or in the artist.");
+        assertEquals(List.of(song), songIndex.search("ABC", "ef"),
+                "Every keyword can match a different field, ignoring case.");
+    }
+
+    @Test
+    void testSearchAfterRemove() {
+        addRandomSongs(300);
+
+        for (int i = 0; i < 150; i++) {
+            Song removed = catalog.remove(random.nextInt(catalog.size()));
+            songIndex.remove(removed);
+        }
+
+        assertEquals(catalog.size(), songIndex.size(), "Removed songs are not indexed.");
+        for (int i = 0; i < 500; i++) {
+            String[] keyWords = randomKeyWords();
+            assertSameSongs(containsOracle(keyWords), songIndex.search(keyWords));
+        }
+    }
+
+    @Test
+    void testAddReplacesSongWithSameNameAndArtist() {
+        Song song = new Song("Name", "Artist", 0, SOME_PATH);
+        Song replacement = new Song("name", "artist", 10, SOME_PATH);
+
+        songIndex.add(song);
+        songIndex.add(replacement);
+
+        List<Song> actual = songIndex.search("nam");
+        assertEquals(1, actual.size(), "Replaced song is indexed once.");
+        assertSame(replacement, actual.get(0), "The new song replaces the old one.");
+    }
+
+    private void addRandomSongs(int count) {
+        var seen = new HashSet<Song>();
+
+        while (catalog.size() < count) {
+            Song song = new Song(randomString(1 + random.nextInt(12)),
+                    randomString(1 + random.nextInt(8)), 0, SOME_PATH);
+
+            if (seen.add(song)) {
+                catalog.add(song);
+                songIndex.add(song);
+            }
+        }
+    }
+
+    private String[] randomKeyWords() {
+        String[] keyWords = new String[1 + random.nextInt(3)];
+        for (int i = 0; i < keyWords.length; i++) {
+            keyWords[i] = randomString(random.nextInt(6));
+        }
+
+        return keyWords;
+    }
+
+    private String randomString(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+
+        return builder.toString();
+    }
+
+    private List<Song> containsOracle(String... keyWords) {
+        return catalog.stream()
+                .filter(song -> {
+                    for (String keyWord : keyWords) {
+                        if (!song.name().toLowerCase().contains(keyWord.toLowerCase()) &&
+                                !song.artist().toLowerCase().contains(keyWord.toLowerCase())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                })
+                .toList();
+    }
+
+    private void assertSameSongs(List<Song> expected, List<Song> actual) {
+        assertEquals(expected.size(), actual.size(), "Index returns as many songs as the contains search.");
+        assertTrue(actual.containsAll(expected), "Index returns the songs of the contains search.");
+    }
+}
@@ -0,0 +1,226 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.song.Song;
+import com.vlado.spotify.song.SongFormat;
+import com.vlado.spotify.song.WavHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongJournalTest {
+    private static final long COMMIT_INTERVAL_MILLIS = 10;
+    private static final WavHeader HEADER = new WavHeader(
+            new SongFormat("PCM_SIGNED", 44100, 16, 2, 4, 44100, false), 44, 882000);
+
+    private Path directory;
+    private SongJournal journal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("journal");
+        journal = new SongJournal(directory, COMMIT_INTERVAL_MILLIS, Throwable::printStackTrace);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        journal.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void testReplayAppliesChangesInOrder() throws Exception {
+        Song kept = new Song("Kept", "Artist", 5, Path.of("kept.wav"));
+        Song removed = new Song("Removed", "Artist", 1, Path.of("removed.wav"));
+        Song added = new Song("Added", "Other Artist", 0, Path.of("added.wav"), HEADER);
+
+        journal.recordAdd(added, () -> {
+        });
+        journal.recordStream(kept);
+        journal.recordStream(kept);
+        journal.recordStream(added);
+        journal.recordRemove(removed, () -> {
+        });
+        journal.commit();
+
+        List<Song> replayed = SongJournal.replay(directory, List.of(kept.withHeader(HEADER), removed));
+
+        assertEquals(List.of(kept, added), replayed, "Added songs are kept and removed ones dropped.");
+        assertEquals(7, replayed.get(0).streams(), "Plays are replayed.");
+        assertEquals(1, replayed.get(1).streams(), "Plays of added songs are replayed.");
+        assertNotNull(replayed.get(0).header(), "Replayed plays keep the header of the song.");
+        assertEquals(HEADER.getDataLength(), replayed.get(1).header().getDataLength(),
+                "Added songs keep their header.");
+    }
+
+    @Test
+    void testRecordsAreCommittedPeriodically() throws Exception {
+        Song song = new Song("Song", "Artist", 0, Path.of("song.wav"));
+        journal.recordStream(song);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        List<Song> replayed;
+        do {
+            Thread.sleep(COMMIT_INTERVAL_MILLIS);
+            replayed = SongJournal.replay(directory, List.of(song));
+        } while (replayed.get(0).streams() == 0 && System.currentTimeMillis() < deadline);
+
+        assertEquals(1, replayed.get(0).streams(), "Plays are synced without closing the journal.");
+    }
+
+    @Test
+    void testReplayIsIdempotent() throws Exception {
+        Song song = new Song("Song", "Artist", 0, Path.of("song.wav"));
+        for (int i = 0; i < 3; i++) {
+            journal.recordStream(song);
+        }
+        journal.commit();
+
+        List<Song> once = SongJournal.replay(directory, List.of(new Song("Song", "Artist", 0, Path.of("song.wav"))));
+        List<Song> twice = SongJournal.replay(directory, once);
+
+        assertEquals(3, twice.get(0).streams(), "Replaying over a newer snapshot does not count plays twice.");
+    }
+
+    @Test
+    void testConcurrentPlaysAreAllRecorded() throws Exception {
+        Song song = new Song("Song", "Artist", 0, Path.of("song.wav"));
+        int threads = 4;
+        int plays = 10_000;
+
+        List<Thread> players = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread player = new Thread(() -> {
+                for (int j = 0; j < plays; j++) {
+                    journal.recordStream(song);
+                }
+            });
+            players.add(player);
+            player.start();
+        }
+        for (Thread player : players) {
+            player.join();
+        }
+        journal.commit();
+
+        Song snapshot = new Song("Song", "Artist", 0, Path.of("song.wav"));
+        List<Song> replayed = SongJournal.replay(directory, List.of(snapshot));
+
+        assertEquals(threads * plays, replayed.get(0).streams(), "Every concurrent play is recorded.");
+    }
+
+    @Test
+    void testPlaysOfRemovedSongAreNotRecordedOverReaddedOne() throws Exception {
+        Song removed = new Song("Song", "Artist", 5, Path.of("song.wav"));
+        Song readded = new Song("Song", "Artist", 0, Path.of("song.wav"), HEADER);
+
+        journal.recordStream(removed);
+        journal.recordRemove(removed, () -> {
+        });
+        journal.recordAdd(readded, () -> {
+        });
+        journal.commit();
+
+        List<Song> replayed = SongJournal.replay(directory, List.of(removed));
+
+        assertEquals(0, replayed.get(0).streams(), "Plays of the removed song do not count for the added one.");
+    }
+
+    @Test
+    void testReplayIgnoresTornRecord() throws Exception {
+        Song song = new Song("Song", "Artist", 0, Path.of("song.wav"));
+        journal.recordStream(song);
+        journal.commit();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.findFirst().orElseThrow();
+            Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        List<Song> replayed = SongJournal.replay(directory, List.of(song));
+
+        assertEquals(1, replayed.get(0).streams(), "Records before a torn one are replayed.");
+    }
+
+    @Test
+    void testCheckpointDeletesCoveredSegments() throws Exception {
+        Song song = new Song("Song", "Artist", 0, Path.of("song.wav"));
+        journal.recordStream(song);
+
+        AtomicBoolean saved = new AtomicBoolean();
+        journal.checkpoint(() -> saved.set(true));
+        journal.recordStream(song);
+        journal.commit();
+
+        assertTrue(saved.get(), "The snapshot is saved.");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count(), "Segments covered by the snapshot are deleted.");
+        }
+        assertEquals(2, SongJournal.replay(directory, List.of(song)).get(0).streams(),
+                "Changes after the checkpoint are kept.");
+    }
+
+    @Test
+    void testCheckpointKeepsSegmentsWhenSnapshotFails() throws Exception {
+        Song song = new Song("Song", "Artist", 0, Path.of("song.wav"));
+        journal.recordStream(song);
+
+        assertThrows(IllegalStateException.class, () -> journal.checkpoint(() -> {
+            throw new IllegalStateException("Disk full");
+        }), "Snapshot failures are passed on.");
+        assertEquals(1, SongJournal.replay(directory, List.of(new Song("Song", "Artist", 0, Path.of("song.wav"))))
+                .get(0).streams(), "Segments are kept until a snapshot is saved.");
+    }
+
+    @Test
+    void testConcurrentCheckpointsDoNotOverlap() throws Exception {
+        List<String> snapshots = new CopyOnWriteArrayList<>();
+        Thread second = new Thread(() -> {
+            try {
+                journal.checkpoint(() -> snapshots.add("second"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        journal.checkpoint(() -> {
+            second.start();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            snapshots.add("first");
+        });
+        second.join();
+
+        assertEquals(List.of("first", "second"), snapshots,
+                "A checkpoint waits for the running one, so an older snapshot never replaces a newer one.");
+    }
+
+    @Test
+    void testClosedJournalRejectsChanges() throws Exception {
+        journal.close();
+
+        AtomicBoolean changed = new AtomicBoolean();
+        assertThrows(IllegalStateException.class,
+                () -> journal.recordAdd(new Song("Song", "Artist", 0, Path.of("song.wav")), () -> changed.set(true)),
+                "Closed journals reject changes.");
+        assertFalse(changed.get(), "Rejected changes are not made.");
+    }
+}
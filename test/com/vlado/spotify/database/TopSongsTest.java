@@ -0,0 +1,145 @@
+package com.vlado.spotify.database;
+
+import com.vlado.spotify.song.Song;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopSongsTest {
+    private static final Path SOME_PATH = Path.of("somePath");
+    private static final int SNAPSHOT_SIZE = 3;
+    private static final int REFRESH_PLAYS = 5;
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private List<Song> songs;
+    private TopSongs topSongs;
+
+    @BeforeEach
+    void setUp() {
+        songs = new ArrayList<>();
+        songs.add(new Song("a", "x", 1, SOME_PATH));
+        songs.add(new Song("b", "x", 10, SOME_PATH));
+        songs.add(new Song("c", "x", 5, SOME_PATH));
+        songs.add(new Song("d", "x", 5, SOME_PATH));
+        // Rebuilds on the reader's thread, so each read sees the rebuild it started
+        topSongs = new TopSongs(() -> songs.stream(), SNAPSHOT_SIZE, REFRESH_PLAYS, NEVER, Runnable::run);
+    }
+
+    @Test
+    void testTopNonPositive() {
+        assertThrows(IllegalArgumentException.class, () -> topSongs.top(0),
+                "Top N throws for 0 n.");
+        assertThrows(IllegalArgumentException.class, () -> topSongs.top(-1),
+                "Top N throws for negative n.");
+    }
+
+    @Test
+    void testTopOrder() {
+        assertIterableEquals(List.of(songs.get(1), songs.get(3), songs.get(2)), topSongs.top(3),
+                "Songs are ordered by streams and then by name in reverse.");
+        assertIterableEquals(List.of(songs.get(1)), topSongs.top(1),
+                "Only the most streamed song is returned.");
+    }
+
+    @Test
+    void testTopMoreThanSnapshot() {
+        assertIterableEquals(topSongs.ranking().subList(0, SNAPSHOT_SIZE), topSongs.top(10),
+                "At most the snapshot is returned when asking for more than it holds.");
+    }
+
+    @Test
+    void testStaleSnapshotIsServedWhileRebuilding() {
+        List<Runnable> rebuilds = new ArrayList<>();
+        TopSongs queued = new TopSongs(() -> songs.stream(), SNAPSHOT_SIZE, REFRESH_PLAYS, NEVER, rebuilds::add);
+
+        assertEquals(List.of(), queued.top(1), "The empty snapshot is served until the first rebuild.");
+        assertEquals(List.of(), queued.top(1), "The empty snapshot is served until the first rebuild.");
+        assertEquals(1, rebuilds.size(), "Readers start only one rebuild.");
+
+        rebuilds.remove(0).run();
+        assertEquals(List.of(songs.get(1)), queued.top(1), "The rebuilt snapshot is served.");
+        assertTrue(rebuilds.isEmpty(), "A fresh snapshot is not rebuilt.");
+    }
+
+    @Test
+    void testPlaysRefreshAfterThreshold() {
+        assertEquals(songs.get(1), topSongs.top(1).get(0), "The most streamed song is first.");
+
+        Song song = songs.get(0);
+        for (int i = 0; i < REFRESH_PLAYS - 1; i++) {
+            song.incrementStreams();
+            song.incrementStreams();
+            song.incrementStreams();
+            topSongs.recordPlay();
+        }
+        assertEquals(songs.get(1), topSongs.top(1).get(0), "The snapshot is kept below the threshold.");
+
+        topSongs.recordPlay();
+        assertEquals(song, topSongs.top(1).get(0), "The snapshot is rebuilt after the threshold.");
+    }
+
+    @Test
+    void testInvalidateRebuildsSnapshot() {
+        assertEquals(songs.get(1), topSongs.top(1).get(0), "The most streamed song is first.");
+
+        Song newTop = new Song("e", "x", 100, SOME_PATH);
+        songs.add(newTop);
+        topSongs.invalidate();
+
+        assertEquals(newTop, topSongs.top(1).get(0), "An added song is ranked on the next read.");
+    }
+
+    @Test
+    void testNoRefreshWithoutPlays() {
+        AtomicInteger scans = new AtomicInteger();
+        TopSongs alwaysOld = new TopSongs(() -> {
+            scans.incrementAndGet();
+            return songs.stream();
+        }, SNAPSHOT_SIZE, REFRESH_PLAYS, 0, Runnable::run);
+
+        alwaysOld.top(1);
+        alwaysOld.top(1);
+        alwaysOld.refresh();
+        assertEquals(1, scans.get(), "An old snapshot is not rebuilt when nothing was played.");
+
+        alwaysOld.recordPlay();
+        alwaysOld.top(1);
+        assertEquals(2, scans.get(), "An old snapshot is rebuilt after a play.");
+    }
+
+    @Test
+    void testRefreshRebuildsOnlyStaleSnapshot() {
+        AtomicInteger scans = new AtomicInteger();
+        TopSongs counted = new TopSongs(() -> {
+            scans.incrementAndGet();
+            return songs.stream();
+        }, SNAPSHOT_SIZE, REFRESH_PLAYS, NEVER, Runnable::run);
+
+        counted.refresh();
+        counted.refresh();
+        assertEquals(1, scans.get(), "A fresh snapshot is not rebuilt.");
+
+        Song song = songs.get(0);
+        for (int i = 0; i < REFRESH_PLAYS; i++) {
+            song.incrementStreams();
+            song.incrementStreams();
+            song.incrementStreams();
+            counted.recordPlay();
+        }
+        counted.refresh();
+        assertEquals(song, counted.top(1).get(0), "A stale snapshot is rebuilt by refresh.");
+        assertEquals(2, scans.get(), "Readers use the snapshot rebuilt by refresh.");
+    }
+
+    @Test
+    void testRanking() {
+        assertIterableEquals(List.of(songs.get(1), songs.get(3), songs.get(2), songs.get(0)), topSongs.ranking(),
+                "Ranking contains every song in order.");
+    }
+}
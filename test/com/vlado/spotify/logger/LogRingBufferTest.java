@@ -0,0 +1,90 @@
+package com.vlado.spotify.logger;
+
+import com.vlado.spotify.logger.log.Log;
+import com.vlado.spotify.logger.log.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogRingBufferTest {
+
+    @Test
+    void testCapacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new LogRingBuffer(5).capacity(), "Capacity is rounded up to a power of two.");
+        assertEquals(1, new LogRingBuffer(1).capacity(), "Capacity of one is kept.");
+    }
+
+    @Test
+    void testInvalidCapacityThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new LogRingBuffer(0),
+                "Capacity must be positive.");
+    }
+
+    @Test
+    void testPollReturnsLogsInOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        Log first = Log.of(LogLevel.MESSAGE, "first");
+        Log second = Log.of(LogLevel.MESSAGE, "second");
+
+        assertTrue(buffer.isEmpty(), "A new buffer is empty.");
+        assertNull(buffer.poll(), "Nothing is polled from an empty buffer.");
+
+        assertTrue(buffer.offer(first));
+        assertTrue(buffer.offer(second));
+
+        assertFalse(buffer.isEmpty(), "Offered logs are visible.");
+        assertSame(first, buffer.poll(), "Logs are polled in the order they were offered.");
+        assertSame(second, buffer.poll(), "Logs are polled in the order they were offered.");
+        assertTrue(buffer.isEmpty(), "Every log was polled.");
+    }
+
+    @Test
+    void testOfferFailsWhenFull() {
+        LogRingBuffer buffer = new LogRingBuffer(2);
+        Log log = Log.of(LogLevel.MESSAGE, "log");
+
+        assertTrue(buffer.offer(log));
+        assertTrue(buffer.offer(log));
+        assertFalse(buffer.offer(log), "A full buffer rejects logs.");
+
+        buffer.poll();
+        assertTrue(buffer.offer(log), "A polled slot is reused.");
+    }
+
+    @Test
+    void testConcurrentProducersLoseNoLogs() throws Exception {
+        int producers = 4;
+        int logsPerProducer = 10_000;
+        LogRingBuffer buffer = new LogRingBuffer(64);
+        Log log = Log.of(LogLevel.MESSAGE, "log");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < logsPerProducer; j++) {
+                    while (!buffer.offer(log)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        int polled = 0;
+        while (polled < producers * logsPerProducer) {
+            if (buffer.poll() != null) {
+                polled++;
+            }
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(buffer.isEmpty(), "Every offered log is polled exactly once.");
+    }
+}
@@ -0,0 +1,152 @@
+package com.vlado.spotify.logger;
+
+import com.vlado.spotify.logger.log.Log;
+import com.vlado.spotify.logger.log.LogLevel;
+import com.vlado.spotify.logger.options.LoggerOptions;
+import com.vlado.spotify.logger.options.LoggingMode;
+import com.vlado.spotify.logger.options.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoggerTest {
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("logs");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void testIsEnabledFollowsMinLogLevel() {
+        Logger logger = new Logger(LoggerOptions.builder(directory).build());
+
+        assertFalse(logger.isEnabled(LogLevel.INFO), "Levels below the minimum are disabled.");
+        assertTrue(logger.isEnabled(LogLevel.MESSAGE), "The minimum level is enabled.");
+        assertTrue(logger.isEnabled(LogLevel.ERROR), "Levels above the minimum are enabled.");
+
+        logger.close();
+    }
+
+    @Test
+    void testSyncLogIsWrittenRightAway() throws Exception {
+        Logger logger = new Logger(LoggerOptions.builder(directory).build());
+
+        logger.log(Log.of(LogLevel.MESSAGE, "hello"));
+
+        assertTrue(Files.readString(directory.resolve("log-0.txt")).contains("hello"),
+                "A SYNC log is flushed before log returns.");
+        logger.close();
+    }
+
+    @Test
+    void testAsyncLogsAreWrittenByClose() throws Exception {
+        Logger logger = new Logger(LoggerOptions.builder(directory)
+                .setMaxFileSize(1 << 20)
+                .setMode(LoggingMode.ASYNC)
+                .setOverflowPolicy(OverflowPolicy.BLOCK)
+                .setQueueCapacity(16)
+                .build());
+
+        for (int i = 0; i < 1000; i++) {
+            logger.log(Log.of(LogLevel.MESSAGE, "message " + i));
+        }
+        logger.close();
+
+        String logs = Files.readString(directory.resolve("log-0.txt"));
+        assertTrue(logs.indexOf("message 0") < logs.indexOf("message 999"), "Logs keep their order.");
+        assertEquals(0, logger.getDroppedLogs(), "BLOCK never drops logs.");
+    }
+
+    @Test
+    void testAsyncDisabledLevelIsNotQueued() throws Exception {
+        Logger logger = new Logger(LoggerOptions.builder(directory)
+                .setMode(LoggingMode.ASYNC)
+                .build());
+
+        logger.log(Log.of(LogLevel.INFO, "hidden"));
+        logger.close();
+
+        assertEquals("", Files.readString(directory.resolve("log-0.txt")), "Disabled logs are not written.");
+        assertEquals(0, logger.getDroppedLogs(), "Disabled logs are not counted as dropped.");
+    }
+
+    @Test
+    void testLogsAfterCloseAreDropped() {
+        Logger logger = new Logger(LoggerOptions.builder(directory)
+                .setMode(LoggingMode.ASYNC)
+                .setOverflowPolicy(OverflowPolicy.DROP)
+                .build());
+        logger.close();
+
+        logger.log(Log.of(LogLevel.MESSAGE, "late"));
+        logger.log(Log.of(LogLevel.MESSAGE, "late"));
+
+        assertEquals(2, logger.getDroppedLogs(), "Logs after close are counted as dropped.");
+    }
+
+    @Test
+    void testLogsRacingCloseAreWrittenOrCounted() throws Exception {
+        Logger logger = new Logger(LoggerOptions.builder(directory)
+                .setMaxFileSize(1 << 24)
+                .setMode(LoggingMode.ASYNC)
+                .setOverflowPolicy(OverflowPolicy.DROP)
+                .build());
+        int threads = 4;
+        int logs = 2000;
+
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread producer = new Thread(() -> {
+                for (int j = 0; j < logs; j++) {
+                    logger.log(Log.of(LogLevel.MESSAGE, "racing"));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        logger.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        long written = Files.readString(directory.resolve("log-0.txt")).split("racing", -1).length - 1;
+        assertEquals(threads * logs, written + logger.getDroppedLogs(),
+                "Every log is either written or counted as dropped.");
+    }
+
+    @Test
+    void testFilesAreRotatedBySize() throws Exception {
+        Logger logger = new Logger(LoggerOptions.builder(directory)
+                .setMaxFileSize(100)
+                .setMode(LoggingMode.ASYNC)
+                .setOverflowPolicy(OverflowPolicy.BLOCK)
+                .build());
+
+        for (int i = 0; i < 10; i++) {
+            logger.log(Log.of(LogLevel.MESSAGE, "a message which is long enough"));
+        }
+        logger.close();
+
+        assertTrue(Files.exists(directory.resolve("log-1.txt")), "A full file is rotated.");
+        assertTrue(Files.size(directory.resolve("log-0.txt")) < 200, "A rotated file stays near the limit.");
+    }
+}
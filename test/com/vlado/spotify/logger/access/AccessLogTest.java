@@ -0,0 +1,137 @@
+package com.vlado.spotify.logger.access;
+
+import com.vlado.spotify.request.RequestType;
+import com.vlado.spotify.server.response.ResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+    private static final long SEGMENT_SIZE = 1024 * 1024;
+
+    private Path directory;
+    private List<Throwable> errors;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("access");
+        errors = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+
+        assertTrue(errors.isEmpty(), "No errors are reported.");
+    }
+
+    @Test
+    void testRecordsAreReadBack() throws Exception {
+        try (AccessLog log = new AccessLog(directory, SEGMENT_SIZE, 4, errors::add)) {
+            log.record(1000, "user", RequestType.SEARCH, ResponseStatus.OK, 250_000, 120);
+            log.record(2000, null, RequestType.LOG_IN, ResponseStatus.ERROR, 50_000, 40);
+        }
+
+        List<AccessRecord> records = read();
+
+        assertEquals(List.of(
+                new AccessRecord(1000, "user", RequestType.SEARCH, ResponseStatus.OK, 250_000, 120),
+                new AccessRecord(2000, "", RequestType.LOG_IN, ResponseStatus.ERROR, 50_000, 40)),
+                records, "Records are read back in the order they were written.");
+    }
+
+    @Test
+    void testLongUserNamesAreCut() throws Exception {
+        String user = "u".repeat(AccessLog.USER_SIZE + 10);
+        try (AccessLog log = new AccessLog(directory, SEGMENT_SIZE, 4, errors::add)) {
+            log.record(1000, user, RequestType.TOP, ResponseStatus.OK, 1, 1);
+        }
+
+        assertEquals(user.substring(0, AccessLog.USER_SIZE), read().get(0).user(),
+                "User names are cut to the record size.");
+    }
+
+    @Test
+    void testFlushWritesWithoutClosing() throws Exception {
+        try (AccessLog log = new AccessLog(directory, SEGMENT_SIZE, 4, errors::add)) {
+            log.record(1000, "user", RequestType.PLAY, ResponseStatus.READY_TO_STREAM, 1, 1);
+            log.flush();
+
+            assertEquals(1, read().size(), "Flushed records can be read while the log is open.");
+        }
+    }
+
+    @Test
+    void testSegmentsAreRotatedAndOldOnesDeleted() throws Exception {
+        long segmentSize = AccessLog.SEGMENT_HEADER_SIZE + 2L * AccessLog.RECORD_SIZE;
+        try (AccessLog log = new AccessLog(directory, segmentSize, 2, errors::add)) {
+            for (int i = 0; i < 5; i++) {
+                log.record(i, "user", RequestType.SEARCH, ResponseStatus.OK, i, i);
+                log.record(i, "user", RequestType.SEARCH, ResponseStatus.OK, i, i);
+                log.flush();
+            }
+        }
+
+        List<Path> segments = AccessLogReader.segments(directory);
+        assertEquals(2, segments.size(), "Only the newest segments are kept.");
+        assertEquals(2, read().size(), "The kept segments hold the newest records.");
+        assertEquals(4, read().get(0).timeMillis(), "The oldest records are deleted first.");
+    }
+
+    @Test
+    void testNewLogStartsNewSegment() throws Exception {
+        try (AccessLog log = new AccessLog(directory, SEGMENT_SIZE, 4, errors::add)) {
+            log.record(1, "first", RequestType.SEARCH, ResponseStatus.OK, 1, 1);
+        }
+        try (AccessLog log = new AccessLog(directory, SEGMENT_SIZE, 4, errors::add)) {
+            log.record(2, "second", RequestType.SEARCH, ResponseStatus.OK, 1, 1);
+        }
+
+        assertEquals(2, AccessLogReader.segments(directory).size(), "Old segments are never appended to.");
+        assertEquals(List.of("first", "second"), read().stream().map(AccessRecord::user).toList(),
+                "Segments are read oldest first.");
+    }
+
+    @Test
+    void testRecordsAfterCloseAreDropped() throws Exception {
+        AccessLog log = new AccessLog(directory, SEGMENT_SIZE, 4, errors::add);
+        log.close();
+
+        log.record(1, "user", RequestType.SEARCH, ResponseStatus.OK, 1, 1);
+
+        assertEquals(1, log.getDroppedRecords(), "Records after close are counted as dropped.");
+        assertTrue(read().isEmpty(), "Dropped records are not written.");
+    }
+
+    @Test
+    void testTornRecordIsSkipped() throws Exception {
+        try (AccessLog log = new AccessLog(directory, SEGMENT_SIZE, 4, errors::add)) {
+            log.record(1, "user", RequestType.SEARCH, ResponseStatus.OK, 1, 1);
+        }
+
+        Path segment = AccessLogReader.segments(directory).get(0);
+        Files.write(segment, new byte[AccessLog.RECORD_SIZE - 1], StandardOpenOption.APPEND);
+
+        assertEquals(1, read().size(), "A torn last record is skipped.");
+    }
+
+    private List<AccessRecord> read() throws Exception {
+        List<AccessRecord> records = new ArrayList<>();
+        AccessLogReader.read(directory, records::add);
+        return records;
+    }
+}
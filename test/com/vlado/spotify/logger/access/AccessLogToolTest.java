@@ -0,0 +1,52 @@
+package com.vlado.spotify.logger.access;
+
+import com.vlado.spotify.request.RequestType;
+import com.vlado.spotify.server.response.ResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogToolTest {
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Files.createTempDirectory("access");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void testSummaryHasPercentilesAndTopUsers() throws Exception {
+        try (AccessLog log = new AccessLog(directory, 1024 * 1024, 4, Throwable::printStackTrace)) {
+            for (int i = 1; i <= 100; i++) {
+                log.record(i, "busy", RequestType.of("search rock"), ResponseStatus.OK, i * 1_000_000L, 10);
+            }
+            log.record(0, "quiet", RequestType.of("top 5"), ResponseStatus.OK, 2_000_000, 5);
+            log.record(0, null, RequestType.of("login a b"), ResponseStatus.ERROR, 1_000_000, 5);
+        }
+
+        String summary = AccessLogTool.summarize(directory, 2);
+
+        assertTrue(summary.contains("Records: 102 in 1 segments"), "The records are counted.");
+        assertTrue(summary.matches("(?s).*search\\s+100\\s+50\\.000\\s+90\\.000\\s+99\\.000\\s+100\\.000.*"),
+                "Latency percentiles are computed per request type.");
+        assertTrue(summary.matches("(?s).*busy\\s+100\\s+1000.*"), "The most active user is listed first.");
+        assertFalse(summary.contains("<anonymous>") && summary.contains("quiet"),
+                "Only the requested number of users is listed.");
+    }
+}
@@ -0,0 +1,115 @@
+package com.vlado.spotify.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void testBucketsCoverEveryValueWithoutGaps() {
+        assertEquals(0, Histogram.lowerBound(0), "The first bucket starts at 0.");
+        for (int bucket = 1; bucket < Histogram.BUCKETS; bucket++) {
+            assertEquals(Histogram.upperBound(bucket - 1) + 1, Histogram.lowerBound(bucket),
+                    "Every bucket starts right after the previous one.");
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.BUCKETS - 1), "The last bucket ends at the max.");
+    }
+
+    @Test
+    void testValuesFallInTheirBucket() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucket(value);
+
+            assertTrue(Histogram.lowerBound(bucket) <= value && value <= Histogram.upperBound(bucket),
+                    "Value " + value + " is within the bounds of its bucket.");
+        }
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.getCount(), "Every value is counted.");
+        assertEquals(50_005_000_000L, snapshot.getSum(), "Values are summed exactly.");
+        assertWithinPrecision(5_000_000, snapshot.getPercentile(50));
+        assertWithinPrecision(9_900_000, snapshot.getPercentile(99));
+        assertWithinPrecision(10_000_000, snapshot.getMax());
+    }
+
+    @Test
+    void testEmptySnapshot() {
+        HistogramSnapshot snapshot = new Histogram().snapshot();
+
+        assertEquals(0, snapshot.getCount(), "Nothing is counted.");
+        assertEquals(0, snapshot.getPercentile(99), "Percentiles of nothing are 0.");
+        assertEquals(0, snapshot.getMax(), "The max of nothing is 0.");
+        assertEquals(0, snapshot.getMean(), "The mean of nothing is 0.");
+    }
+
+    @Test
+    void testMinusKeepsOnlyLaterValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(1_000_000);
+        HistogramSnapshot earlier = histogram.snapshot();
+        histogram.record(10);
+        histogram.record(20);
+
+        HistogramSnapshot later = histogram.snapshot().minus(earlier);
+
+        assertEquals(2, later.getCount(), "Only the values recorded after the earlier snapshot are counted.");
+        assertEquals(30, later.getSum(), "Only the values recorded after the earlier snapshot are summed.");
+        assertEquals(Histogram.upperBound(Histogram.bucket(20)), later.getMax(),
+                "The max leaves out the earlier values.");
+    }
+
+    @Test
+    void testNegativeValuesAreRecordedAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertEquals(0, histogram.snapshot().getMax(), "Negative values are recorded as 0.");
+    }
+
+    @Test
+    void testInvalidPercentileThrows() {
+        HistogramSnapshot snapshot = new Histogram().snapshot();
+
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getPercentile(101),
+                "Percentiles are at most 100.");
+    }
+
+    @Test
+    void testConcurrentRecordsAreCounted() throws Exception {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    histogram.record(j);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.snapshot().getCount(), "No record is lost.");
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / Histogram.SUB_BUCKETS,
+                String.format("Expected %d within 1/%d, was %d.", expected, Histogram.SUB_BUCKETS, actual));
+    }
+}
@@ -0,0 +1,57 @@
+package com.vlado.spotify.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    void testMetricsAreSharedByName() {
+        assertSame(registry.counter("counter"), registry.counter("counter"), "Counters are shared by name.");
+        assertSame(registry.histogram("histogram"), registry.histogram("histogram"),
+                "Histograms are shared by name.");
+    }
+
+    @Test
+    void testCounterCounts() {
+        Counter counter = registry.counter("counter");
+        counter.increment();
+        counter.add(4);
+
+        assertEquals(5, counter.get(), "Increments and additions are counted.");
+        assertThrows(IllegalArgumentException.class, () -> counter.add(-1), "Counters only go up.");
+    }
+
+    @Test
+    void testGaugeIsReplaced() {
+        registry.gauge("gauge", () -> 1);
+        registry.gauge("gauge", () -> 2);
+
+        assertEquals(2, registry.snapshot().gauges().get("gauge"), "The latest gauge is used.");
+    }
+
+    @Test
+    void testSnapshotHasEveryMetricSortedByName() {
+        registry.counter("b").increment();
+        registry.counter("a").add(3);
+        registry.gauge("gauge", () -> 7);
+        registry.histogram("histogram").record(10);
+
+        MetricsSnapshot snapshot = registry.snapshot();
+
+        assertEquals(List.of("a", "b"), List.copyOf(snapshot.counters().keySet()), "Metrics are sorted by name.");
+        assertEquals(3, snapshot.counters().get("a"), "Counter values are read.");
+        assertEquals(7, snapshot.gauges().get("gauge"), "Gauge values are read.");
+        assertEquals(1, snapshot.histograms().get("histogram").getCount(), "Histograms are read.");
+    }
+}
@@ -0,0 +1,59 @@
+package com.vlado.spotify.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsServerTest {
+    private MetricsRegistry registry;
+    private MetricsServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        registry = new MetricsRegistry();
+        server = new MetricsServer(0, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testScrapesAreAnsweredFromLastRefresh() throws Exception {
+        Counter counter = registry.counter("requests.errors");
+        counter.add(2);
+        server.refresh();
+        counter.add(5);
+
+        HttpURLConnection connection = open();
+
+        assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode(), "Metrics are served.");
+        assertEquals(PrometheusFormat.CONTENT_TYPE, connection.getContentType(),
+                "Metrics are served in the Prometheus text format.");
+        try (InputStream in = connection.getInputStream()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(body.contains("spotify_requests_errors_total 2\n"),
+                    "Values recorded after the last refresh are not served yet.");
+        }
+    }
+
+    @Test
+    void testOnlyGetIsAllowed() throws Exception {
+        HttpURLConnection connection = open();
+        connection.setRequestMethod("POST");
+
+        assertEquals(HttpURLConnection.HTTP_BAD_METHOD, connection.getResponseCode(), "Only GET is allowed.");
+    }
+
+    private HttpURLConnection open() throws Exception {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/metrics").openConnection();
+    }
+}
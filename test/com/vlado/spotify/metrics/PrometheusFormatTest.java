@@ -0,0 +1,47 @@
+package com.vlado.spotify.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrometheusFormatTest {
+
+    @Test
+    void testCountersAndGaugesAreRendered() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("responses.bytes.json").add(42);
+        registry.gauge("streams.active", () -> 3);
+
+        String text = PrometheusFormat.render(registry.snapshot());
+
+        assertTrue(text.contains("# TYPE spotify_responses_bytes_json_total counter\n"
+                + "spotify_responses_bytes_json_total 42\n"), "Counters get the _total suffix.");
+        assertTrue(text.contains("# TYPE spotify_streams_active gauge\nspotify_streams_active 3\n"),
+                "Gauges are rendered with their value.");
+    }
+
+    @Test
+    void testHistogramBucketsAreCumulativeSeconds() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("requests.search.latency");
+        histogram.record(50_000);
+        histogram.record(2_000_000);
+        histogram.record(20_000_000_000L);
+
+        String text = PrometheusFormat.render(registry.snapshot());
+
+        assertTrue(text.contains("# TYPE spotify_requests_search_latency_seconds histogram\n"),
+                "Histograms are exported in seconds.");
+        assertTrue(text.contains("spotify_requests_search_latency_seconds_bucket{le=\"1.0E-4\"} 1\n"),
+                "Buckets count the values at most their bound.");
+        assertTrue(text.contains("spotify_requests_search_latency_seconds_bucket{le=\"0.0025\"} 2\n"),
+                "Buckets are cumulative.");
+        assertTrue(text.contains("spotify_requests_search_latency_seconds_bucket{le=\"10.0\"} 2\n"),
+                "Values above the last bound are only in +Inf.");
+        assertTrue(text.contains("spotify_requests_search_latency_seconds_bucket{le=\"+Inf\"} 3\n"),
+                "+Inf has every value.");
+        assertTrue(text.contains("spotify_requests_search_latency_seconds_count 3\n"), "The count is rendered.");
+        assertTrue(text.contains("spotify_requests_search_latency_seconds_sum 20.00205\n"),
+                "The sum is rendered in seconds.");
+    }
+}
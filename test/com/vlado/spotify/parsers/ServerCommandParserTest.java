@@ -4,6 +4,7 @@ import com.vlado.spotify.server.Server;
 import com.vlado.spotify.server.SpotifyServer;
 import com.vlado.spotify.server.commands.AddSongCommand;
 import com.vlado.spotify.server.commands.QuitCommand;
+import com.vlado.spotify.server.commands.StatsCommand;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -52,4 +53,18 @@ class ServerCommandParserTest {
         assertThrows(IllegalArgumentException.class, () -> serverCommandParser.parse("add-song arg arg2 arg3 arg4"),
                 "Parsing add-song with invalid arguments throw exception.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParseStatsCommandSuccessful() {
+        assertEquals(StatsCommand.class, serverCommandParser.parse("stats").getClass(),
+                "Parsing stats command returns correct class.");
+        assertEquals(StatsCommand.class, serverCommandParser.parse("stats requests").getClass(),
+                "Parsing stats command with a subsystem returns correct class.");
+    }
+
+    @Test
+    void testParseStatsCommandInvalidArgs() {
+        assertThrows(IllegalArgumentException.class, () -> serverCommandParser.parse("stats requests streams"),
+                "Parsing stats with invalid arguments throw exception.");
+    }
+}
@@ -0,0 +1,39 @@
+package com.vlado.spotify.request;
+
+import com.vlado.spotify.exceptions.UserErrorException;
+import com.vlado.spotify.server.response.ResponseProtocol;
+import com.vlado.spotify.server.response.ResponseSender;
+import com.vlado.spotify.server.response.ResponseStatus;
+import com.vlado.spotify.stubs.SelectionKeyStub;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ProtocolRequestTest {
+    private final SelectionKeyStub keyStub = new SelectionKeyStub();
+    private final ResponseSender responseSender = mock(ResponseSender.class);
+
+    @Test
+    void testExecuteUnknownProtocol() {
+        ProtocolRequest request = new ProtocolRequest("xml", keyStub, responseSender);
+
+        assertThrows(UserErrorException.class, request::execute,
+                "Unknown protocols are rejected.");
+        verify(responseSender, never()).setProtocol(any(), any());
+    }
+
+    @Test
+    void testExecuteDoesNotRequireLogIn() {
+        keyStub.attach(null);
+        ProtocolRequest request = new ProtocolRequest("BiNaRy", keyStub, responseSender);
+
+        assertEquals(ResponseStatus.OK, request.execute().getStatus(),
+                "Protocol can be chosen before logging in, ignoring case.");
+        verify(responseSender, times(1)).setProtocol(keyStub, ResponseProtocol.BINARY);
+    }
+}
@@ -12,7 +12,7 @@ import static org.mockito.Mockito.*;
 class AddSongCommandTest {
     private static final String SONG_NAME= "songName";
     private static final String ARTIST_NAME= "artistName";
-    private static final Path PATH = Path.of("path");
+    private static final Path PATH = Path.of("testResources", "5sec.wav");
     private final SongDatabase songDatabase = mock(SongDatabase.class);
 
     @Test
@@ -28,4 +28,22 @@ class AddSongCommandTest {
         verify(songDatabase, times(1)).addSong(song);
     }
 
+    @Test
+    void testSongIsProbed() {
+        AddSongCommand command = new AddSongCommand(SONG_NAME, ARTIST_NAME, PATH, songDatabase);
+        command.execute();
+
+        verify(songDatabase).addSong(argThat(song -> song.header() != null
+                && song.duration().toMillis() > 0));
+    }
+
+    @Test
+    void testNotWavFile() {
+        AddSongCommand command = new AddSongCommand(SONG_NAME, ARTIST_NAME, Path.of("path"), songDatabase);
+
+        assertThrows(IllegalArgumentException.class, command::execute,
+                "Songs which are not WAV files cannot be added.");
+        verify(songDatabase, never()).addSong(any());
+    }
+
 }
\ No newline at end of file
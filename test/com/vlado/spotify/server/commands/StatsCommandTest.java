@@ -0,0 +1,95 @@
+package com.vlado.spotify.server.commands;
+
+import com.vlado.spotify.metrics.MetricsRegistry;
+import com.vlado.spotify.metrics.MetricsSnapshot;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsCommandTest {
+    private static final MetricsRegistry METRICS = MetricsRegistry.instance();
+
+    @BeforeAll
+    static void setUp() {
+        METRICS.gauge("statstest.queue", () -> 7);
+        METRICS.counter("statstest.cache.hits").add(3);
+        METRICS.counter("statstest.cache.misses").add(1);
+        METRICS.counter("statstest.errors").add(5);
+        METRICS.histogram("statstest.latency").record(2_000_000);
+        METRICS.histogram("statstest.unused");
+    }
+
+    @Test
+    void testSubsystemStatsHaveOnlyItsMetrics() {
+        String stats = new StatsCommand("statstest", METRICS, new AtomicReference<>()).execute();
+
+        assertTrue(stats.matches("(?s).*statstest\\.queue\\s+7\\n.*"), "Gauges are printed.");
+        assertTrue(stats.contains("statstest.cache.hit.rate") && stats.contains("75.0%"),
+                "Hit rates are computed from hits and misses.");
+        assertTrue(stats.matches("(?s).*statstest\\.errors\\s+5\\s.*"), "Counters are printed.");
+        assertTrue(stats.matches("(?s).*statstest\\.latency\\s+1\\s+\\S+\\s+2\\.\\d+.*"),
+                "Histograms are printed with percentiles in milliseconds.");
+        assertFalse(stats.contains("statstest.unused"), "Empty histograms are left out.");
+        assertFalse(stats.contains("selector."), "Metrics of other subsystems are left out.");
+    }
+
+    @Test
+    void testRatesAreSincePreviousStats() {
+        AtomicReference<MetricsSnapshot> previous = new AtomicReference<>();
+        new StatsCommand("statstest", METRICS, previous).execute();
+
+        assertNotNull(previous.get(), "The snapshot is kept for the next stats command.");
+
+        String stats = new StatsCommand("statstest", METRICS, previous).execute();
+
+        assertTrue(stats.matches("(?s).*statstest\\.errors\\s+5\\s+0\\.0\\n.*"),
+                "Nothing was counted since the previous stats command.");
+    }
+
+    @Test
+    void testPercentilesAreSincePreviousStats() {
+        METRICS.histogram("statstest.window").record(100_000_000);
+        AtomicReference<MetricsSnapshot> previous = new AtomicReference<>();
+        new StatsCommand("statstest", METRICS, previous).execute();
+
+        String idle = new StatsCommand("statstest", METRICS, previous).execute();
+        assertTrue(idle.matches("(?s).*statstest\\.window\\s+1\\s+0\\.0\\s+-\\s.*"),
+                "No percentiles are printed when nothing was recorded since the previous stats command.");
+
+        METRICS.histogram("statstest.window").record(1_000_000);
+        String stats = new StatsCommand("statstest", METRICS, previous).execute();
+        assertTrue(stats.matches("(?s).*statstest\\.window\\s+2\\s+\\S+\\s+1\\.\\d+\\s+1\\.\\d+.*"),
+                "Percentiles leave out the values recorded before the previous stats command.");
+    }
+
+    @Test
+    void testUnknownSubsystemThrows() {
+        StatsCommand command = new StatsCommand("unknown-subsystem", METRICS, new AtomicReference<>());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, command::execute,
+                "Stats of an unknown subsystem throw exception.");
+        assertTrue(e.getMessage().contains("statstest"), "The known subsystems are listed.");
+    }
+
+    @Test
+    void testUnknownSubsystemKeepsPreviousStats() {
+        AtomicReference<MetricsSnapshot> previous = new AtomicReference<>();
+        new StatsCommand("statstest", METRICS, previous).execute();
+        MetricsSnapshot last = previous.get();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new StatsCommand("unknown-subsystem", METRICS, previous).execute(),
+                "Stats of an unknown subsystem throw exception.");
+        assertSame(last, previous.get(), "Stats of an unknown subsystem do not restart the rates.");
+    }
+
+    @Test
+    void testStatsOfEverySubsystem() {
+        String stats = new StatsCommand(null, METRICS, new AtomicReference<>()).execute();
+
+        assertTrue(stats.contains("statstest.errors"), "Every subsystem is printed.");
+    }
+}
@@ -0,0 +1,185 @@
+package com.vlado.spotify.server.response;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundQueueTest {
+    private static final int BUFFER_SIZE = 16;
+    private static final int MAX_POOLED = 8;
+
+    private ByteBufferPool pool;
+    private OutboundQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ByteBufferPool(BUFFER_SIZE, MAX_POOLED);
+        queue = new OutboundQueue(pool);
+    }
+
+    @Test
+    void testAddNullMessage() {
+        assertThrows(IllegalArgumentException.class, () -> queue.add(ResponseBuffer.MESSAGE, null),
+                "Null message cannot be queued.");
+        assertTrue(queue.isEmpty(), "Queue stays empty.");
+    }
+
+    @Test
+    void testFlushWholeQueueInOneWrite() throws Exception {
+        byte[] first = randomBytes(40);
+        byte[] second = randomBytes(3);
+        queue.add(ResponseBuffer.MESSAGE, first);
+        queue.add(ResponseBuffer.BINARY_MESSAGE, second);
+
+        RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+        long written = queue.flush(channel);
+
+        assertEquals(2 * (ResponseBuffer.FRAGMENT_SIZE_BYTES + ResponseBuffer.CODE_BYTES) + 43, written,
+                "Every queued byte is written.");
+        assertEquals(1, channel.writes, "All buffers are written with one gathering write.");
+        assertTrue(queue.isEmpty(), "Queue is empty after a full flush.");
+        assertEquals(0, queue.getQueuedBytes(), "No bytes are left queued.");
+
+        ResponseBuffer responseBuffer = new ResponseBuffer(BUFFER_SIZE);
+        responseBuffer.putBack(channel.output.toByteArray());
+        assertArrayEquals(withCode(ResponseBuffer.MESSAGE, first), responseBuffer.getNext(),
+                "The first response is framed correctly.");
+        assertArrayEquals(withCode(ResponseBuffer.BINARY_MESSAGE, second), responseBuffer.getNext(),
+                "The second response is framed correctly.");
+    }
+
+    @Test
+    void testPartialWritesKeepOrder() throws Exception {
+        ResponseBuffer responseBuffer = new ResponseBuffer(BUFFER_SIZE);
+        RecordingChannel channel = new RecordingChannel(7);
+        byte[][] messages = new byte[20][];
+
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = randomBytes(1 + i * 3);
+            queue.add(ResponseBuffer.MESSAGE, messages[i]);
+            queue.flush(channel);
+        }
+        while (!queue.isEmpty()) {
+            queue.flush(channel);
+        }
+
+        responseBuffer.putBack(channel.output.toByteArray());
+        for (byte[] message : messages) {
+            assertArrayEquals(withCode(ResponseBuffer.MESSAGE, message), responseBuffer.getNext(),
+                    "Responses arrive intact and in order.");
+        }
+        assertTrue(responseBuffer.isEmpty(), "Nothing else is written.");
+    }
+
+    @Test
+    void testBuffersAreReturnedToPool() throws Exception {
+        queue.add(ResponseBuffer.MESSAGE, randomBytes(5 * BUFFER_SIZE));
+        assertEquals(0, pool.getPooledCount(), "Queued buffers are taken from the pool.");
+
+        queue.flush(new RecordingChannel(Integer.MAX_VALUE));
+        assertTrue(pool.getPooledCount() > 0, "Written buffers are returned to the pool.");
+
+        int pooled = pool.getPooledCount();
+        queue.add(ResponseBuffer.MESSAGE, randomBytes(BUFFER_SIZE));
+        queue.clear();
+        assertEquals(pooled, pool.getPooledCount(), "Cleared buffers are returned to the pool.");
+        assertTrue(queue.isEmpty(), "Queue is empty after clear.");
+    }
+
+    @Test
+    void testPoolIsBounded() {
+        for (int i = 0; i < 2 * MAX_POOLED; i++) {
+            pool.release(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+
+        assertEquals(MAX_POOLED, pool.getPooledCount(), "Pool does not keep more than its limit.");
+        assertThrows(IllegalArgumentException.class, () -> pool.release(ByteBuffer.allocate(BUFFER_SIZE + 1)),
+                "Buffers of another size cannot be pooled.");
+    }
+
+    @Test
+    void testCheckBudget() throws Exception {
+        queue.add(ResponseBuffer.MESSAGE, randomBytes(100));
+
+        assertFalse(queue.checkBudget(1000, 0), "Queue within its budget is not paused.");
+        assertFalse(queue.isOverBudget(), "Queue within its budget is not over it.");
+
+        assertTrue(queue.checkBudget(50, 10), "Going over the budget is reported once.");
+        assertFalse(queue.checkBudget(50, 20), "Staying over the budget is not reported again.");
+        assertTrue(queue.isOverBudget(), "Queue is over its budget.");
+
+        assertFalse(queue.isOverBudgetLongerThan(15, 20), "Timeout has not passed yet.");
+        assertTrue(queue.isOverBudgetLongerThan(15, 30), "Timeout is measured from going over the budget.");
+
+        queue.flush(new RecordingChannel(Integer.MAX_VALUE));
+        assertFalse(queue.checkBudget(50, 40), "Drained queue is within its budget.");
+        assertFalse(queue.isOverBudgetLongerThan(15, 100), "Drained queue never times out.");
+    }
+
+    private static byte[] withCode(byte code, byte[] message) {
+        byte[] result = new byte[message.length + 1];
+        result[0] = code;
+        System.arraycopy(message, 0, result, 1, message.length);
+
+        return result;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+
+        return bytes;
+    }
+
+    // Accepts at most maxPerWrite bytes on every write
+    private static class RecordingChannel implements GatheringByteChannel {
+        private final int maxPerWrite;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private int writes;
+
+        RecordingChannel(int maxPerWrite) {
+            this.maxPerWrite = maxPerWrite;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            writes++;
+            long written = 0;
+
+            for (int i = offset; i < offset + length && written < maxPerWrite; i++) {
+                int count = (int) Math.min(srcs[i].remaining(), maxPerWrite - written);
+                for (int j = 0; j < count; j++) {
+                    output.write(srcs[i].get());
+                }
+                written += count;
+            }
+
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            return (int) write(new ByteBuffer[]{src});
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -3,6 +3,11 @@ package com.vlado.spotify.server.response;
 import org.junit.jupiter.api.Test;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -211,4 +216,86 @@ class ResponseBufferTest {
         assertTrue(responseBuffer.isEmpty(),
                 "Buffer is empty after clear.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetNextBufferSuccessful() {
+        ResponseBuffer responseBuffer = new ResponseBuffer(8);
+        responseBuffer.putBack(new byte[]{0, 0, 0, 3, 1, 1, 2, 3});
+
+        ByteBuffer next = responseBuffer.getNextBuffer();
+        assertNotNull(next, "Whole response is available.");
+        byte[] actual = new byte[next.remaining()];
+        next.get(actual);
+
+        assertArrayEquals(new byte[]{1, 1, 2, 3}, actual,
+                "The response bytes are correct.");
+        assertTrue(responseBuffer.isEmpty(),
+                "Buffer is empty after the response is extracted.");
+        assertNull(responseBuffer.getNextBuffer(),
+                "Empty buffer has no response.");
+    }
+
+    @Test
+    void testResponsesSplitAcrossReads() {
+        ResponseBuffer responseBuffer = new ResponseBuffer(4);
+        byte[] stream = {0, 0, 0, 2, 0, 7, 8, 0, 0, 0, 1, 1, 9, 0, 0, 0, 3, 0, 4, 5, 6};
+
+        List<byte[]> responses = new ArrayList<>();
+        for (int i = 0; i < stream.length; i += 3) {
+            responseBuffer.putBack(ByteBuffer.wrap(stream, i, Math.min(3, stream.length - i)));
+
+            byte[] next;
+            while ((next = responseBuffer.getNext()) != null) {
+                responses.add(next);
+            }
+        }
+
+        assertEquals(3, responses.size(), "Every response is extracted once complete.");
+        assertArrayEquals(new byte[]{0, 7, 8}, responses.get(0), "The first response is correct.");
+        assertArrayEquals(new byte[]{1, 9}, responses.get(1), "The second response is correct.");
+        assertArrayEquals(new byte[]{0, 4, 5, 6}, responses.get(2), "The third response is correct.");
+        assertTrue(responseBuffer.isEmpty(), "Buffer is empty after every response is extracted.");
+    }
+
+    @Test
+    void testWrapAroundAndGrowth() {
+        ResponseBuffer responseBuffer = new ResponseBuffer(16);
+        Random random = new Random(7);
+        Deque<byte[]> expected = new ArrayDeque<>();
+
+        for (int i = 0; i < 2000; i++) {
+            byte[] payload = new byte[1 + random.nextInt(40)];
+            random.nextBytes(payload);
+            payload[0] = ResponseBuffer.FRAGMENT;
+
+            ByteBuffer frame = ByteBuffer.allocate(ResponseBuffer.FRAGMENT_SIZE_BYTES + payload.length);
+            frame.putInt(payload.length - ResponseBuffer.CODE_BYTES).put(payload).flip();
+            responseBuffer.putBack(frame);
+            expected.addLast(payload);
+
+            while (random.nextBoolean() && !expected.isEmpty()) {
+                ByteBuffer next = i % 2 == 0 ? responseBuffer.getNextBuffer() : ByteBuffer.wrap(responseBuffer.getNext());
+                byte[] actual = new byte[next.remaining()];
+                next.get(actual);
+
+                assertArrayEquals(expected.pollFirst(), actual, "Responses come out in order and intact.");
+            }
+        }
+
+        while (!expected.isEmpty()) {
+            assertArrayEquals(expected.pollFirst(), responseBuffer.getNext(), "Remaining responses are intact.");
+        }
+        assertTrue(responseBuffer.isEmpty(), "Buffer is empty after every response is extracted.");
+    }
+
+    @Test
+    void testPutFrontBeforeExistingBytes() {
+        ResponseBuffer responseBuffer = new ResponseBuffer(2);
+        responseBuffer.putBack(new byte[]{1, 4, 5});
+        responseBuffer.putFront(new byte[]{0, 0, 0, 2});
+
+        assertEquals(1, responseBuffer.getNextCode(), "The code after the prepended header is read.");
+        assertArrayEquals(new byte[]{1, 4, 5}, responseBuffer.getNext(),
+                "Prepended bytes come before the existing ones.");
+    }
+}
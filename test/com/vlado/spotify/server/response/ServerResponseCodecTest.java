@@ -0,0 +1,93 @@
+package com.vlado.spotify.server.response;
+
+import com.vlado.spotify.song.SongFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerResponseCodecTest {
+    private static final SongFormat SONG_FORMAT =
+            new SongFormat("PCM_SIGNED", 44100f, 16, 2, 4, 44100f, false);
+
+    @Test
+    void testEncodeNull() {
+        assertThrows(IllegalArgumentException.class, () -> ServerResponseCodec.encode(null),
+                "Null response cannot be encoded.");
+    }
+
+    @Test
+    void testDecodeNull() {
+        assertThrows(IllegalArgumentException.class, () -> ServerResponseCodec.decode(null),
+                "Null bytes cannot be decoded.");
+    }
+
+    @Test
+    void testRoundTripMessage() {
+        for (ResponseStatus status : ResponseStatus.values()) {
+            ServerResponse response = ServerResponse.of(status, "\u00dcn\u00efcode message -> ok");
+            ServerResponse decoded = ServerResponseCodec.decode(ServerResponseCodec.encode(response));
+
+            assertEquals(response.toString(), decoded.toString(),
+                    "Decoded response is equal to the encoded one.");
+        }
+    }
+
+    @Test
+    void testRoundTripSongFormat() {
+        ServerResponse response = ServerResponse.of(ResponseStatus.OK, "Song is playing.", SONG_FORMAT);
+        ServerResponse decoded = ServerResponseCodec.decode(ServerResponseCodec.encode(response));
+
+        assertTrue(decoded.isSongFormatResponse(), "Song format is decoded.");
+        assertEquals(response.toString(), decoded.toString(),
+                "Decoded response is equal to the encoded one.");
+    }
+
+    @Test
+    void testDecodeWithOffset() {
+        byte[] encoded = ServerResponseCodec.encode(ServerResponse.of(ResponseStatus.ERROR, "error"));
+        byte[] framed = new byte[encoded.length + 1];
+        framed[0] = ResponseBuffer.BINARY_MESSAGE;
+        System.arraycopy(encoded, 0, framed, 1, encoded.length);
+
+        assertEquals(ServerResponse.of(ResponseStatus.ERROR, "error").toString(),
+                ServerResponseCodec.decode(framed, 1, encoded.length).toString(),
+                "Response is decoded from the middle of an array.");
+    }
+
+    @Test
+    void testEncodedSmallerThanJson() {
+        ServerResponse response = ServerResponse.of(ResponseStatus.OK, "Song is playing.", SONG_FORMAT);
+
+        assertTrue(ServerResponseCodec.encode(response).length < response.toString().length(),
+                "Binary response is smaller than the JSON one.");
+    }
+
+    @Test
+    void testDecodeUnknownStatus() {
+        byte[] encoded = ServerResponseCodec.encode(ServerResponse.of(ResponseStatus.OK, "ok"));
+        encoded[0] = (byte) ResponseStatus.values().length;
+
+        assertThrows(IllegalArgumentException.class, () -> ServerResponseCodec.decode(encoded),
+                "Unknown status cannot be decoded.");
+    }
+
+    @Test
+    void testDecodeEncodingTooLong() {
+        byte[] encoded = ServerResponseCodec.encode(ServerResponse.of(ResponseStatus.OK, "ok", SONG_FORMAT));
+        encoded[2] = (byte) 0x80;
+
+        assertThrows(IllegalArgumentException.class, () -> ServerResponseCodec.decode(encoded),
+                "Encoding length above the maximum cannot be decoded.");
+    }
+
+    @Test
+    void testDecodeTruncated() {
+        byte[] encoded = ServerResponseCodec.encode(ServerResponse.of(ResponseStatus.OK, "ok", SONG_FORMAT));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ServerResponseCodec.decode(Arrays.copyOf(encoded, 10)),
+                "Truncated response cannot be decoded.");
+    }
+}
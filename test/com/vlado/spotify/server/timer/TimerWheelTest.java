@@ -0,0 +1,223 @@
+package com.vlado.spotify.server.timer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    private List<Throwable> errors;
+    private TimerWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        errors = new ArrayList<>();
+        wheel = new TimerWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE, errors::add);
+    }
+
+    @Test
+    void testConstructorInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimerWheel(0, TimeUnit.MILLISECONDS, WHEEL_SIZE, errors::add),
+                "Tick duration must be positive.");
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimerWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, 0, errors::add),
+                "Wheel size must be positive.");
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimerWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE, null),
+                "Error handler cannot be null.");
+    }
+
+    @Test
+    void testEmptyWheel() {
+        assertTrue(wheel.isEmpty(), "A new wheel has no timers.");
+        assertEquals(TimerWheel.NO_TIMERS, wheel.nanosUntilNextDeadline(System.nanoTime()),
+                "An empty wheel has no next deadline.");
+        assertEquals(0, wheel.selectTimeoutMillis(System.nanoTime()),
+                "Select waits without a timeout when nothing is scheduled.");
+        assertEquals(0, wheel.advance(System.nanoTime() + TimeUnit.SECONDS.toNanos(1)),
+                "Nothing expires in an empty wheel.");
+    }
+
+    @Test
+    void testTaskDoesNotRunBeforeDeadline() {
+        List<String> runs = new ArrayList<>();
+        long scheduledAt = System.nanoTime();
+        wheel.schedule(50, TimeUnit.MILLISECONDS, () -> runs.add("task"));
+
+        assertEquals(0, wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(30)),
+                "A task does not run before its deadline.");
+        assertEquals(1, wheel.size(), "The task is still pending.");
+
+        assertEquals(1, wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(100)),
+                "The task runs once its deadline has passed.");
+        assertEquals(List.of("task"), runs, "The task runs exactly once.");
+        assertTrue(wheel.isEmpty(), "An expired task is removed from the wheel.");
+    }
+
+    @Test
+    void testTasksRunInDeadlineOrder() {
+        List<Integer> runs = new ArrayList<>();
+        long scheduledAt = System.nanoTime();
+        wheel.schedule(30, TimeUnit.MILLISECONDS, () -> runs.add(3));
+        wheel.schedule(10, TimeUnit.MILLISECONDS, () -> runs.add(1));
+        wheel.schedule(20, TimeUnit.MILLISECONDS, () -> runs.add(2));
+
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertEquals(List.of(1, 2, 3), runs, "Tasks in different ticks run in deadline order.");
+    }
+
+    @Test
+    void testDelayLongerThanOneRotation() {
+        List<String> runs = new ArrayList<>();
+        long rotationMillis = TICK_MILLIS * WHEEL_SIZE;
+        long scheduledAt = System.nanoTime();
+        wheel.schedule(3 * rotationMillis, TimeUnit.MILLISECONDS, () -> runs.add("task"));
+
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(2 * rotationMillis));
+        assertTrue(runs.isEmpty(), "A task waits for all of its rounds.");
+
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(4 * rotationMillis));
+        assertEquals(List.of("task"), runs, "A task runs after its last round.");
+    }
+
+    @Test
+    void testTaskCanScheduleAnotherTask() {
+        List<String> runs = new ArrayList<>();
+        long scheduledAt = System.nanoTime();
+        wheel.schedule(0, TimeUnit.MILLISECONDS, () -> {
+            runs.add("first");
+            wheel.schedule(0, TimeUnit.MILLISECONDS, () -> runs.add("second"));
+        });
+
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+        assertEquals(List.of("first"), runs, "A task scheduled while expiring runs on a later tick.");
+
+        wheel.advance(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2 * TICK_MILLIS));
+        assertEquals(List.of("first", "second"), runs, "The rescheduled task runs on the next advance.");
+    }
+
+    @Test
+    void testFailingTaskIsReported() {
+        List<String> runs = new ArrayList<>();
+        RuntimeException failure = new RuntimeException("failure");
+        long scheduledAt = System.nanoTime();
+        wheel.schedule(0, TimeUnit.MILLISECONDS, () -> {
+            throw failure;
+        });
+        wheel.schedule(0, TimeUnit.MILLISECONDS, () -> runs.add("task"));
+
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+
+        assertEquals(List.of(failure), errors, "The failure is passed to the error handler.");
+        assertEquals(List.of("task"), runs, "Other tasks still run after a failure.");
+    }
+
+    @Test
+    void testNanosUntilNextDeadline() {
+        long now = System.nanoTime();
+        wheel.schedule(1, TimeUnit.SECONDS, () -> { });
+        wheel.schedule(10, TimeUnit.SECONDS, () -> { });
+
+        long untilDeadline = wheel.nanosUntilNextDeadline(now);
+        assertTrue(untilDeadline >= TimeUnit.SECONDS.toNanos(1)
+                        && untilDeadline <= TimeUnit.SECONDS.toNanos(1) + TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS),
+                "The next deadline is the earliest one, rounded up to a tick.");
+        assertTrue(wheel.selectTimeoutMillis(now) >= 1000, "Select waits until the earliest deadline.");
+    }
+
+    @Test
+    void testCancel() {
+        List<String> runs = new ArrayList<>();
+        long scheduledAt = System.nanoTime();
+        Timeout first = wheel.schedule(10, TimeUnit.MILLISECONDS, () -> runs.add("first"));
+        wheel.schedule(2, TimeUnit.SECONDS, () -> runs.add("second"));
+
+        assertTrue(first.cancel(), "A pending timer can be cancelled.");
+        assertTrue(first.isCancelled(), "A cancelled timer reports it.");
+        assertFalse(first.cancel(), "A timer cannot be cancelled twice.");
+        assertEquals(1, wheel.size(), "A cancelled timer leaves the wheel.");
+        assertTrue(wheel.nanosUntilNextDeadline(scheduledAt) > TimeUnit.SECONDS.toNanos(1),
+                "The next deadline moves to the remaining timer.");
+
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(runs.isEmpty(), "A cancelled timer does not run.");
+    }
+
+    @Test
+    void testCancelAfterExpiry() {
+        long scheduledAt = System.nanoTime();
+        Timeout timeout = wheel.schedule(0, TimeUnit.MILLISECONDS, () -> { });
+
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+
+        assertTrue(timeout.isExpired(), "A timer which ran is expired.");
+        assertFalse(timeout.cancel(), "An expired timer cannot be cancelled.");
+    }
+
+    @Test
+    void testPeriodic() {
+        List<Long> runs = new ArrayList<>();
+        long scheduledAt = System.nanoTime();
+        Timeout timeout = wheel.schedulePeriodic(0, 20, TimeUnit.MILLISECONDS, () -> runs.add(0L));
+
+        for (int i = 1; i <= 5; i++) {
+            wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(20L * i));
+        }
+
+        assertTrue(runs.size() >= 4 && runs.size() <= 6, "A periodic task runs once per period.");
+        assertFalse(timeout.isExpired(), "A periodic timer does not expire.");
+        assertEquals(1, wheel.size(), "A periodic timer stays in the wheel.");
+
+        assertTrue(timeout.cancel(), "A periodic timer can be cancelled.");
+        assertTrue(wheel.isEmpty(), "A cancelled periodic timer leaves the wheel.");
+    }
+
+    @Test
+    void testPeriodicCancelledByItself() {
+        List<String> runs = new ArrayList<>();
+        Timeout[] timeout = new Timeout[1];
+        long scheduledAt = System.nanoTime();
+        timeout[0] = wheel.schedulePeriodic(0, 10, TimeUnit.MILLISECONDS, () -> {
+            runs.add("run");
+            timeout[0].cancel();
+        });
+
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(100));
+        wheel.advance(scheduledAt + TimeUnit.MILLISECONDS.toNanos(200));
+
+        assertEquals(List.of("run"), runs, "A periodic task which cancels itself is not run again.");
+        assertTrue(wheel.isEmpty(), "A periodic task which cancels itself leaves the wheel.");
+    }
+
+    @Test
+    void testManyTimers() {
+        int timers = 100_000;
+        int[] runs = new int[1];
+        List<Timeout> timeouts = new ArrayList<>(timers);
+        long scheduledAt = System.nanoTime();
+
+        for (int i = 0; i < timers; i++) {
+            timeouts.add(wheel.schedule(i % 1000, TimeUnit.MILLISECONDS, () -> runs[0]++));
+        }
+        assertEquals(timers, wheel.size(), "Every timer is pending.");
+
+        for (int i = 0; i < timers; i += 2) {
+            timeouts.get(i).cancel();
+        }
+        assertEquals(timers / 2, wheel.size(), "Cancelled timers leave the wheel.");
+
+        assertEquals(timers / 2, wheel.advance(scheduledAt + TimeUnit.SECONDS.toNanos(2)),
+                "Every remaining timer runs once its deadline has passed.");
+        assertEquals(timers / 2, runs[0], "Each timer runs exactly once.");
+        assertTrue(wheel.isEmpty(), "No timers are left.");
+    }
+}
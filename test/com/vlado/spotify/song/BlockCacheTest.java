@@ -0,0 +1,142 @@
+package com.vlado.spotify.song;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockCacheTest {
+    private static final Path SONG_PATH = Path.of("testResources", "5sec.wav");
+    private static final int BLOCK_SIZE = 1024;
+
+    private SongChannel songChannel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        songChannel = SongChannel.open(SONG_PATH);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        songChannel.close();
+    }
+
+    @Test
+    void testConstructorNonPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockCache(0, BLOCK_SIZE),
+                "Capacity must be positive.");
+        assertThrows(IllegalArgumentException.class, () -> new BlockCache(BLOCK_SIZE, 0),
+                "Block size must be positive.");
+    }
+
+    @Test
+    void testAcquireReadsBlockData() throws Exception {
+        BlockCache cache = new BlockCache(4 * BLOCK_SIZE, BLOCK_SIZE);
+        BlockCache.Block block = cache.acquire(SONG_PATH, 2, songChannel);
+
+        int from = (int) (songChannel.getHeader().getDataOffset() + 2 * BLOCK_SIZE);
+        byte[] expected = Arrays.copyOfRange(Files.readAllBytes(SONG_PATH), from, from + BLOCK_SIZE);
+        byte[] actual = new byte[block.size()];
+        block.data().get(actual);
+
+        assertArrayEquals(expected, actual, "A block holds its part of the data chunk.");
+        block.release();
+    }
+
+    @Test
+    void testHitsAndMisses() throws Exception {
+        BlockCache cache = new BlockCache(4 * BLOCK_SIZE, BLOCK_SIZE);
+
+        BlockCache.Block first = cache.acquire(SONG_PATH, 0, songChannel);
+        BlockCache.Block second = cache.acquire(SONG_PATH, 0, songChannel);
+
+        assertSame(first, second, "Streams of the same song share a block.");
+        assertEquals(1, cache.getMisses(), "The first acquire is a miss.");
+        assertEquals(1, cache.getHits(), "The second acquire is a hit.");
+        assertEquals(BLOCK_SIZE, cache.getSize(), "A shared block is counted once.");
+
+        first.release();
+        second.release();
+    }
+
+    @Test
+    void testBlockViewsAreIndependent() throws Exception {
+        BlockCache cache = new BlockCache(4 * BLOCK_SIZE, BLOCK_SIZE);
+        BlockCache.Block block = cache.acquire(SONG_PATH, 0, songChannel);
+
+        ByteBuffer view = block.data();
+        view.position(view.limit());
+
+        assertEquals(BLOCK_SIZE, block.data().remaining(), "Reading one view does not move another.");
+        block.release();
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() throws Exception {
+        BlockCache cache = new BlockCache(2 * BLOCK_SIZE, BLOCK_SIZE);
+
+        cache.acquire(SONG_PATH, 0, songChannel).release();
+        cache.acquire(SONG_PATH, 1, songChannel).release();
+        cache.acquire(SONG_PATH, 0, songChannel).release();
+        cache.acquire(SONG_PATH, 2, songChannel).release();
+
+        assertEquals(1, cache.getEvictions(), "One block is evicted to stay within capacity.");
+        assertEquals(2 * BLOCK_SIZE, cache.getSize(), "The cache is within its capacity.");
+
+        cache.acquire(SONG_PATH, 0, songChannel).release();
+        assertEquals(2, cache.getHits(), "The recently used block is kept.");
+    }
+
+    @Test
+    void testHeldBlocksAreNotEvicted() throws Exception {
+        BlockCache cache = new BlockCache(BLOCK_SIZE, BLOCK_SIZE);
+
+        BlockCache.Block held = cache.acquire(SONG_PATH, 0, songChannel);
+        BlockCache.Block other = cache.acquire(SONG_PATH, 1, songChannel);
+
+        assertEquals(0, cache.getEvictions(), "Held blocks are not evicted.");
+        assertEquals(2 * BLOCK_SIZE, cache.getSize(), "The cache goes over capacity while every block is held.");
+
+        held.release();
+        assertEquals(1, cache.getEvictions(), "A block is evicted once released.");
+        assertEquals(BLOCK_SIZE, cache.getSize(), "The cache is back within its capacity.");
+        other.release();
+    }
+
+    @Test
+    void testReleaseNotHeld() throws Exception {
+        BlockCache cache = new BlockCache(4 * BLOCK_SIZE, BLOCK_SIZE);
+        BlockCache.Block block = cache.acquire(SONG_PATH, 0, songChannel);
+        block.release();
+
+        assertThrows(IllegalStateException.class, block::release, "A block cannot be released more than acquired.");
+    }
+
+    @Test
+    void testAcquirePastEnd() {
+        BlockCache cache = new BlockCache(4 * BLOCK_SIZE, BLOCK_SIZE);
+        long pastEnd = songChannel.getHeader().getDataLength() / BLOCK_SIZE + 1;
+
+        assertThrows(IllegalArgumentException.class, () -> cache.acquire(SONG_PATH, pastEnd, songChannel),
+                "Blocks past the end of the data chunk cannot be acquired.");
+    }
+
+    @Test
+    void testInvalidate() throws Exception {
+        BlockCache cache = new BlockCache(4 * BLOCK_SIZE, BLOCK_SIZE);
+        BlockCache.Block held = cache.acquire(SONG_PATH, 0, songChannel);
+        cache.acquire(SONG_PATH, 1, songChannel).release();
+
+        cache.invalidate(SONG_PATH);
+
+        assertEquals(0, cache.getBlockCount(), "Every block of the song is dropped.");
+        assertEquals(0, cache.getSize(), "Dropped blocks are not counted.");
+        assertDoesNotThrow(held::release, "Held blocks can still be released.");
+    }
+}
@@ -0,0 +1,74 @@
+package com.vlado.spotify.song;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedSongRegistryTest {
+    private static final Path SONG_PATH = Path.of("testResources", "5sec.wav");
+
+    @Test
+    void testGetMapsDataChunk() throws Exception {
+        MappedSong song = new MappedSongRegistry().get(SONG_PATH);
+        WavHeader header = song.getHeader();
+
+        int from = (int) header.getDataOffset();
+        byte[] expected = Arrays.copyOfRange(Files.readAllBytes(SONG_PATH), from,
+                from + (int) header.getDataLength());
+        byte[] actual = new byte[(int) header.getDataLength()];
+        song.data().get(actual);
+
+        assertArrayEquals(expected, actual, "The mapping holds the data chunk of the song.");
+    }
+
+    @Test
+    void testGetSharesMapping() throws Exception {
+        MappedSongRegistry registry = new MappedSongRegistry();
+
+        assertSame(registry.get(SONG_PATH), registry.get(SONG_PATH), "A song is mapped only once.");
+        assertEquals(1, registry.size(), "The registry holds one mapping per song.");
+    }
+
+    @Test
+    void testRemove() throws Exception {
+        MappedSongRegistry registry = new MappedSongRegistry();
+        MappedSong song = registry.get(SONG_PATH);
+
+        registry.remove(SONG_PATH);
+
+        assertFalse(registry.contains(SONG_PATH), "A removed song is no longer mapped.");
+        assertNotSame(song, registry.get(SONG_PATH), "A removed song is mapped again on the next play.");
+    }
+
+    @Test
+    void testDataViewsAreIndependent() throws Exception {
+        MappedSong song = new MappedSongRegistry().get(SONG_PATH);
+
+        ByteBuffer view = song.data();
+        view.position(view.limit());
+
+        assertEquals(song.getHeader().getDataLength(), song.data().remaining(),
+                "Reading one view does not move another.");
+    }
+
+    @Test
+    void testSongChannelReadsMapping() throws Exception {
+        MappedSong song = new MappedSongRegistry().get(SONG_PATH);
+
+        try (SongChannel fromFile = SongChannel.open(SONG_PATH);
+             SongChannel fromMapping = SongChannel.open(song)) {
+            ByteBuffer expected = ByteBuffer.allocate(4096);
+            ByteBuffer actual = ByteBuffer.allocate(4096);
+            fromFile.read(expected);
+            fromMapping.read(actual);
+
+            assertEquals(expected.flip(), actual.flip(), "A mapped song channel reads the same data as a file.");
+            assertEquals(fromFile.remaining(), fromMapping.remaining(), "Both channels move by the bytes read.");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.vlado.spotify.song;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamPacerTest {
+    // 1000 frames of 4 bytes per second
+    private static final SongFormat FORMAT = new SongFormat("PCM_SIGNED", 1000, 16, 2, 4, 1000, false);
+    private static final long LEAD_MILLIS = 500;
+    private static final long START = 1_000_000;
+
+    @Test
+    void testConstructorInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamPacer(null, LEAD_MILLIS),
+                "Pacer cannot be created without a format.");
+        assertThrows(IllegalArgumentException.class, () -> new StreamPacer(FORMAT, -1),
+                "Lead cannot be negative.");
+    }
+
+    @Test
+    void testNotStartedIsNotPaced() {
+        StreamPacer pacer = new StreamPacer(FORMAT, LEAD_MILLIS);
+
+        assertEquals(0, pacer.delayNanos(1_000_000, START), "A stream is not paced before its first write.");
+    }
+
+    @Test
+    void testSendsLeadWithoutDelay() {
+        StreamPacer pacer = new StreamPacer(FORMAT, LEAD_MILLIS);
+        pacer.start(START);
+
+        assertEquals(0, pacer.delayNanos(2000, START), "Half a second of audio is within the lead.");
+    }
+
+    @Test
+    void testDelayAfterLead() {
+        StreamPacer pacer = new StreamPacer(FORMAT, LEAD_MILLIS);
+        pacer.start(START);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), pacer.delayNanos(4000, START),
+                "One second of audio waits for the half second after the lead.");
+        assertEquals(0, pacer.delayNanos(4000, START + TimeUnit.MILLISECONDS.toNanos(500)),
+                "The stream continues once playback has caught up.");
+    }
+
+    @Test
+    void testStartOnlyOnce() {
+        StreamPacer pacer = new StreamPacer(FORMAT, 0);
+        pacer.start(START);
+        pacer.start(START + TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(TimeUnit.SECONDS.toNanos(1), pacer.delayNanos(4000, START),
+                "The clock starts on the first write only.");
+    }
+
+    @Test
+    void testUnknownFrameRateIsNotPaced() {
+        SongFormat format = new SongFormat("PCM_SIGNED", 1000, 16, 2, 4, -1, false);
+        StreamPacer pacer = new StreamPacer(format, 0);
+        pacer.start(START);
+
+        assertEquals(0, pacer.delayNanos(1_000_000, START), "Formats without a frame rate are not paced.");
+    }
+}
@@ -0,0 +1,168 @@
+package com.vlado.spotify.song;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamSessionTest {
+    private static final Path SONG_PATH = Path.of("testResources", "5sec.wav");
+    private static final Song SONG = new Song("5sec", "unknown", 0, SONG_PATH);
+    private static final int FRAGMENT_SIZE = 8187;
+    private static final long CACHE_SIZE = 4 * 1024 * 1024;
+    private static final int CACHE_BLOCK_SIZE = 64 * 1024;
+
+    @Test
+    void testConstructorNullSongChannel() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StreamSession(SONG, null, StreamingMode.BUFFERED, FRAGMENT_SIZE),
+                "Stream session cannot be created without a song channel.");
+    }
+
+    @Test
+    void testWriteToBufferedSendsWholeSong() throws Exception {
+        assertArrayEquals(readSongData(), streamSong(StreamingMode.BUFFERED, Integer.MAX_VALUE),
+                "Buffered mode sends the whole data chunk of the song.");
+    }
+
+    @Test
+    void testWriteToZeroCopySendsWholeSong() throws Exception {
+        assertArrayEquals(readSongData(), streamSong(StreamingMode.ZERO_COPY, Integer.MAX_VALUE),
+                "Zero copy mode sends the whole data chunk of the song.");
+    }
+
+    @Test
+    void testWriteToResumesPartialWrites() throws Exception {
+        byte[] expected = readSongData();
+
+        assertArrayEquals(expected, streamSong(StreamingMode.BUFFERED, 3),
+                "Buffered mode resumes partially written fragments.");
+        assertArrayEquals(expected, streamSong(StreamingMode.ZERO_COPY, 3),
+                "Zero copy mode resumes partially written fragments.");
+    }
+
+    @Test
+    void testWriteToCachedSendsWholeSong() throws Exception {
+        BlockCache blockCache = new BlockCache(CACHE_SIZE, CACHE_BLOCK_SIZE);
+
+        assertArrayEquals(readSongData(), streamSong(StreamingMode.CACHED, 3, blockCache),
+                "Cached mode sends the whole data chunk of the song.");
+        assertEquals(0, blockCache.getHits(), "The first stream reads every block from the file.");
+
+        assertArrayEquals(readSongData(), streamSong(StreamingMode.CACHED, Integer.MAX_VALUE, blockCache),
+                "Cached mode sends the whole song from cached blocks.");
+        assertEquals(blockCache.getMisses(), blockCache.getHits(),
+                "The second stream reads every block from the cache.");
+    }
+
+    @Test
+    void testWriteToMappedSendsWholeSong() throws Exception {
+        MappedSong mappedSong = MappedSong.map(SONG_PATH);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WritableByteChannel channel = new LimitedChannel(Channels.newChannel(output), 3);
+
+        try (StreamSession session = new StreamSession(SONG, SongChannel.open(mappedSong),
+                StreamingMode.MAPPED, FRAGMENT_SIZE)) {
+            while (session.writeTo(channel) != StreamSession.STREAM_FINISHED) {
+                assertTrue(session.getBytesSent() <= Files.size(SONG_PATH) * 2,
+                        "The session does not send more bytes than the song has.");
+            }
+        }
+
+        assertArrayEquals(readSongData(), unframe(output.toByteArray()),
+                "Mapped mode sends the whole data chunk of the song.");
+    }
+
+    @Test
+    void testCachedWithoutCache() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StreamSession(SONG, SongChannel.open(SONG_PATH), StreamingMode.CACHED, FRAGMENT_SIZE),
+                "Cached mode needs a block cache.");
+    }
+
+    @Test
+    void testWriteToClosedSession() throws Exception {
+        StreamSession session = new StreamSession(SONG, SongChannel.open(SONG_PATH),
+                StreamingMode.BUFFERED, FRAGMENT_SIZE);
+        session.close();
+
+        assertEquals(StreamSession.STREAM_FINISHED,
+                session.writeTo(Channels.newChannel(new ByteArrayOutputStream())),
+                "A closed session has nothing more to send.");
+    }
+
+    private static byte[] streamSong(StreamingMode mode, int maxBytesPerWrite) throws Exception {
+        return streamSong(mode, maxBytesPerWrite, null);
+    }
+
+    private static byte[] streamSong(StreamingMode mode, int maxBytesPerWrite, BlockCache blockCache)
+            throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WritableByteChannel channel = new LimitedChannel(Channels.newChannel(output), maxBytesPerWrite);
+
+        try (StreamSession session = new StreamSession(SONG, SongChannel.open(SONG_PATH), mode, FRAGMENT_SIZE,
+                null, blockCache)) {
+            while (session.writeTo(channel) != StreamSession.STREAM_FINISHED) {
+                assertTrue(session.getBytesSent() <= Files.size(SONG_PATH) * 2,
+                        "The session does not send more bytes than the song has.");
+            }
+        }
+
+        return unframe(output.toByteArray());
+    }
+
+    private static byte[] unframe(byte[] frames) {
+        ByteBuffer buffer = ByteBuffer.wrap(frames);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        while (buffer.hasRemaining()) {
+            int size = buffer.getInt();
+            assertEquals(0, buffer.get(), "Every frame is a song fragment.");
+            assertTrue(size > 0 && size <= FRAGMENT_SIZE, "Fragment sizes are within bounds.");
+
+            data.write(frames, buffer.position(), size);
+            buffer.position(buffer.position() + size);
+        }
+
+        return data.toByteArray();
+    }
+
+    private static byte[] readSongData() throws Exception {
+        WavHeader header = WavHeader.read(SONG_PATH);
+        byte[] file = Files.readAllBytes(SONG_PATH);
+        int from = (int) header.getDataOffset();
+
+        return Arrays.copyOfRange(file, from, from + (int) header.getDataLength());
+    }
+
+    private record LimitedChannel(WritableByteChannel channel, int maxBytesPerWrite) implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int limit = src.limit();
+            src.limit(src.position() + Math.min(src.remaining(), maxBytesPerWrite));
+            try {
+                return channel.write(src);
+            } finally {
+                src.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.vlado.spotify.song;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WavHeaderTest {
+    private static final Path SONG_PATH = Path.of("testResources", "5sec.wav");
+
+    @Test
+    void testReadNullPath() {
+        assertThrows(IllegalArgumentException.class, () -> WavHeader.read((Path) null),
+                "Cannot read the header of a null path.");
+    }
+
+    @Test
+    void testReadNotWavFile() throws Exception {
+        Path notWav = Files.createTempFile("not-wav", ".wav");
+        try {
+            Files.writeString(notWav, "This is not a wav file.");
+            assertThrows(UnsupportedAudioFileException.class, () -> WavHeader.read(notWav),
+                    "Reading a file which is not a RIFF/WAVE file throws.");
+        } finally {
+            Files.delete(notWav);
+        }
+    }
+
+    @Test
+    void testReadFmtChunkPastEndOfFile() throws Exception {
+        Path corrupt = Files.createTempFile("corrupt", ".wav");
+        try {
+            ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+            header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36);
+            header.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+            header.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(0x80000000);
+            Files.write(corrupt, header.array());
+
+            assertThrows(UnsupportedAudioFileException.class, () -> WavHeader.read(corrupt),
+                    "A fmt chunk larger than the rest of the file is rejected before it is read.");
+        } finally {
+            Files.delete(corrupt);
+        }
+    }
+
+    @Test
+    void testReadMatchesAudioSystem() throws Exception {
+        WavHeader header = WavHeader.read(SONG_PATH);
+
+        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(SONG_PATH.toFile())) {
+            AudioFormat expected = audioInputStream.getFormat();
+            AudioFormat actual = header.getFormat().toAudioFormat();
+
+            assertTrue(expected.matches(actual),
+                    "The parsed format matches the one read by AudioSystem.");
+            assertEquals(audioInputStream.getFrameLength() * expected.getFrameSize(), header.getDataLength(),
+                    "The data length matches the one read by AudioSystem.");
+        }
+
+        assertEquals(Files.size(SONG_PATH), header.getDataOffset() + header.getDataLength(),
+                "The data chunk ends at the end of the file.");
+    }
+
+    @Test
+    void testDuration() throws Exception {
+        WavHeader header = WavHeader.read(SONG_PATH);
+
+        assertEquals(5, header.getDuration().toSeconds(), "The duration follows from the data length and format.");
+    }
+
+    @Test
+    void testDurationUnknownFrameRate() {
+        SongFormat format = new SongFormat("PCM_SIGNED", 44100, 16, 2, 4, -1, false);
+
+        assertEquals(Duration.ZERO, new WavHeader(format, 44, 1000).getDuration(),
+                "Formats without a frame rate have no duration.");
+    }
+}